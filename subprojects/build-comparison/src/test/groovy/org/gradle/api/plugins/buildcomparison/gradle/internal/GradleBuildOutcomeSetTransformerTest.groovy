@@ -17,6 +17,7 @@
 package org.gradle.api.plugins.buildcomparison.gradle.internal
 
 import org.gradle.api.Action
+import org.gradle.internal.hash.HashValue
 import org.gradle.internal.resource.local.FileStore
 import org.gradle.api.plugins.buildcomparison.fixtures.ProjectOutcomesBuilder
 import org.gradle.api.plugins.buildcomparison.outcome.internal.archive.GeneratedArchiveBuildOutcome
@@ -40,6 +41,10 @@ class GradleBuildOutcomeSetTransformerTest extends Specification {
             new DefaultLocallyAvailableResource(source)
         }
 
+        LocallyAvailableResource move(String key, File source, HashValue sha1) {
+            new DefaultLocallyAvailableResource(source)
+        }
+
         LocallyAvailableResource copy(String key, File source) {
             new DefaultLocallyAvailableResource(source)
         }
@@ -546,6 +546,10 @@ public abstract class AbstractTask implements TaskInternal, DynamicObjectAware {
         public void contextualise(TaskExecutionContext context) {
         }
 
+        public Class<?> getActionClass() {
+            return closure.getClass();
+        }
+
         public void execute(Task task) {
             closure.setDelegate(task);
             closure.setResolveStrategy(Closure.DELEGATE_FIRST);
@@ -582,6 +586,13 @@ public abstract class AbstractTask implements TaskInternal, DynamicObjectAware {
             }
         }
 
+        public Class<?> getActionClass() {
+            if (action instanceof ContextAwareTaskAction) {
+                return ((ContextAwareTaskAction) action).getActionClass();
+            }
+            return action.getClass();
+        }
+
         public void execute(Task task) {
             ClassLoader original = Thread.currentThread().getContextClassLoader();
             Thread.currentThread().setContextClassLoader(action.getClass().getClassLoader());
@@ -15,8 +15,10 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.hash.HashValue;
 
 import java.util.Collection;
 
@@ -52,4 +54,14 @@ public interface TaskArtifactState {
      * Returns the history for this task.
      */
     TaskExecutionHistory getExecutionHistory();
+
+    /**
+     * Calculates the key under which the outputs of this task can be stored in and loaded from a task output cache. The key is derived from
+     * the task type and implementation, the input properties and the input files of the task. Note that {@link #isUpToDate(java.util.Collection)} may not
+     * necessarily have been called.
+     *
+     * @return The cache key, or null when the outputs of the task should not be cached.
+     */
+    @Nullable
+    HashValue calculateCacheKey();
 }
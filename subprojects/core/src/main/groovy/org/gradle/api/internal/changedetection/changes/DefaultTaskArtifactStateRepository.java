@@ -24,11 +24,17 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
 import org.gradle.api.internal.changedetection.rules.TaskStateChanges;
 import org.gradle.api.internal.changedetection.rules.TaskUpToDateState;
+import org.gradle.api.internal.changedetection.state.ClassLoaderHasher;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
+import org.gradle.api.internal.changedetection.state.TaskCacheKeyCalculator;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.api.internal.tasks.ContextAwareTaskAction;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.util.ArrayList;
@@ -36,18 +42,22 @@ import java.util.Collection;
 import java.util.List;
 
 public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepository {
+    private static final Logger LOGGER = Logging.getLogger(DefaultTaskArtifactStateRepository.class);
 
     private final TaskHistoryRepository taskHistoryRepository;
     private final FileCollectionSnapshotter outputFilesSnapshotter;
     private final FileCollectionSnapshotter inputFilesSnapshotter;
     private final Instantiator instantiator;
+    private final ClassLoaderHasher classLoaderHasher;
 
     public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, Instantiator instantiator,
-                                              FileCollectionSnapshotter outputFilesSnapshotter, FileCollectionSnapshotter inputFilesSnapshotter) {
+                                              FileCollectionSnapshotter outputFilesSnapshotter, FileCollectionSnapshotter inputFilesSnapshotter,
+                                              ClassLoaderHasher classLoaderHasher) {
         this.taskHistoryRepository = taskHistoryRepository;
         this.instantiator = instantiator;
         this.outputFilesSnapshotter = outputFilesSnapshotter;
         this.inputFilesSnapshotter = inputFilesSnapshotter;
+        this.classLoaderHasher = classLoaderHasher;
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task) {
@@ -120,6 +130,25 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
 
         public void finished() {}
 
+        public HashValue calculateCacheKey() {
+            HashValue implementationHash = calculateImplementationHash();
+            if (implementationHash == null) {
+                LOGGER.info("Not caching {} as the classes that implement it cannot be hashed.", task);
+                return null;
+            }
+            byte[] inputFilesHash = getStates().getInputFilesHash();
+            return new TaskCacheKeyCalculator(task.getClass().getClassLoader()).calculate(history.getCurrentExecution(), implementationHash, inputFilesHash);
+        }
+
+        private HashValue calculateImplementationHash() {
+            List<Class<?>> implementation = new ArrayList<Class<?>>();
+            implementation.add(task.getClass());
+            for (ContextAwareTaskAction action : task.getTaskActions()) {
+                implementation.add(action.getActionClass());
+            }
+            return classLoaderHasher.getHash(implementation);
+        }
+
         private TaskUpToDateState getStates() {
             if (states == null) {
                 // Calculate initial state - note this is potentially expensive
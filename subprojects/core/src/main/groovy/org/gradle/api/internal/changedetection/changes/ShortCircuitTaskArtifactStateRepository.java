@@ -22,6 +22,7 @@ import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.util.Collection;
@@ -92,6 +93,11 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
         public void finished() {
             delegate.finished();
         }
+
+        public HashValue calculateCacheKey() {
+            // The task has to be executed, so don't use any cached outputs
+            return null;
+        }
     }
 
 }
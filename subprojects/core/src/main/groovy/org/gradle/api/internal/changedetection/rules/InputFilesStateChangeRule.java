@@ -20,6 +20,7 @@ import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.util.ChangeListener;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 
@@ -30,6 +31,11 @@ class InputFilesStateChangeRule {
     public static TaskStateChanges create(final TaskExecution previousExecution, final TaskExecution currentExecution, final FileCollectionSnapshot inputFilesSnapshot) {
         return new TaskStateChanges() {
             public Iterator<TaskStateChange> iterator() {
+                // Compare the hashes first, so that the previous snapshot is only loaded when something has changed
+                byte[] previousHash = previousExecution.getInputFilesHash();
+                if (previousHash != null && Arrays.equals(previousHash, inputFilesSnapshot.getHash())) {
+                    return Collections.<TaskStateChange>emptySet().iterator();
+                }
                 if (previousExecution.getInputFilesSnapshot() == null) {
                     return Collections.<TaskStateChange>singleton(new DescriptiveChange("Input file history is not available.")).iterator();
                 }
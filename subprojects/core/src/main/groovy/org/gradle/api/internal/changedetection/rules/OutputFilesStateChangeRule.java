@@ -22,6 +22,7 @@ import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.util.ChangeListener;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 
@@ -36,6 +37,11 @@ class OutputFilesStateChangeRule {
         return new TaskStateChanges() {
 
             public Iterator<TaskStateChange> iterator() {
+                // Compare the hashes first, so that the previous snapshot is only loaded when something has changed
+                byte[] previousHash = previousExecution.getOutputFilesHash();
+                if (previousHash != null && Arrays.equals(previousHash, outputFilesBefore.getHash())) {
+                    return Collections.<TaskStateChange>emptySet().iterator();
+                }
                 if (previousExecution.getOutputFilesSnapshot() == null) {
                     return Collections.<TaskStateChange>singleton(new DescriptiveChange("Output file history is not available.")).iterator();
                 }
@@ -26,6 +26,7 @@ import org.gradle.api.internal.changedetection.state.*;
 public class TaskUpToDateState {
     private static final int MAX_OUT_OF_DATE_MESSAGES = 3;
     private final FilesSnapshotSet inputFilesSnapshot;
+    private final byte[] inputFilesHash;
 
     private TaskStateChanges noHistoryState;
     private TaskStateChanges inputFilesState;
@@ -54,6 +55,7 @@ public class TaskUpToDateState {
         try {
             FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles());
             this.inputFilesSnapshot = inputFilesSnapshot.getSnapshot();
+            this.inputFilesHash = inputFilesSnapshot.getHash();
             inputFilesState = caching(InputFilesStateChangeRule.create(lastExecution, thisExecution, inputFilesSnapshot));
         } catch (UncheckedIOException e) {
             throw new UncheckedIOException(String.format("Failed to capture snapshot of input files for task '%s' during up-to-date check.  See stacktrace for details.", task.getName()), e);
@@ -82,4 +84,8 @@ public class TaskUpToDateState {
     public FilesSnapshotSet getInputFilesSnapshot() {
         return inputFilesSnapshot;
     }
+
+    public byte[] getInputFilesHash() {
+        return inputFilesHash;
+    }
 }
@@ -86,7 +86,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     }
 
     private TaskHistory loadHistory(final TaskInternal task) {
-        return cacheAccess.useCache("Load task history", new Factory<TaskHistory>() {
+        return cacheAccess.readCache("Load task history", new Factory<TaskHistory>() {
             public TaskHistory create() {
                 ClassLoader original = serializer.getClassLoader();
                 serializer.setClassLoader(task.getClass().getClassLoader());
@@ -135,12 +135,13 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
 
     private static class TaskHistorySerializer implements Serializer<TaskHistory> {
 
-        private ClassLoader classLoader;
+        // Per thread, as task history may be loaded by several threads at the same time
+        private final ThreadLocal<ClassLoader> classLoader = new ThreadLocal<ClassLoader>();
 
         public TaskHistory read(Decoder decoder) throws Exception {
             byte executions = decoder.readByte();
             TaskHistory history = new TaskHistory();
-            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader);
+            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader.get());
             for (int i = 0; i < executions; i++) {
                 LazyTaskExecution exec = executionSerializer.read(decoder);
                 history.configurations.add(exec);
@@ -151,18 +152,18 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void write(Encoder encoder, TaskHistory value) throws Exception {
             int size = value.configurations.size();
             encoder.writeByte((byte) size);
-            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader);
+            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader.get());
             for (LazyTaskExecution execution : value.configurations) {
                 executionSerializer.write(encoder, execution);
             }
         }
 
         public ClassLoader getClassLoader() {
-            return classLoader;
+            return classLoader.get();
         }
 
         public void setClassLoader(ClassLoader classLoader) {
-            this.classLoader = classLoader;
+            this.classLoader.set(classLoader);
         }
     }
 
@@ -186,6 +187,8 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     private static class LazyTaskExecution extends TaskExecution {
         private Long inputFilesSnapshotId;
         private Long outputFilesSnapshotId;
+        private byte[] inputFilesHash;
+        private byte[] outputFilesHash;
         private transient FileSnapshotRepository snapshotRepository;
         private transient FileCollectionSnapshot inputFilesSnapshot;
         private transient FileCollectionSnapshot outputFilesSnapshot;
@@ -194,7 +197,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         @Override
         public FileCollectionSnapshot getInputFilesSnapshot() {
             if (inputFilesSnapshot == null) {
-                inputFilesSnapshot = cacheAccess.useCache("fetch input files", new Factory<FileCollectionSnapshot>() {
+                inputFilesSnapshot = cacheAccess.readCache("fetch input files", new Factory<FileCollectionSnapshot>() {
                     public FileCollectionSnapshot create() {
                         return snapshotRepository.get(inputFilesSnapshotId);
                     }
@@ -207,12 +210,18 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void setInputFilesSnapshot(FileCollectionSnapshot inputFilesSnapshot) {
             this.inputFilesSnapshot = inputFilesSnapshot;
             this.inputFilesSnapshotId = null;
+            this.inputFilesHash = inputFilesSnapshot == null ? null : inputFilesSnapshot.getHash();
+        }
+
+        @Override
+        public byte[] getInputFilesHash() {
+            return inputFilesHash;
         }
 
         @Override
         public FileCollectionSnapshot getOutputFilesSnapshot() {
             if (outputFilesSnapshot == null) {
-                outputFilesSnapshot = cacheAccess.useCache("fetch output files", new Factory<FileCollectionSnapshot>() {
+                outputFilesSnapshot = cacheAccess.readCache("fetch output files", new Factory<FileCollectionSnapshot>() {
                     public FileCollectionSnapshot create() {
                         return snapshotRepository.get(outputFilesSnapshotId);
                     }
@@ -225,6 +234,12 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void setOutputFilesSnapshot(FileCollectionSnapshot outputFilesSnapshot) {
             this.outputFilesSnapshot = outputFilesSnapshot;
             outputFilesSnapshotId = null;
+            outputFilesHash = outputFilesSnapshot == null ? null : outputFilesSnapshot.getHash();
+        }
+
+        @Override
+        public byte[] getOutputFilesHash() {
+            return outputFilesHash;
         }
 
         static class TaskHistorySerializer implements Serializer<LazyTaskExecution> {
@@ -238,6 +253,8 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 LazyTaskExecution execution = new LazyTaskExecution();
                 execution.inputFilesSnapshotId = decoder.readLong();
                 execution.outputFilesSnapshotId = decoder.readLong();
+                execution.inputFilesHash = readHash(decoder);
+                execution.outputFilesHash = readHash(decoder);
                 execution.setTaskClass(decoder.readString());
                 int outputFiles = decoder.readInt();
                 Set<String> files = new HashSet<String>();
@@ -259,6 +276,8 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             public void write(Encoder encoder, LazyTaskExecution execution) throws Exception {
                 encoder.writeLong(execution.inputFilesSnapshotId);
                 encoder.writeLong(execution.outputFilesSnapshotId);
+                writeHash(encoder, execution.inputFilesHash);
+                writeHash(encoder, execution.outputFilesHash);
                 encoder.writeString(execution.getTaskClass());
                 encoder.writeInt(execution.getOutputFiles().size());
                 for (String outputFile : execution.getOutputFiles()) {
@@ -271,6 +290,22 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                     inputPropertiesSerializer.write(encoder, execution.getInputProperties());
                 }
             }
+
+            private byte[] readHash(Decoder decoder) throws Exception {
+                if (!decoder.readBoolean()) {
+                    return null;
+                }
+                return decoder.readBinary();
+            }
+
+            private void writeHash(Encoder encoder, byte[] hash) throws Exception {
+                if (hash == null) {
+                    encoder.writeBoolean(false);
+                } else {
+                    encoder.writeBoolean(true);
+                    encoder.writeBinary(hash);
+                }
+            }
         }
     }
 }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
@@ -23,6 +24,9 @@ import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 public class CachingFileSnapshotter implements FileSnapshotter {
     private final PersistentIndexedCache<File, FileInfo> cache;
@@ -35,20 +39,80 @@ public class CachingFileSnapshotter implements FileSnapshotter {
     }
 
     public FileInfo snapshot(File file) {
-        FileInfo info = cache.get(file);
-
         long length = file.length();
         long timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        FileInfo info = getCached(file, length, timestamp);
+        if (info != null) {
             return info;
         }
 
-        byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
-        cache.put(file, info);
+        info = hash(file, length, timestamp);
+        cache(file, info);
         return info;
     }
 
+    public Map<File, FileInfo> snapshotAll(Collection<File> files) {
+        Map<File, FileInfo> cached = cache.getAll(files);
+        Map<File, FileInfo> snapshots = new HashMap<File, FileInfo>(files.size());
+        Map<File, FileInfo> updated = new HashMap<File, FileInfo>();
+        for (File file : files) {
+            long length = file.length();
+            long timestamp = file.lastModified();
+            FileInfo info = cached.get(file);
+            if (info == null || !info.matches(length, timestamp)) {
+                info = hash(file, length, timestamp);
+                updated.put(file, info);
+            }
+            snapshots.put(file, info);
+        }
+        if (!updated.isEmpty()) {
+            cache.putAll(updated);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns the cached snapshot of the given file, or null when there is no cached snapshot or it does not match the given length and timestamp.
+     * Must be called while holding the lock on the backing store.
+     */
+    @Nullable
+    public FileInfo getCached(File file, long length, long timestamp) {
+        FileInfo info = cache.get(file);
+        if (info != null && info.matches(length, timestamp)) {
+            return info;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cached snapshots of the given files, fetched from the cache in a single batch. The caller should check that each snapshot
+     * still {@link FileInfo#matches matches} its file. Must be called while holding the lock on the backing store.
+     */
+    public Map<File, FileInfo> getCached(Collection<File> files) {
+        return cache.getAll(files);
+    }
+
+    /**
+     * Hashes the given file, without consulting or updating the cache. Can be called from any thread.
+     */
+    public FileInfo hash(File file, long length, long timestamp) {
+        return new FileInfo(hasher.hash(file), length, timestamp);
+    }
+
+    /**
+     * Records the given snapshot of the given file in the cache. Must be called while holding the lock on the backing store.
+     */
+    public void cache(File file, FileInfo info) {
+        cache.put(file, info);
+    }
+
+    /**
+     * Records the given snapshots in the cache in a single batch. Must be called while holding the lock on the backing store.
+     */
+    public void cache(Map<File, FileInfo> infos) {
+        cache.putAll(infos);
+    }
+
     public static class FileInfo implements FileSnapshot {
         private final byte[] hash;
         private final long timestamp;
@@ -63,6 +127,13 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         public byte[] getHash() {
             return hash;
         }
+
+        /**
+         * Returns true when this snapshot was taken of a file with the given length and timestamp.
+         */
+        public boolean matches(long length, long timestamp) {
+            return this.length == length && this.timestamp == timestamp;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Nullable;
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderHierarchy;
+import org.gradle.internal.classloader.ClassLoaderSpec;
+import org.gradle.internal.classloader.ClassLoaderVisitor;
+import org.gradle.internal.hash.HashValue;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Calculates a hash of the classes that can be loaded by a class loader, from the contents of the class path of the class loader and of its
+ * parents. The hash of each class loader is kept together with the length and timestamp of each file on its class path, and is calculated
+ * again when any of these files change.
+ *
+ * <p>The hash is not available for a class loader whose classes cannot be determined from its class path, such as a class loader that
+ * defines classes on the fly or loads them from a remote location.</p>
+ */
+public class ClassLoaderHasher {
+    private static final ClassLoaderHash UNKNOWN = new ClassLoaderHash(null, null);
+    private final ClassLoader stopAt = ClassLoader.getSystemClassLoader() == null ? null : ClassLoader.getSystemClassLoader().getParent();
+    private final CachingFileSnapshotter fileSnapshotter;
+    private final CacheAccess cacheAccess;
+    private final Map<ClassLoader, ClassLoaderHash> hashes = Collections.synchronizedMap(new WeakHashMap<ClassLoader, ClassLoaderHash>());
+
+    public ClassLoaderHasher(CachingFileSnapshotter fileSnapshotter, CacheAccess cacheAccess) {
+        this.fileSnapshotter = fileSnapshotter;
+        this.cacheAccess = cacheAccess;
+    }
+
+    /**
+     * Returns a hash of the names and the class loaders of the given classes, or null when the hash of any of the class loaders is not available.
+     */
+    @Nullable
+    public HashValue getHash(final List<Class<?>> classes) {
+        return cacheAccess.useCache("Hash class loader", new Factory<HashValue>() {
+            public HashValue create() {
+                Map<ClassLoader, ClassLoaderHash> visited = new IdentityHashMap<ClassLoader, ClassLoaderHash>();
+                MessageDigest digest = DefaultFileCollectionSnapshotter.createMessageDigest();
+                for (Class<?> type : classes) {
+                    ClassLoaderHash classLoaderHash = calculateHash(type.getClassLoader(), visited);
+                    if (classLoaderHash == UNKNOWN) {
+                        return null;
+                    }
+                    update(digest, type.getName());
+                    digest.update(classLoaderHash.hash.asByteArray());
+                }
+                return new HashValue(digest.digest());
+            }
+        });
+    }
+
+    /**
+     * Returns the hash of the given class loader, or null when it is not available.
+     */
+    @Nullable
+    public HashValue getHash(final ClassLoader classLoader) {
+        return cacheAccess.useCache("Hash class loader", new Factory<HashValue>() {
+            public HashValue create() {
+                return calculateHash(classLoader, new IdentityHashMap<ClassLoader, ClassLoaderHash>()).hash;
+            }
+        });
+    }
+
+    private ClassLoaderHash calculateHash(ClassLoader classLoader, Map<ClassLoader, ClassLoaderHash> visited) {
+        // Each class loader is checked once per request, as the parents are usually shared by the class loaders of the requested classes
+        ClassLoaderHash hash = visited.get(classLoader);
+        if (hash != null) {
+            return hash;
+        }
+        HashingVisitor visitor = new HashingVisitor(visited);
+        visitor.visit(classLoader);
+        if (visitor.unknown) {
+            hash = UNKNOWN;
+        } else {
+            HashValue fileStates = new HashValue(visitor.fileStates.digest());
+            ClassLoaderHash previous = classLoader == null ? null : hashes.get(classLoader);
+            if (previous != null && previous != UNKNOWN && previous.fileStates.equals(fileStates)) {
+                hash = previous;
+            } else {
+                hash = new ClassLoaderHash(fileStates, visitor.hashContents());
+            }
+        }
+        if (classLoader != null) {
+            hashes.put(classLoader, hash);
+        }
+        visited.put(classLoader, hash);
+        return hash;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        try {
+            digest.update(value.getBytes("utf-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, long value) {
+        for (int i = 0; i < 8; i++) {
+            digest.update((byte) (value >>> (i * 8)));
+        }
+    }
+
+    private static class ClassLoaderHash {
+        // The hash of the paths, lengths and timestamps of the files on the class path, used to detect changes without hashing the files again
+        private final HashValue fileStates;
+        private final HashValue hash;
+
+        private ClassLoaderHash(HashValue fileStates, HashValue hash) {
+            this.fileStates = fileStates;
+            this.hash = hash;
+        }
+    }
+
+    private class HashingVisitor extends ClassLoaderVisitor {
+        private final Map<ClassLoader, ClassLoaderHash> visited;
+        private final MessageDigest fileStates = DefaultFileCollectionSnapshotter.createMessageDigest();
+        // The names, files and parent hashes that make up the contents of the class loader, in order
+        private final List<Object> contents = new ArrayList<Object>();
+        private boolean unknown;
+        private boolean visitedSelf;
+
+        HashingVisitor(Map<ClassLoader, ClassLoaderHash> visited) {
+            this.visited = visited;
+        }
+
+        @Override
+        public void visit(ClassLoader classLoader) {
+            // Only visit the class loader itself, its parents are hashed separately so that their hashes can be reused
+            assert !visitedSelf;
+            visitedSelf = true;
+            if (classLoader == null || classLoader == stopAt) {
+                update("bootstrap");
+                return;
+            }
+            if (!(classLoader instanceof ClassLoaderHierarchy) && !(classLoader instanceof URLClassLoader)) {
+                unknown = true;
+                return;
+            }
+            super.visit(classLoader);
+        }
+
+        @Override
+        public void visitSpec(ClassLoaderSpec spec) {
+            update(spec.getClass().getName());
+        }
+
+        @Override
+        public void visitClassPath(URL[] classPath) {
+            for (URL url : classPath) {
+                if (!url.getProtocol().equals("file")) {
+                    unknown = true;
+                    return;
+                }
+                try {
+                    File file = new File(url.toURI());
+                    update(file.getAbsolutePath());
+                    visitFile(file);
+                } catch (URISyntaxException e) {
+                    unknown = true;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void visitParent(ClassLoader classLoader) {
+            ClassLoaderHash parentHash = calculateHash(classLoader, visited);
+            if (parentHash == UNKNOWN) {
+                unknown = true;
+                return;
+            }
+            fileStates.update(parentHash.hash.asByteArray());
+            contents.add(parentHash.hash);
+        }
+
+        private void visitFile(File file) {
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children == null) {
+                    return;
+                }
+                Arrays.sort(children);
+                for (File child : children) {
+                    update(child.getName());
+                    visitFile(child);
+                }
+            } else if (file.isFile()) {
+                ClassLoaderHasher.update(fileStates, file.length());
+                ClassLoaderHasher.update(fileStates, file.lastModified());
+                contents.add(file);
+            } else {
+                update("missing");
+            }
+        }
+
+        private void update(String value) {
+            ClassLoaderHasher.update(fileStates, value);
+            contents.add(value);
+        }
+
+        HashValue hashContents() {
+            MessageDigest digest = DefaultFileCollectionSnapshotter.createMessageDigest();
+            for (Object element : contents) {
+                if (element instanceof String) {
+                    ClassLoaderHasher.update(digest, (String) element);
+                } else if (element instanceof File) {
+                    digest.update(fileSnapshotter.snapshot((File) element).getHash());
+                } else {
+                    digest.update(((HashValue) element).asByteArray());
+                }
+            }
+            return new HashValue(digest.digest());
+        }
+    }
+}
@@ -16,14 +16,18 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.base.Charsets;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter {
@@ -51,20 +55,35 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
         cacheAccess.useCache("Create file snapshot", new Runnable() {
             public void run() {
-                for (File file : files) {
-                    if (file.isFile()) {
-                        snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(snapshotter.snapshot(file).getHash()));
-                    } else if (file.isDirectory()) {
-                        snapshots.put(file.getAbsolutePath(), new DirSnapshot());
-                    } else {
-                        snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
-                    }
-                }
+                snapshotFiles(files, snapshots);
             }
         });
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
+    /**
+     * Snapshots the given files into the given map. Called while holding the lock on the task history cache.
+     */
+    protected void snapshotFiles(Collection<File> files, Map<String, IncrementalFileSnapshot> snapshots) {
+        List<File> regularFiles = new ArrayList<File>();
+        for (File file : files) {
+            if (file.isFile()) {
+                regularFiles.add(file);
+            } else if (file.isDirectory()) {
+                snapshots.put(file.getAbsolutePath(), new DirSnapshot());
+            } else {
+                snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+            }
+        }
+        if (regularFiles.isEmpty()) {
+            return;
+        }
+        // Look up and update the cached hashes in batches
+        for (Map.Entry<File, ? extends FileSnapshot> entry : snapshotter.snapshotAll(regularFiles).entrySet()) {
+            snapshots.put(entry.getKey().getAbsolutePath(), new FileHashSnapshot(entry.getValue().getHash()));
+        }
+    }
+
     static interface IncrementalFileSnapshot {
         boolean isUpToDate(IncrementalFileSnapshot snapshot);
     }
@@ -107,18 +126,82 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
     }
 
+    /**
+     * A snapshot held as parallel arrays sorted by path, with the hashes of all files packed into a single array. Two snapshots are compared
+     * by walking both arrays in order.
+     */
     static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        final Map<String, IncrementalFileSnapshot> snapshots;
+        static final byte DIR = 1;
+        static final byte MISSING = 2;
+        static final byte FILE = 3;
+
+        final String[] paths;
+        final byte[] kinds;
+        // The hash of entry i is hashes[hashOffsets[i]] to hashes[hashOffsets[i + 1] - 1]. Directories and missing files have an empty hash
+        final int[] hashOffsets;
+        final byte[] hashes;
+        private byte[] hash;
 
         public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
-            this.snapshots = snapshots;
+            this(Builder.of(snapshots));
+        }
+
+        private FileCollectionSnapshotImpl(Builder builder) {
+            builder.trim();
+            this.paths = builder.paths;
+            this.kinds = builder.kinds;
+            this.hashOffsets = builder.hashOffsets;
+            this.hashes = builder.hashes;
+        }
+
+        int size() {
+            return paths.length;
+        }
+
+        byte[] getHash(int index) {
+            int offset = hashOffsets[index];
+            byte[] hash = new byte[hashOffsets[index + 1] - offset];
+            System.arraycopy(hashes, offset, hash, 0, hash.length);
+            return hash;
+        }
+
+        private boolean isUpToDate(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            if (kinds[index] != other.kinds[otherIndex]) {
+                return false;
+            }
+            int offset = hashOffsets[index];
+            int length = hashOffsets[index + 1] - offset;
+            int otherOffset = other.hashOffsets[otherIndex];
+            if (length != other.hashOffsets[otherIndex + 1] - otherOffset) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (hashes[offset + i] != other.hashes[otherOffset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compares the path of the given entry of this snapshot with the path of the given entry of the other snapshot. An index past the end of
+         * a snapshot sorts after every path.
+         */
+        private int compare(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            if (index == paths.length) {
+                return otherIndex == other.paths.length ? 0 : 1;
+            }
+            if (otherIndex == other.paths.length) {
+                return -1;
+            }
+            return paths[index].compareTo(other.paths[otherIndex]);
         }
 
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < paths.length; i++) {
+                if (kinds[i] == FILE) {
+                    files.add(new File(paths[i]));
                 }
             }
             return new SimpleFileCollection(files);
@@ -127,47 +210,55 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         public FilesSnapshotSet getSnapshot() {
             return new FilesSnapshotSet() {
                 public FileSnapshot findSnapshot(File file) {
-                    IncrementalFileSnapshot s = snapshots.get(file.getAbsolutePath());
-                    if (s instanceof FileSnapshot) {
-                        return (FileSnapshot) s;
+                    int index = Arrays.binarySearch(paths, file.getAbsolutePath());
+                    if (index >= 0 && kinds[index] == FILE) {
+                        return new FileHashSnapshot(getHash(index));
                     }
                     return null;
                 }
             };
         }
 
+        public byte[] getHash() {
+            if (hash == null) {
+                MessageDigest digest = createMessageDigest();
+                for (int i = 0; i < paths.length; i++) {
+                    digest.update(paths[i].getBytes(Charsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(kinds[i]);
+                    digest.update(hashes, hashOffsets[i], hashOffsets[i + 1] - hashOffsets[i]);
+                }
+                hash = digest.digest();
+            }
+            return hash;
+        }
+
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(other.snapshots);
-            final Iterator<String> currentFiles = snapshots.keySet().iterator();
+            final FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
 
             return new ChangeIterator<String>() {
-                private Iterator<String> removedFiles;
+                private int current;
+                private int previous;
 
                 public boolean next(ChangeListener<String> listener) {
-                    while (currentFiles.hasNext()) {
-                        String currentFile = currentFiles.next();
-                        IncrementalFileSnapshot otherFile = otherSnapshots.remove(currentFile);
-
-                        if (otherFile == null) {
-                            listener.added(currentFile);
+                    while (current < paths.length || previous < other.paths.length) {
+                        int order = compare(current, other, previous);
+                        if (order < 0) {
+                            listener.added(paths[current++]);
                             return true;
-                        } else if (!snapshots.get(currentFile).isUpToDate(otherFile)) {
-                            listener.changed(currentFile);
+                        }
+                        if (order > 0) {
+                            listener.removed(other.paths[previous++]);
+                            return true;
+                        }
+                        boolean upToDate = isUpToDate(current, other, previous);
+                        current++;
+                        previous++;
+                        if (!upToDate) {
+                            listener.changed(paths[current - 1]);
                             return true;
                         }
                     }
-
-                    // Create a single iterator to use for all of the removed files
-                    if (removedFiles == null) {
-                        removedFiles = otherSnapshots.keySet().iterator();
-                    }
-
-                    if (removedFiles.hasNext()) {
-                        listener.removed(removedFiles.next());
-                        return true;
-                    }
-
                     return false;
                 }
             };
@@ -182,28 +273,158 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
                     FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, IncrementalFileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                    return merge(other, target, listener);
                 }
             };
         }
 
-        private void diff(Map<String, IncrementalFileSnapshot> snapshots, Map<String, IncrementalFileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, IncrementalFileSnapshot>> listener) {
-            Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                IncrementalFileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        /**
+         * Applies the changes between the old snapshot and this snapshot to the target snapshot. All three snapshots are walked in path order.
+         */
+        private FileCollectionSnapshotImpl merge(FileCollectionSnapshotImpl oldSnapshot, FileCollectionSnapshotImpl target, ChangeListener<Merge> listener) {
+            Builder builder = new Builder(target.size() + size());
+            int current = 0;
+            int previous = 0;
+            int targetIndex = 0;
+            while (current < paths.length || previous < oldSnapshot.paths.length) {
+                int order = compare(current, oldSnapshot, previous);
+                if (order == 0 && isUpToDate(current, oldSnapshot, previous)) {
+                    current++;
+                    previous++;
+                    continue;
+                }
+
+                String path = order > 0 ? oldSnapshot.paths[previous] : paths[current];
+                while (targetIndex < target.paths.length && target.paths[targetIndex].compareTo(path) < 0) {
+                    builder.add(target, targetIndex++);
+                }
+                boolean inTarget = targetIndex < target.paths.length && target.paths[targetIndex].equals(path);
+
+                MapMergeChangeListener.DefaultMerge merge = new MapMergeChangeListener.DefaultMerge();
+                if (order < 0) {
+                    listener.added(merge);
+                } else if (order > 0) {
+                    listener.removed(merge);
+                } else {
+                    listener.changed(merge);
+                }
+                if (!merge.isIgnore()) {
+                    if (order <= 0) {
+                        builder.add(this, current);
+                    }
+                    if (inTarget) {
+                        targetIndex++;
+                    }
+                }
+
+                if (order <= 0) {
+                    current++;
+                }
+                if (order >= 0) {
+                    previous++;
+                }
+            }
+            while (targetIndex < target.paths.length) {
+                builder.add(target, targetIndex++);
+            }
+            return builder.build();
+        }
+
+        /**
+         * Collects the entries of a snapshot. Entries must be added in path order.
+         */
+        static class Builder {
+            // Most hashes are MD5 hashes
+            private static final int EXPECTED_HASH_SIZE = 16;
+            private String[] paths;
+            private byte[] kinds;
+            private int[] hashOffsets;
+            private byte[] hashes;
+            private int count;
+
+            Builder(int capacity) {
+                paths = new String[capacity];
+                kinds = new byte[capacity];
+                hashOffsets = new int[capacity + 1];
+                hashes = new byte[capacity * EXPECTED_HASH_SIZE];
+            }
+
+            static Builder of(Map<String, IncrementalFileSnapshot> snapshots) {
+                String[] sortedPaths = snapshots.keySet().toArray(new String[snapshots.size()]);
+                Arrays.sort(sortedPaths);
+                Builder builder = new Builder(sortedPaths.length);
+                for (String path : sortedPaths) {
+                    IncrementalFileSnapshot snapshot = snapshots.get(path);
+                    if (snapshot instanceof FileHashSnapshot) {
+                        builder.addFile(path, ((FileHashSnapshot) snapshot).hash);
+                    } else if (snapshot instanceof DirSnapshot) {
+                        builder.add(path, DIR);
+                    } else {
+                        builder.add(path, MISSING);
+                    }
+                }
+                return builder;
+            }
+
+            void add(String path, byte kind) {
+                add(path, kind, hashes, 0, 0);
+            }
+
+            void addFile(String path, byte[] hash) {
+                add(path, FILE, hash, 0, hash.length);
+            }
+
+            void add(FileCollectionSnapshotImpl snapshot, int index) {
+                int offset = snapshot.hashOffsets[index];
+                add(snapshot.paths[index], snapshot.kinds[index], snapshot.hashes, offset, snapshot.hashOffsets[index + 1] - offset);
+            }
+
+            private void add(String path, byte kind, byte[] hash, int offset, int length) {
+                assert count == 0 || paths[count - 1].compareTo(path) < 0;
+                int hashOffset = hashOffsets[count];
+                if (hashOffset + length > hashes.length) {
+                    byte[] newHashes = new byte[Math.max(hashes.length * 2, hashOffset + length)];
+                    System.arraycopy(hashes, 0, newHashes, 0, hashOffset);
+                    hashes = newHashes;
                 }
+                System.arraycopy(hash, offset, hashes, hashOffset, length);
+                paths[count] = path;
+                kinds[count] = kind;
+                count++;
+                hashOffsets[count] = hashOffset + length;
+            }
+
+            FileCollectionSnapshotImpl build() {
+                return new FileCollectionSnapshotImpl(this);
             }
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+
+            private void trim() {
+                if (count < paths.length) {
+                    String[] newPaths = new String[count];
+                    System.arraycopy(paths, 0, newPaths, 0, count);
+                    paths = newPaths;
+                    byte[] newKinds = new byte[count];
+                    System.arraycopy(kinds, 0, newKinds, 0, count);
+                    kinds = newKinds;
+                    int[] newHashOffsets = new int[count + 1];
+                    System.arraycopy(hashOffsets, 0, newHashOffsets, 0, count + 1);
+                    hashOffsets = newHashOffsets;
+                }
+                int hashesLength = hashOffsets[count];
+                if (hashesLength < hashes.length) {
+                    byte[] newHashes = new byte[hashesLength];
+                    System.arraycopy(hashes, 0, newHashes, 0, hashesLength);
+                    hashes = newHashes;
+                }
             }
         }
+    }
 
+    static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
     }
 }
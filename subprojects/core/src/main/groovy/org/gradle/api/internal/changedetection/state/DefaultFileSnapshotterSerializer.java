@@ -20,48 +20,60 @@ import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Writes the entries of a snapshot in path order. Each path is written as the length of the prefix it shares with the previous path, followed by
+ * the remainder of the path.
+ */
 class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl> {
     public DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
-        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
         int snapshotsCount = decoder.readSmallInt();
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.Builder builder = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.Builder(snapshotsCount);
+        String previousKey = "";
         for (int i = 0; i < snapshotsCount; i++) {
-            String key = decoder.readString();
+            int commonPrefix = decoder.readSmallInt();
+            String key = previousKey.substring(0, commonPrefix) + decoder.readString();
             byte fileSnapshotKind = decoder.readByte();
-            if (fileSnapshotKind == 1) {
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.DirSnapshot());
-            } else if (fileSnapshotKind == 2) {
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.MissingFileSnapshot());
-            } else if (fileSnapshotKind == 3) {
+            if (fileSnapshotKind == DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.DIR || fileSnapshotKind == DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.MISSING) {
+                builder.add(key, fileSnapshotKind);
+            } else if (fileSnapshotKind == DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.FILE) {
                 byte hashSize = decoder.readByte();
                 byte[] hash = new byte[hashSize];
                 decoder.readBytes(hash);
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash));
+                builder.addFile(key, hash);
             } else {
                 throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
             }
+            previousKey = key;
         }
-        return snapshot;
+        return builder.build();
     }
 
     public void write(Encoder encoder, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl value) throws Exception {
-        encoder.writeSmallInt(value.snapshots.size());
-        for (String key : value.snapshots.keySet()) {
-            encoder.writeString(key);
-            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = value.snapshots.get(key);
-            if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
-                encoder.writeByte((byte) 1);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot) {
-                encoder.writeByte((byte) 2);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.FileHashSnapshot) {
-                encoder.writeByte((byte) 3);
-                byte[] hash = ((DefaultFileCollectionSnapshotter.FileHashSnapshot) incrementalFileSnapshot).hash;
-                encoder.writeByte((byte) hash.length);
-                encoder.writeBytes(hash);
+        encoder.writeSmallInt(value.size());
+        String previousKey = "";
+        for (int i = 0; i < value.size(); i++) {
+            String key = value.paths[i];
+            int commonPrefix = commonPrefix(previousKey, key);
+            encoder.writeSmallInt(commonPrefix);
+            encoder.writeString(key.substring(commonPrefix));
+            byte kind = value.kinds[i];
+            encoder.writeByte(kind);
+            if (kind == DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.FILE) {
+                int offset = value.hashOffsets[i];
+                int hashSize = value.hashOffsets[i + 1] - offset;
+                encoder.writeByte((byte) hashSize);
+                encoder.writeBytes(value.hashes, offset, hashSize);
             }
+            previousKey = key;
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
         }
+        return i;
     }
 }
@@ -60,6 +60,10 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
         cache.useCache(operationDisplayName, action);
     }
 
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return cache.readCache(operationDisplayName, action);
+    }
+
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return cache.longRunningOperation(operationDisplayName, action);
     }
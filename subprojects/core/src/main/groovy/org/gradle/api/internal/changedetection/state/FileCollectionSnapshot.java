@@ -32,6 +32,11 @@ public interface FileCollectionSnapshot {
 
     FilesSnapshotSet getSnapshot();
 
+    /**
+     * Returns a hash of the contents of this snapshot. Snapshots with the same hash contain the same files with the same contents.
+     */
+    byte[] getHash();
+
     public interface Diff {
         /**
          * Applies this diff to the given snapshot. Adds any added or changed files in this diff to the given snapshot.
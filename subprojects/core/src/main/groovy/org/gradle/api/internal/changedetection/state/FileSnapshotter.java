@@ -17,6 +17,8 @@
 package org.gradle.api.internal.changedetection.state;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Map;
 
 public interface FileSnapshotter {
     /**
@@ -24,4 +26,10 @@ public interface FileSnapshotter {
      */
     FileSnapshot snapshot(File file);
 
+    /**
+     * Takes a snapshot of the current content of each of the given files, which must all exist and be files. Any cached snapshots are looked up and
+     * updated in batches, rather than file by file.
+     */
+    Map<File, ? extends FileSnapshot> snapshotAll(Collection<File> files);
+
 }
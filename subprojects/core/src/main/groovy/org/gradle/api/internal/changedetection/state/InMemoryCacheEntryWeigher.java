@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Weigher;
+
+import java.io.File;
+
+/**
+ * Estimates the bytes of heap used by an entry of an in-memory task artifact cache, from the types of values the caches hold. Values of other types are
+ * given a fixed estimate. The estimate is multiplied by the current weight factor of the {@link InMemoryCacheSizer}.
+ */
+class InMemoryCacheEntryWeigher implements Weigher<Object, Object> {
+    // Rough sizes on a 64 bit JVM, including the entry of the cache itself
+    static final int ENTRY_OVERHEAD = 64;
+    static final int OBJECT_OVERHEAD = 16;
+    static final int ARRAY_OVERHEAD = 16;
+    static final int REFERENCE_SIZE = 8;
+    static final int UNKNOWN_VALUE_WEIGHT = 1024;
+
+    private final InMemoryCacheSizer sizer;
+
+    InMemoryCacheEntryWeigher(InMemoryCacheSizer sizer) {
+        this.sizer = sizer;
+    }
+
+    public int weigh(Object key, Object value) {
+        long weight = (ENTRY_OVERHEAD + estimate(key) + estimate(value)) * sizer.getWeightFactor();
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    static long estimate(Object value) {
+        if (value instanceof String) {
+            return estimate((String) value);
+        }
+        if (value instanceof Long) {
+            return OBJECT_OVERHEAD + 8;
+        }
+        if (value instanceof File) {
+            return OBJECT_OVERHEAD + REFERENCE_SIZE + estimate(((File) value).getPath());
+        }
+        if (value instanceof byte[]) {
+            return ARRAY_OVERHEAD + ((byte[]) value).length;
+        }
+        if (value instanceof CachingFileSnapshotter.FileInfo) {
+            return OBJECT_OVERHEAD + REFERENCE_SIZE + 16 + ARRAY_OVERHEAD + ((CachingFileSnapshotter.FileInfo) value).getHash().length;
+        }
+        if (value instanceof DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl) {
+            DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = (DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl) value;
+            long weight = OBJECT_OVERHEAD + 5 * REFERENCE_SIZE + 4 * ARRAY_OVERHEAD;
+            for (String path : snapshot.paths) {
+                weight += REFERENCE_SIZE + estimate(path);
+            }
+            return weight + snapshot.kinds.length + 4L * snapshot.hashOffsets.length + snapshot.hashes.length;
+        }
+        if (value.getClass() == Object.class) {
+            // A marker, such as the one for a missing value, which is shared by all entries
+            return 0;
+        }
+        return UNKNOWN_VALUE_WEIGHT;
+    }
+
+    private static long estimate(String value) {
+        return OBJECT_OVERHEAD + REFERENCE_SIZE + ARRAY_OVERHEAD + 2L * value.length();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.util.NumberUtil;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides how many bytes of heap each in-memory task artifact cache may use. A share of the maximum heap is divided between the caches.
+ *
+ * <p>Also tracks the time spent collecting garbage. While the heap is under pressure, the weight of new cache entries is multiplied by a growing factor,
+ * which lowers the effective maximum of every cache. The caches then evict their least recently used entries as new ones come in. The factor drops back
+ * once the pressure is gone.</p>
+ */
+class InMemoryCacheSizer {
+    /**
+     * The percentage of the maximum heap that the in-memory task artifact caches may use.
+     */
+    public final static String HEAP_SHARE_PROPERTY = "org.gradle.cache.inMemory.heapShare";
+
+    static final int DEFAULT_HEAP_SHARE = 10;
+    static final int GC_PRESSURE_THRESHOLD = 20;
+    static final long MIN_SAMPLE_INTERVAL = 1000;
+    static final long MIN_WEIGHT = 1024 * 1024;
+    static final int MAX_WEIGHT_FACTOR = 16;
+
+    // The percentage of the heap share given to each cache
+    private static final Map<String, Integer> CACHE_SHARES = new HashMap<String, Integer>();
+    private static final int DEFAULT_CACHE_SHARE = 5;
+
+    static {
+        CACHE_SHARES.put("fileHashes", 30);
+        CACHE_SHARES.put("fileSnapshots", 35);
+        CACHE_SHARES.put("taskArtifacts", 15);
+        CACHE_SHARES.put("compilationState", 10);
+        CACHE_SHARES.put("outputFileStates", 5);
+        CACHE_SHARES.put("taskDurations", 5);
+    }
+
+    private final long heapShare;
+    private final TimeProvider timeProvider;
+    private volatile long lastSampleTime = -1;
+    private volatile int weightFactor = 1;
+    private long lastCollectionTime;
+
+    InMemoryCacheSizer() {
+        this(Runtime.getRuntime().maxMemory(), heapShareFromSystemProperties(), new TrueTimeProvider());
+    }
+
+    InMemoryCacheSizer(long maxMemory, int heapSharePercentage, TimeProvider timeProvider) {
+        this.heapShare = maxMemory / 100 * heapSharePercentage;
+        this.timeProvider = timeProvider;
+    }
+
+    /**
+     * Returns the heap share set by the {@value #HEAP_SHARE_PROPERTY} system property, or the default when it is not set.
+     */
+    static int heapShareFromSystemProperties() {
+        String value = System.getProperty(HEAP_SHARE_PROPERTY);
+        if (value == null || value.trim().length() == 0) {
+            return DEFAULT_HEAP_SHARE;
+        }
+        int percentage;
+        try {
+            percentage = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            percentage = -1;
+        }
+        if (percentage < 1 || percentage > 100) {
+            throw new IllegalArgumentException(String.format("Invalid value '%s' for system property '%s'. Expected a percentage between 1 and 100.", value, HEAP_SHARE_PROPERTY));
+        }
+        return percentage;
+    }
+
+    /**
+     * Returns the number of caches that have their own share of the heap.
+     */
+    int getKnownCacheCount() {
+        return CACHE_SHARES.size();
+    }
+
+    /**
+     * Returns the maximum weight, in bytes of heap, of the cache with the given name, when the heap is not under pressure.
+     */
+    long getMaxWeight(String cacheName) {
+        Integer cacheShare = CACHE_SHARES.get(cacheName);
+        return Math.max(MIN_WEIGHT, heapShare / 100 * (cacheShare == null ? DEFAULT_CACHE_SHARE : cacheShare));
+    }
+
+    /**
+     * Returns the factor to multiply the estimated weight of a new cache entry with. It doubles each time at least {@value #GC_PRESSURE_THRESHOLD}% of
+     * the time since the previous sample was spent collecting garbage, up to {@value #MAX_WEIGHT_FACTOR}, and halves each time less was spent. Samples at
+     * most once every {@value #MIN_SAMPLE_INTERVAL} ms, and returns the previous factor in between.
+     */
+    int getWeightFactor() {
+        if (timeProvider.getCurrentTime() - lastSampleTime >= MIN_SAMPLE_INTERVAL) {
+            sample();
+        }
+        return weightFactor;
+    }
+
+    private synchronized void sample() {
+        long now = timeProvider.getCurrentTime();
+        if (lastSampleTime < 0) {
+            lastCollectionTime = getCollectionTime();
+            lastSampleTime = now;
+            return;
+        }
+        if (now - lastSampleTime < MIN_SAMPLE_INTERVAL) {
+            // Another thread took the sample
+            return;
+        }
+        long collectionTime = getCollectionTime();
+        boolean underPressure = NumberUtil.percentOf(Math.max(0, collectionTime - lastCollectionTime), now - lastSampleTime) >= GC_PRESSURE_THRESHOLD;
+        weightFactor = underPressure ? Math.min(MAX_WEIGHT_FACTOR, weightFactor * 2) : Math.max(1, weightFactor / 2);
+        lastCollectionTime = collectionTime;
+        lastSampleTime = now;
+    }
+
+    /**
+     * Approx. time spent in gc. See {@link GarbageCollectorMXBean}
+     */
+    long getCollectionTime() {
+        long garbageCollectionTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long time = gc.getCollectionTime();
+            if (time >= 0) {
+                garbageCollectionTime += time;
+            }
+        }
+        return garbageCollectionTime;
+    }
+}
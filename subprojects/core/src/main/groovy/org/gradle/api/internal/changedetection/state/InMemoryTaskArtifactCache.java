@@ -18,44 +18,45 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.CacheDecorator;
+import org.gradle.cache.internal.DefaultCacheAccess;
 import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.internal.util.NumberUtil;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 public class InMemoryTaskArtifactCache implements CacheDecorator {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
     private final static Object NULL = new Object();
 
-    private static final Map<String, Integer> CACHE_CAPS = new HashMap<String, Integer>();
+    private final Object lock = new Object();
+    private final InMemoryCacheSizer sizer;
+    private final InMemoryCacheEntryWeigher weigher;
+    private final Cache<String, Cache<Object, Object>> cache;
 
-    static {
-        //it's the simplest implementation, not very nice
-        //at very least, the max size should be provided at creation, by the creator of the cache
-        //however, max size is a bit awkward in general and we should look into other options,
-        //like using the Weighter and relate the cache size to the available heap, etc.
-        CACHE_CAPS.put("fileSnapshots", 10000);
-        CACHE_CAPS.put("taskArtifacts", 2000);
-        CACHE_CAPS.put("outputFileStates", 3000);
-        CACHE_CAPS.put("fileHashes", 140000);
-        CACHE_CAPS.put("compilationState", 1000);
+    private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+    private final Map<String, String> cacheNames = new HashMap<String, String>();
+    private final boolean concurrentReads;
 
-        //In general, the in-memory cache must be capped at some level, otherwise it is reduces performance in truly gigantic builds
+    public InMemoryTaskArtifactCache() {
+        this(new InMemoryCacheSizer());
     }
 
-    private final Object lock = new Object();
-    private final Cache<String, Cache<Object, Object>> cache = CacheBuilder.newBuilder()
-            .maximumSize(CACHE_CAPS.size() * 2) //X2 to factor in a child build (for example buildSrc)
-            .build();
-
-    private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+    InMemoryTaskArtifactCache(InMemoryCacheSizer sizer) {
+        this.sizer = sizer;
+        this.weigher = new InMemoryCacheEntryWeigher(sizer);
+        this.concurrentReads = "true".equalsIgnoreCase(System.getProperty(DefaultCacheAccess.CONCURRENT_READS_PROPERTY));
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(sizer.getKnownCacheCount() * 2) //X2 to factor in a child build (for example buildSrc)
+                .build();
+    }
 
-    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
+    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, final String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
         final Cache<Object, Object> data = loadData(cacheId, cacheName);
 
         return new MultiProcessSafePersistentIndexedCache<K, V>() {
@@ -77,11 +78,38 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
                 return out;
             }
 
+            public Map<K, V> getAll(Collection<? extends K> keys) {
+                Map<K, V> values = new HashMap<K, V>();
+                List<K> misses = new ArrayList<K>();
+                for (K key : keys) {
+                    Object value = data.getIfPresent(key);
+                    if (value == null) {
+                        misses.add(key);
+                    } else if (value != NULL) {
+                        values.put(key, (V) value);
+                    }
+                }
+                if (!misses.isEmpty()) {
+                    Map<K, V> loaded = original.getAll(misses);
+                    for (K key : misses) {
+                        V value = loaded.get(key);
+                        data.put(key, value == null ? NULL : value);
+                    }
+                    values.putAll(loaded);
+                }
+                return values;
+            }
+
             public void put(K key, V value) {
                 original.put(key, value);
                 data.put(key, value);
             }
 
+            public void putAll(Map<? extends K, ? extends V> entries) {
+                original.putAll(entries);
+                data.putAll(entries);
+            }
+
             public void remove(K key) {
                 data.put(key, NULL);
                 original.remove(key);
@@ -112,15 +140,41 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
         Cache<Object, Object> theData;
         synchronized (lock) {
             theData = this.cache.getIfPresent(cacheId);
-            if (theData != null) {
-                LOG.info("In-memory cache of {}: Size{{}}, {}", cacheId, theData.size() , theData.stats());
-            } else {
-                Integer maxSize = CACHE_CAPS.get(cacheName);
-                assert maxSize != null : "Unknown cache.";
-                theData = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+            if (theData == null) {
+                // Unless several readers may hold the cache lock at the same time, the cache is only used by the owner of the lock. Then a single
+                // segment is used, so that the least recently used entries of the whole cache are evicted first, rather than those of one segment.
+                theData = CacheBuilder.newBuilder()
+                        .concurrencyLevel(concurrentReads ? 4 : 1)
+                        .maximumWeight(sizer.getMaxWeight(cacheName))
+                        .weigher(weigher)
+                        .recordStats()
+                        .build();
                 this.cache.put(cacheId, theData);
+                cacheNames.put(cacheId, cacheName);
             }
         }
         return theData;
     }
+
+    /**
+     * Logs the size, hit rate and evictions of each in-memory cache. Called once at the end of each build.
+     */
+    public void logStats() {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        Map<String, Cache<Object, Object>> caches;
+        Map<String, String> names;
+        synchronized (lock) {
+            caches = new TreeMap<String, Cache<Object, Object>>(cache.asMap());
+            names = new HashMap<String, String>(cacheNames);
+        }
+        int weightFactor = sizer.getWeightFactor();
+        for (Map.Entry<String, Cache<Object, Object>> entry : caches.entrySet()) {
+            Cache<Object, Object> data = entry.getValue();
+            CacheStats stats = data.stats();
+            LOG.info("In-memory cache of {}: {} entries, at most {} bytes, hit rate {}%, {} evictions", entry.getKey(), data.size(), sizer.getMaxWeight(names.get(entry.getKey())) / weightFactor,
+                    NumberUtil.percentOf(stats.hitCount(), stats.requestCount()), stats.evictionCount());
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.base.Charsets;
 import org.gradle.api.file.FileCollection;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.id.IdGenerator;
@@ -27,6 +28,7 @@ import org.gradle.util.DiffUtil;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
+import java.security.MessageDigest;
 import java.util.*;
 
 /**
@@ -92,6 +94,7 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
     static class OutputFilesSnapshot implements FileCollectionSnapshot {
         final Map<String, Long> rootFileIds;
         final FileCollectionSnapshot filesSnapshot;
+        private byte[] hash;
 
         public OutputFilesSnapshot(Map<String, Long> rootFileIds, FileCollectionSnapshot filesSnapshot) {
             this.rootFileIds = rootFileIds;
@@ -106,6 +109,27 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
             return filesSnapshot.getSnapshot();
         }
 
+        public byte[] getHash() {
+            if (hash == null) {
+                MessageDigest digest = DefaultFileCollectionSnapshotter.createMessageDigest();
+                for (String path : new TreeSet<String>(rootFileIds.keySet())) {
+                    digest.update(path.getBytes(Charsets.UTF_8));
+                    Long id = rootFileIds.get(path);
+                    if (id == null) {
+                        digest.update((byte) 0);
+                    } else {
+                        digest.update((byte) 1);
+                        for (int i = 0; i < 8; i++) {
+                            digest.update((byte) (id >>> (i * 8)));
+                        }
+                    }
+                }
+                digest.update(filesSnapshot.getHash());
+                hash = digest.digest();
+            }
+            return hash;
+        }
+
         public Diff changesSince(final FileCollectionSnapshot oldSnapshot) {
             OutputFilesSnapshot other = (OutputFilesSnapshot) oldSnapshot;
             return new OutputFilesDiff(rootFileIds, other.rootFileIds, filesSnapshot.changesSince(other.filesSnapshot));
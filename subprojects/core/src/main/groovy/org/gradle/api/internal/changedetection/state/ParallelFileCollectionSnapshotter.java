@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link FileCollectionSnapshotter} that stats and hashes the files of large collections using the build operation worker pool.
+ *
+ * <p>Only the worker threads touch the file system. The fileHashes cache is consulted and updated in batches on the calling thread, which
+ * holds the cache lock. The resulting snapshot is the same as the one created by {@link DefaultFileCollectionSnapshotter}.</p>
+ */
+public class ParallelFileCollectionSnapshotter extends DefaultFileCollectionSnapshotter {
+    public final static String TOGGLE_PROPERTY = "org.gradle.snapshotting.parallel";
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MISSING = 0;
+    private static final int FILE = 1;
+    private static final int DIRECTORY = 2;
+
+    private final CachingFileSnapshotter snapshotter;
+    private final BuildOperationProcessor buildOperationProcessor;
+
+    public ParallelFileCollectionSnapshotter(CachingFileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, BuildOperationProcessor buildOperationProcessor) {
+        super(snapshotter, cacheAccess);
+        this.snapshotter = snapshotter;
+        this.buildOperationProcessor = buildOperationProcessor;
+    }
+
+    @Override
+    protected void snapshotFiles(Collection<File> files, Map<String, IncrementalFileSnapshot> snapshots) {
+        if (files.size() < BATCH_SIZE) {
+            super.snapshotFiles(files, snapshots);
+            return;
+        }
+
+        final File[] fileArray = files.toArray(new File[files.size()]);
+        final int[] types = new int[fileArray.length];
+        final long[] lengths = new long[fileArray.length];
+        final long[] timestamps = new long[fileArray.length];
+        final CachingFileSnapshotter.FileInfo[] infos = new CachingFileSnapshotter.FileInfo[fileArray.length];
+
+        // Stat all files
+        inBatches(fileArray.length, "stat", new IndexAction() {
+            public void execute(int index) {
+                File file = fileArray[index];
+                if (file.isFile()) {
+                    types[index] = FILE;
+                    lengths[index] = file.length();
+                    timestamps[index] = file.lastModified();
+                } else if (file.isDirectory()) {
+                    types[index] = DIRECTORY;
+                } else {
+                    types[index] = MISSING;
+                }
+            }
+        });
+
+        // Look up the cached hashes in one batch, and collect the files that need to be hashed
+        List<File> regularFiles = new ArrayList<File>();
+        for (int i = 0; i < fileArray.length; i++) {
+            if (types[i] == FILE) {
+                regularFiles.add(fileArray[i]);
+            }
+        }
+        Map<File, CachingFileSnapshotter.FileInfo> cached = snapshotter.getCached(regularFiles);
+        final List<Integer> staleFiles = new ArrayList<Integer>();
+        for (int i = 0; i < fileArray.length; i++) {
+            if (types[i] == FILE) {
+                CachingFileSnapshotter.FileInfo info = cached.get(fileArray[i]);
+                if (info != null && info.matches(lengths[i], timestamps[i])) {
+                    infos[i] = info;
+                } else {
+                    staleFiles.add(i);
+                }
+            }
+        }
+
+        // Hash the stale files and update the cache
+        if (!staleFiles.isEmpty()) {
+            inBatches(staleFiles.size(), "hash", new IndexAction() {
+                public void execute(int index) {
+                    int fileIndex = staleFiles.get(index);
+                    infos[fileIndex] = snapshotter.hash(fileArray[fileIndex], lengths[fileIndex], timestamps[fileIndex]);
+                }
+            });
+            Map<File, CachingFileSnapshotter.FileInfo> updated = new HashMap<File, CachingFileSnapshotter.FileInfo>();
+            for (Integer fileIndex : staleFiles) {
+                updated.put(fileArray[fileIndex], infos[fileIndex]);
+            }
+            snapshotter.cache(updated);
+        }
+
+        for (int i = 0; i < fileArray.length; i++) {
+            String path = fileArray[i].getAbsolutePath();
+            switch (types[i]) {
+                case FILE:
+                    snapshots.put(path, new FileHashSnapshot(infos[i].getHash()));
+                    break;
+                case DIRECTORY:
+                    snapshots.put(path, new DirSnapshot());
+                    break;
+                default:
+                    snapshots.put(path, new MissingFileSnapshot());
+            }
+        }
+    }
+
+    private void inBatches(int count, String description, final IndexAction action) {
+        BuildOperationQueue<Batch> queue = buildOperationProcessor.newQueue(new BuildOperationWorker<Batch>() {
+            public String getDisplayName() {
+                return "file snapshotter";
+            }
+
+            public void execute(Batch batch) {
+                for (int i = batch.start; i < batch.end; i++) {
+                    action.execute(i);
+                }
+            }
+        }, null);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            queue.add(new Batch(description, start, Math.min(start + BATCH_SIZE, count)));
+        }
+        queue.waitForCompletion();
+    }
+
+    private interface IndexAction {
+        void execute(int index);
+    }
+
+    private static class Batch implements BuildOperation {
+        private final String description;
+        private final int start;
+        private final int end;
+
+        private Batch(String description, int start, int end) {
+            this.description = description;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getDescription() {
+            return String.format("%s files %d to %d", description, start, end - 1);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Calculates the key under which the outputs of a task execution are cached. Two executions have the same key when they have the same task type,
+ * the same task implementation, the same input properties, the same input files and the same output locations.
+ */
+public class TaskCacheKeyCalculator {
+    private final InputPropertiesSerializer inputPropertiesSerializer;
+
+    public TaskCacheKeyCalculator(ClassLoader classLoader) {
+        this.inputPropertiesSerializer = new InputPropertiesSerializer(classLoader);
+    }
+
+    /**
+     * Calculates the key of the given execution.
+     *
+     * @param implementationHash The hash of the classes that implement the task and its actions.
+     * @param inputFilesHash The hash of the input files of the execution.
+     */
+    public HashValue calculate(TaskExecution execution, HashValue implementationHash, byte[] inputFilesHash) {
+        try {
+            MessageDigest digest = DefaultFileCollectionSnapshotter.createMessageDigest();
+            digest.update(execution.getTaskClass().getBytes("utf-8"));
+            digest.update((byte) 0);
+            digest.update(implementationHash.asByteArray());
+
+            // Serialize the properties in a stable order
+            ByteArrayOutputStream properties = new ByteArrayOutputStream();
+            KryoBackedEncoder encoder = new KryoBackedEncoder(properties);
+            Map<String, Object> inputProperties = execution.getInputProperties();
+            inputPropertiesSerializer.write(encoder, inputProperties == null ? new TreeMap<String, Object>() : new TreeMap<String, Object>(inputProperties));
+            encoder.flush();
+            digest.update(properties.toByteArray());
+
+            digest.update(inputFilesHash);
+
+            for (String outputFile : new TreeSet<String>(execution.getOutputFiles())) {
+                digest.update(outputFile.getBytes("utf-8"));
+                digest.update((byte) 0);
+            }
+            return new HashValue(digest.digest());
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
@@ -63,4 +63,18 @@ public abstract class TaskExecution {
     public abstract FileCollectionSnapshot getInputFilesSnapshot();
 
     public abstract void setInputFilesSnapshot(FileCollectionSnapshot inputFilesSnapshot);
+
+    /**
+     * Returns the hash of the output files snapshot. This is available without loading the snapshot itself.
+     *
+     * @return May return null.
+     */
+    public abstract byte[] getOutputFilesHash();
+
+    /**
+     * Returns the hash of the input files snapshot. This is available without loading the snapshot itself.
+     *
+     * @return May return null.
+     */
+    public abstract byte[] getInputFilesHash();
 }
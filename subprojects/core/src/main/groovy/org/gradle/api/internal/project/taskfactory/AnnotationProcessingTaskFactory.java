@@ -205,13 +205,20 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
                 && method.getParameterTypes().length == 0 && !Modifier.isStatic(method.getModifiers());
     }
 
-    private static class StandardTaskAction implements Action<Task> {
+    private static class StandardTaskAction implements ContextAwareTaskAction {
         private final Method method;
 
         public StandardTaskAction(Method method) {
             this.method = method;
         }
 
+        public void contextualise(TaskExecutionContext context) {
+        }
+
+        public Class<?> getActionClass() {
+            return method.getDeclaringClass();
+        }
+
         public void execute(Task task) {
             ClassLoader original = Thread.currentThread().getContextClassLoader();
             Thread.currentThread().setContextClassLoader(method.getDeclaringClass().getClassLoader());
@@ -227,7 +234,7 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
         }
     }
 
-    public static class IncrementalTaskAction extends StandardTaskAction implements ContextAwareTaskAction {
+    public static class IncrementalTaskAction extends StandardTaskAction {
 
         private TaskArtifactState taskArtifactState;
 
@@ -235,6 +242,7 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
             super(method);
         }
 
+        @Override
         public void contextualise(TaskExecutionContext context) {
             this.taskArtifactState = context == null ? null : context.getTaskArtifactState();
         }
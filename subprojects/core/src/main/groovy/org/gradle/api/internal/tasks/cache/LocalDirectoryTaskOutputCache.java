@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.FileLockManager;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * A {@link TaskOutputCache} that stores the outputs of each task execution as a zip file in a cache directory under the Gradle user home.
+ *
+ * <p>Each output file or directory is stored under its index in the sorted list of outputs, so the outputs can be restored to the same
+ * locations. An entry is written to a temporary file and then renamed, so concurrent builds never see a partially written entry. An entry is
+ * unpacked to a temporary directory before it replaces the outputs, so a broken entry leaves the outputs untouched. The last
+ * modified time of an entry is updated each time it is used, and the least recently used entries are removed at the end of the build when
+ * the cache grows over its maximum size.</p>
+ */
+public class LocalDirectoryTaskOutputCache implements TaskOutputCache, Stoppable {
+    public final static String MAX_SIZE_PROPERTY = "org.gradle.taskOutputCache.maxSize";
+    public final static int DEFAULT_MAX_SIZE_MB = 1024;
+
+    private static final Logger LOGGER = Logging.getLogger(LocalDirectoryTaskOutputCache.class);
+    private static final String ENTRY_SUFFIX = ".zip";
+
+    private final CacheRepository cacheRepository;
+    private final long maxSize;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger stores = new AtomicInteger();
+    private PersistentCache cache;
+
+    public LocalDirectoryTaskOutputCache(CacheRepository cacheRepository, long maxSize) {
+        this.cacheRepository = cacheRepository;
+        this.maxSize = maxSize;
+    }
+
+    public boolean load(HashValue key, Collection<File> outputs) {
+        File entry = entryFile(key);
+        if (!entry.isFile()) {
+            misses.incrementAndGet();
+            return false;
+        }
+        List<File> roots = sorted(outputs);
+        File stagingDir = null;
+        try {
+            // Unpack next to the entries first, so that a broken entry leaves the current outputs untouched
+            stagingDir = createStagingDir(entry.getParentFile());
+            List<File> stagedRoots = new ArrayList<File>(roots.size());
+            for (int i = 0; i < roots.size(); i++) {
+                stagedRoots.add(new File(stagingDir, String.valueOf(i)));
+            }
+            unpack(entry, stagedRoots);
+            for (int i = 0; i < roots.size(); i++) {
+                replace(roots.get(i), stagedRoots.get(i));
+            }
+        } catch (IOException e) {
+            // Treat a broken entry as a miss, so that the task is executed and a new entry stored
+            LOGGER.warn("Could not load cached task outputs from {}.", entry, e);
+            GFileUtils.deleteQuietly(entry);
+            misses.incrementAndGet();
+            return false;
+        } finally {
+            if (stagingDir != null) {
+                GFileUtils.deleteQuietly(stagingDir);
+            }
+        }
+        entry.setLastModified(System.currentTimeMillis());
+        hits.incrementAndGet();
+        return true;
+    }
+
+    public void store(HashValue key, Collection<File> outputs) {
+        File entry = entryFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("entry-", ".tmp", entry.getParentFile());
+            pack(sorted(outputs), tempFile);
+            if (!tempFile.renameTo(entry) && !entry.isFile()) {
+                throw new IOException(String.format("Could not rename %s to %s.", tempFile, entry));
+            }
+            stores.incrementAndGet();
+        } catch (IOException e) {
+            // The outputs can always be produced again, so don't fail the build
+            LOGGER.warn("Could not store task outputs in {}.", entry, e);
+        } finally {
+            if (tempFile != null) {
+                GFileUtils.deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    public void stop() {
+        PersistentCache cache;
+        synchronized (this) {
+            cache = this.cache;
+            this.cache = null;
+        }
+        if (cache == null) {
+            return;
+        }
+        try {
+            evict(cache.getBaseDir());
+            LOGGER.info("Task output cache: {} hits, {} misses, {} stored.", hits.get(), misses.get(), stores.get());
+        } finally {
+            cache.close();
+        }
+    }
+
+    private void evict(File cacheDir) {
+        File[] entries = cacheDir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(ENTRY_SUFFIX);
+            }
+        });
+        if (entries == null) {
+            return;
+        }
+        long totalSize = 0;
+        final Map<File, Long> lastModified = new HashMap<File, Long>();
+        for (File entry : entries) {
+            totalSize += entry.length();
+            lastModified.put(entry, entry.lastModified());
+        }
+        if (totalSize <= maxSize) {
+            return;
+        }
+        Arrays.sort(entries, new Comparator<File>() {
+            public int compare(File o1, File o2) {
+                return lastModified.get(o1).compareTo(lastModified.get(o2));
+            }
+        });
+        int removed = 0;
+        for (int i = 0; i < entries.length && totalSize > maxSize; i++) {
+            long length = entries[i].length();
+            if (entries[i].delete()) {
+                totalSize -= length;
+                removed++;
+            }
+        }
+        LOGGER.info("Removed {} least recently used entries from the task output cache.", removed);
+    }
+
+    private File entryFile(HashValue key) {
+        return new File(getCacheDir(), key.asCompactString() + ENTRY_SUFFIX);
+    }
+
+    private synchronized File getCacheDir() {
+        if (cache == null) {
+            cache = cacheRepository
+                    .cache("taskOutputs")
+                    .withDisplayName("task output cache")
+                    .withLockOptions(mode(FileLockManager.LockMode.None)) // Entries are written atomically, so no locking is required
+                    .open();
+        }
+        return cache.getBaseDir();
+    }
+
+    private static List<File> sorted(Collection<File> outputs) {
+        List<File> roots = new ArrayList<File>(outputs);
+        Collections.sort(roots, new Comparator<File>() {
+            public int compare(File o1, File o2) {
+                return o1.getAbsolutePath().compareTo(o2.getAbsolutePath());
+            }
+        });
+        return roots;
+    }
+
+    private static File createStagingDir(File parentDir) throws IOException {
+        File stagingDir = File.createTempFile("unpack-", ".tmp", parentDir);
+        if (!stagingDir.delete() || !stagingDir.mkdir()) {
+            throw new IOException(String.format("Could not create directory %s.", stagingDir));
+        }
+        return stagingDir;
+    }
+
+    /**
+     * Replaces the given output file or directory with the unpacked copy. The move falls back to copying when the output is on another file system.
+     */
+    private static void replace(File root, File stagedRoot) {
+        if (root.isDirectory()) {
+            GFileUtils.deleteDirectory(root);
+        } else {
+            GFileUtils.deleteQuietly(root);
+        }
+        if (stagedRoot.isDirectory()) {
+            GFileUtils.moveDirectory(stagedRoot, root);
+        } else if (stagedRoot.isFile()) {
+            GFileUtils.moveFile(stagedRoot, root);
+        }
+    }
+
+    private static void pack(List<File> roots, File zipFile) throws IOException {
+        ZipOutputStream zipStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile)));
+        try {
+            for (int i = 0; i < roots.size(); i++) {
+                File root = roots.get(i);
+                if (root.isDirectory()) {
+                    packDirectory(root, String.valueOf(i) + "/", zipStream);
+                } else if (root.isFile()) {
+                    packFile(root, String.valueOf(i), zipStream);
+                }
+            }
+        } finally {
+            zipStream.close();
+        }
+    }
+
+    private static void packDirectory(File dir, String path, ZipOutputStream zipStream) throws IOException {
+        zipStream.putNextEntry(new ZipEntry(path));
+        zipStream.closeEntry();
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException(String.format("Could not list contents of directory %s.", dir));
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                packDirectory(child, path + child.getName() + "/", zipStream);
+            } else {
+                packFile(child, path + child.getName(), zipStream);
+            }
+        }
+    }
+
+    private static void packFile(File file, String path, ZipOutputStream zipStream) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(path);
+        zipEntry.setTime(file.lastModified());
+        zipStream.putNextEntry(zipEntry);
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            IOUtils.copy(inputStream, zipStream);
+        } finally {
+            inputStream.close();
+        }
+        zipStream.closeEntry();
+    }
+
+    private static void unpack(File zipFile, List<File> roots) throws IOException {
+        ZipInputStream zipStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFile)));
+        try {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipStream.getNextEntry()) != null) {
+                String name = zipEntry.getName();
+                int separator = name.indexOf('/');
+                File root = roots.get(Integer.parseInt(separator < 0 ? name : name.substring(0, separator)));
+                File target = separator < 0 ? root : new File(root, name.substring(separator + 1));
+                if (zipEntry.isDirectory()) {
+                    GFileUtils.mkdirs(target);
+                    continue;
+                }
+                GFileUtils.parentMkdirs(target);
+                OutputStream outputStream = new FileOutputStream(target);
+                try {
+                    IOUtils.copy(zipStream, outputStream);
+                } finally {
+                    outputStream.close();
+                }
+                target.setLastModified(zipEntry.getTime());
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(String.format("Could not unpack %s.", zipFile), e);
+        } finally {
+            zipStream.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.internal.hash.HashValue;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * Stores the outputs of task executions, keyed by a hash of the task inputs.
+ */
+public interface TaskOutputCache {
+    /**
+     * Replaces the given output files and directories with the cached outputs stored under the given key, if present.
+     *
+     * @return true if the outputs were restored from the cache, false if there are no cached outputs for the given key.
+     */
+    boolean load(HashValue key, Collection<File> outputs);
+
+    /**
+     * Stores the given output files and directories under the given key.
+     */
+    void store(HashValue key, Collection<File> outputs);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.TaskArtifactState;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.internal.hash.HashValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * A {@link TaskExecuter} which restores the outputs of out-of-date tasks from a {@link TaskOutputCache}, rather than executing the task
+ * actions, and stores the outputs of executed tasks in the cache.
+ */
+public class SkipCachedTaskExecuter implements TaskExecuter {
+    public final static String TOGGLE_PROPERTY = "org.gradle.taskOutputCache";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SkipCachedTaskExecuter.class);
+    private final TaskOutputCache cache;
+    private final TaskExecuter executer;
+
+    public SkipCachedTaskExecuter(TaskOutputCache cache, TaskExecuter executer) {
+        this.cache = cache;
+        this.executer = executer;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        TaskArtifactState taskArtifactState = context.getTaskArtifactState();
+        HashValue cacheKey = taskArtifactState == null ? null : taskArtifactState.calculateCacheKey();
+        if (cacheKey == null) {
+            executer.execute(task, state, context);
+            return;
+        }
+
+        Set<File> outputs = task.getOutputs().getFiles().getFiles();
+        if (cache.load(cacheKey, outputs)) {
+            LOGGER.info("Skipping {} as its outputs were loaded from the task output cache (key {}).", task, cacheKey.asCompactString());
+            state.setDidWork(true);
+            state.skipped("FROM-CACHE");
+            return;
+        }
+
+        executer.execute(task, state, context);
+        if (state.getFailure() == null) {
+            cache.store(cacheKey, outputs);
+        }
+    }
+}
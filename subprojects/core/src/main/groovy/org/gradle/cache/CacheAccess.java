@@ -37,6 +37,15 @@ public interface CacheAccess {
      */
     void useCache(String operationDisplayName, Runnable action);
 
+    /**
+     * Performs some work against the cache that only reads from it. Acquires the same cross-process locks as {@link #useCache(String, org.gradle.internal.Factory)},
+     * but may allow other readers in this process to run at the same time. Implementations that do not support concurrent readers treat this the same as
+     * {@link #useCache(String, org.gradle.internal.Factory)}. The action must not write to the cache.
+     *
+     * <p>This method is re-entrant, so that an action can call back into this method.</p>
+     */
+    <T> T readCache(String operationDisplayName, Factory<? extends T> action);
+
     /**
      * Performs some long running operation within an action invoked by {@link #useCache(String, org.gradle.internal.Factory)}. Releases all
      * locks while the operation is running, and reacquires the locks at the end of the long running operation.
@@ -17,6 +17,9 @@ package org.gradle.cache;
 
 import org.gradle.api.Nullable;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * A persistent store of objects of type V indexed by a key of type K.
  */
@@ -29,11 +32,23 @@ public interface PersistentIndexedCache<K, V> {
     @Nullable
     V get(K key);
 
+    /**
+     * Fetches the values of several keys from this cache in a single batch. A shared or exclusive lock is held while fetching the values, depending on implementation.
+     *
+     * @return The values, containing an entry for each key that has a value in this cache.
+     */
+    Map<K, V> getAll(Collection<? extends K> keys);
+
     /**
      * Puts/replaces the value of a key in this cache. A shared lock is held while updating the value.
      */
     void put(K key, V value);
 
+    /**
+     * Puts/replaces the values of several keys in this cache in a single batch. A shared lock is held while updating the values.
+     */
+    void putAll(Map<? extends K, ? extends V> entries);
+
     /**
      * Removes a key-value mapping from this cache. A shared lock is held while updating the value.
      */
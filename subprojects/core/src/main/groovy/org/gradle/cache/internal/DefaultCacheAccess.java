@@ -16,22 +16,29 @@
 package org.gradle.cache.internal;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.Nullable;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheOpenException;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStore;
+import org.gradle.cache.internal.btree.FileBackedBlockStore;
+import org.gradle.cache.internal.btree.MappedFileBlockStore;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -42,6 +49,20 @@ import static org.gradle.cache.internal.FileLockManager.LockMode.Shared;
 @ThreadSafe
 public class DefaultCacheAccess implements CacheCoordinator {
 
+    public final static String MAPPED_CACHE_PROPERTY = "org.gradle.cache.mapped";
+
+    /**
+     * When set to true, actions passed to {@link #readCache(String, Factory)} may run at the same time as each other, rather than one at a time.
+     * Actions passed to {@link #useCache(String, Factory)} still run exclusively.
+     */
+    public final static String CONCURRENT_READS_PROPERTY = "org.gradle.cache.concurrentReads";
+
+    /**
+     * When set to true, changes to the indexed caches are written to disk by a background thread. The file lock is marked as being written while the thread
+     * writes the changes, and all changes are written before the file lock is released.
+     */
+    public final static String WRITE_BEHIND_PROPERTY = "org.gradle.cache.writeBehind";
+
     private final static Logger LOG = Logging.getLogger(DefaultCacheAccess.class);
 
     private final String cacheDisplayName;
@@ -49,25 +70,33 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final File baseDir;
     private final FileLockManager lockManager;
     private final CacheInitializationAction initializationAction;
+    private final ExecutorFactory executorFactory;
     private final FileAccess fileAccess = new UnitOfWorkFileAccess();
+    private final boolean concurrentReads;
     private final Set<MultiProcessSafePersistentIndexedCache> caches = new HashSet<MultiProcessSafePersistentIndexedCache>();
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private Thread owner;
+    private int readers;
+    private int waitingWriters;
     private LockOptions lockOptions;
-    private FileLock fileLock;
+    // Also read by background writes of dirty cache blocks, while holding the file access monitor
+    private volatile FileLock fileLock;
     private FileLock.State stateAtOpen;
     private boolean contended;
     private final CacheAccessOperationsStack operations;
     private int cacheClosedCount;
+    private StoppableExecutor writeBehindExecutor;
 
-    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction) {
+    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, ExecutorFactory executorFactory) {
         this.cacheDisplayName = cacheDisplayName;
         this.lockTarget = lockTarget;
         this.baseDir = baseDir;
         this.lockManager = lockManager;
         this.initializationAction = initializationAction;
+        this.executorFactory = executorFactory;
         this.operations = new CacheAccessOperationsStack();
+        this.concurrentReads = "true".equalsIgnoreCase(System.getProperty(CONCURRENT_READS_PROPERTY));
     }
 
     public void open(LockOptions lockOptions) {
@@ -139,7 +168,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                     cache.onEndWork(state);
                 }
             } finally {
-                fileLock.close();
+                // Background writes of dirty cache blocks must not use the lock once it is released
+                synchronized (fileAccess) {
+                    try {
+                        fileLock.close();
+                    } finally {
+                        fileLock = null;
+                    }
+                }
             }
         } finally {
             fileLock = null;
@@ -165,6 +201,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
                 LOG.debug("Cache {} was closed {} times.", cacheDisplayName, cacheClosedCount);
             }
         } finally {
+            if (writeBehindExecutor != null) {
+                writeBehindExecutor.stop();
+                writeBehindExecutor = null;
+            }
             lockOptions = null;
             owner = null;
             lock.unlock();
@@ -206,16 +246,99 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
-    private void takeOwnership(String operationDisplayName) {
+    /**
+     * Runs the given action with shared access to the cache. Readers hold the same cross-process lock as {@link #useCache(String, Factory)}, but
+     * may run concurrently with each other. A reader waits for the current owner to finish, and new readers wait while a writer is waiting.
+     */
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        if (!concurrentReads || isOwner()) {
+            return useCache(operationDisplayName, action);
+        }
+        if (lockOptions != null && lockOptions.getMode() == FileLockManager.LockMode.Shared) {
+            throw new UnsupportedOperationException("Not implemented yet.");
+        }
+
+        lock.lock();
+        try {
+            takeReadAccess(operationDisplayName);
+            try {
+                onStartWork();
+            } catch (RuntimeException e) {
+                releaseReadAccess();
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return action.create();
+        } finally {
+            lock.lock();
+            try {
+                releaseReadAccess();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean isOwner() {
         lock.lock();
         try {
-            while (owner != null && owner != Thread.currentThread()) {
+            return owner == Thread.currentThread();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isReader() {
+        return readers > 0 && owner != Thread.currentThread() && operations.isInCacheAction();
+    }
+
+    private void takeReadAccess(String operationDisplayName) {
+        // A thread that is already reading does not wait, so that readers can call back into readCache()
+        if (!isReader()) {
+            while (owner != null || waitingWriters > 0) {
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
             }
+        }
+        readers++;
+        operations.pushCacheAction(operationDisplayName);
+    }
+
+    private void releaseReadAccess() {
+        operations.popCacheAction();
+        readers--;
+        if (readers == 0) {
+            if (contended && fileLock != null) {
+                closeFileLock();
+            }
+            condition.signalAll();
+        }
+    }
+
+    private void takeOwnership(String operationDisplayName) {
+        lock.lock();
+        try {
+            if (isReader()) {
+                throw new IllegalStateException(String.format("Cannot write to %s while reading from it.", cacheDisplayName));
+            }
+            waitingWriters++;
+            try {
+                while ((owner != null && owner != Thread.currentThread()) || (owner == null && readers > 0)) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            } finally {
+                waitingWriters--;
+            }
             owner = Thread.currentThread();
             operations.pushCacheAction(operationDisplayName);
         } finally {
@@ -296,7 +419,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private void restoreOwner() {
         lock.lock();
         try {
-            while (owner != null) {
+            while (owner != null || readers > 0) {
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
@@ -339,7 +462,45 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+        BlockStore backingStore = "true".equalsIgnoreCase(System.getProperty(MAPPED_CACHE_PROPERTY))
+                ? new MappedFileBlockStore(cacheFile)
+                : new FileBackedBlockStore(cacheFile);
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, backingStore, keySerializer, valueSerializer, (short) 512, 512, getWriteBehindExecutor());
+    }
+
+    @Nullable
+    private Executor getWriteBehindExecutor() {
+        if (!"true".equalsIgnoreCase(System.getProperty(WRITE_BEHIND_PROPERTY))) {
+            return null;
+        }
+        final StoppableExecutor executor;
+        lock.lock();
+        try {
+            if (writeBehindExecutor == null) {
+                writeBehindExecutor = executorFactory.create(String.format("Write %s", cacheDisplayName));
+            }
+            executor = writeBehindExecutor;
+        } finally {
+            lock.unlock();
+        }
+        return new Executor() {
+            public void execute(final Runnable write) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        // Serialize with the other accesses to the cache files, and keep the lock marked dirty until the blocks are written,
+                        // so that another process does not trust a partially written file
+                        synchronized (fileAccess) {
+                            FileLock currentLock = fileLock;
+                            if (currentLock == null) {
+                                // The lock was released, which writes all dirty blocks first
+                                return;
+                            }
+                            currentLock.writeFile(write);
+                        }
+                    }
+                });
+            }
+        };
     }
 
     private boolean onStartWork() {
@@ -377,7 +538,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private FileLock getLock() {
         lock.lock();
         try {
-            if (Thread.currentThread() != owner) {
+            if (Thread.currentThread() != owner && !isReader()) {
                 throw new IllegalStateException(String.format("The %s has not been locked for this thread. File lock: %s, owner: %s", cacheDisplayName, fileLock != null, owner));
             }
         } finally {
@@ -392,16 +553,26 @@ public class DefaultCacheAccess implements CacheCoordinator {
             return cacheDisplayName;
         }
 
+        // Readers may share the file lock, so access to the files is serialized here
         public <T> T readFile(Factory<? extends T> action) throws LockTimeoutException {
-            return getLock().readFile(action);
+            FileLock fileLock = getLock();
+            synchronized (this) {
+                return fileLock.readFile(action);
+            }
         }
 
         public void updateFile(Runnable action) throws LockTimeoutException {
-            getLock().updateFile(action);
+            FileLock fileLock = getLock();
+            synchronized (this) {
+                fileLock.updateFile(action);
+            }
         }
 
         public void writeFile(Runnable action) throws LockTimeoutException {
-            getLock().writeFile(action);
+            FileLock fileLock = getLock();
+            synchronized (this) {
+                fileLock.writeFile(action);
+            }
         }
     }
 
@@ -415,7 +586,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         //the lock may have been closed
                         return;
                     }
-                    if (owner != null) {
+                    if (owner != null || readers > 0) {
                         contended = true;
                         return;
                     }
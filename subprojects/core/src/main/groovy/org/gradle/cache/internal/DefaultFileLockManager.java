@@ -45,22 +45,38 @@ public class DefaultFileLockManager implements FileLockManager {
     private final int lockTimeoutMs;
     private final IdGenerator<Long> generator;
     private final FileLockContentionHandler fileLockContentionHandler;
+    private final FileLockWaitStatistics lockWaitStatistics;
     private final long shortTimeoutMs = 10000;
+    // How long to wait for the owner of a lock to notify that it released the lock, before polling the lock again.
+    // Owners that do not send this notification, such as older Gradle versions, are polled at this interval.
+    private static final long RELEASE_POLL_INTERVAL_MS = 200;
+    // The information region is only held while it is written or read, so it is polled with a short, growing interval
+    private static final long INFORMATION_REGION_MIN_POLL_INTERVAL_MS = 5;
 
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, FileLockContentionHandler fileLockContentionHandler) {
         this(metaDataProvider, DEFAULT_LOCK_TIMEOUT, fileLockContentionHandler);
     }
 
+    public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, FileLockContentionHandler fileLockContentionHandler, FileLockWaitStatistics lockWaitStatistics) {
+        this(metaDataProvider, DEFAULT_LOCK_TIMEOUT, fileLockContentionHandler, new RandomLongIdGenerator(), lockWaitStatistics);
+    }
+
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler) {
         this(metaDataProvider, lockTimeoutMs, fileLockContentionHandler, new RandomLongIdGenerator());
     }
 
     DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler,
                            IdGenerator<Long> generator) {
+        this(metaDataProvider, lockTimeoutMs, fileLockContentionHandler, generator, new FileLockWaitStatistics());
+    }
+
+    DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler,
+                           IdGenerator<Long> generator, FileLockWaitStatistics lockWaitStatistics) {
         this.metaDataProvider = metaDataProvider;
         this.lockTimeoutMs = lockTimeoutMs;
         this.fileLockContentionHandler = fileLockContentionHandler;
         this.generator = generator;
+        this.lockWaitStatistics = lockWaitStatistics;
     }
 
     public FileLock lock(File target, LockOptions options, String targetDisplayName) throws LockTimeoutException {
@@ -100,6 +116,7 @@ public class DefaultFileLockManager implements FileLockManager {
         private LockState lockState;
         private int port;
         private final long lockId;
+        private boolean contended;
 
         public DefaultFileLock(File target, LockOptions options, String displayName, String operationDisplayName, int port) throws Throwable {
             this.port = port;
@@ -240,6 +257,12 @@ public class DefaultFileLockManager implements FileLockManager {
                     lockedFiles.remove(target);
                 }
             });
+            stoppable.add(new Stoppable() {
+                public void stop() {
+                    // Let the processes waiting for the lock know that they can acquire it
+                    fileLockContentionHandler.released(lockId);
+                }
+            });
             stoppable.stop();
         }
 
@@ -249,7 +272,8 @@ public class DefaultFileLockManager implements FileLockManager {
 
         private LockState lock(FileLockManager.LockMode lockMode) throws Throwable {
             LOGGER.debug("Waiting to acquire {} lock on {}.", lockMode.toString().toLowerCase(), displayName);
-            long waitUntil = System.currentTimeMillis() + lockTimeoutMs;
+            long startedWaiting = System.currentTimeMillis();
+            long waitUntil = startedWaiting + lockTimeoutMs;
 
             // Lock the state region, with the requested mode
             java.nio.channels.FileLock stateRegionLock = lockStateRegion(lockMode, waitUntil);
@@ -282,7 +306,12 @@ public class DefaultFileLockManager implements FileLockManager {
                     // Just read the state region
                     lockState = lockFileAccess.readLockState();
                 }
-                LOGGER.debug("Lock acquired.");
+                long waitedMs = System.currentTimeMillis() - startedWaiting;
+                if (contended) {
+                    LOGGER.debug("Waited {} ms for {} lock on {} held by another Gradle process.", waitedMs, lockMode.toString().toLowerCase(), displayName);
+                }
+                LOGGER.debug("Lock acquired after {} ms.", waitedMs);
+                lockWaitStatistics.lockAcquired(displayName, waitedMs);
                 lock = stateRegionLock;
                 return lockState;
             } catch (Throwable t) {
@@ -313,28 +342,35 @@ public class DefaultFileLockManager implements FileLockManager {
                 if (fileLock != null) {
                     return fileLock;
                 }
+                contended = true;
                 if (port != -1) { //we don't like the assumption about the port very much
                     LockInfo lockInfo = readInformationRegion(System.currentTimeMillis()); //no need for timeout here, as we're already looping with timeout
                     if (lockInfo.port != -1) {
-                        LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {}", lockInfo.pid, lockInfo.operation, lockInfo.port);
-                        fileLockContentionHandler.pingOwner(lockInfo.port, lockInfo.lockId, displayName);
+                        LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {} and wait for it to release the lock", lockInfo.pid, lockInfo.operation, lockInfo.port);
+                        long waitMs = Math.max(1, Math.min(RELEASE_POLL_INTERVAL_MS, waitUntil - System.currentTimeMillis()));
+                        if (fileLockContentionHandler.waitForRelease(lockInfo.port, lockInfo.lockId, displayName, waitMs)) {
+                            LOGGER.debug("The owner of the file lock notified that it released the lock.");
+                        }
+                        continue;
                     } else {
                         LOGGER.debug("The file lock is held by a different Gradle process. I was unable to read on which port the owner listens for lock access requests.");
                     }
                 }
                 //TODO SF we should inform on the progress/status bar that we're waiting
-                Thread.sleep(200L);
+                Thread.sleep(RELEASE_POLL_INTERVAL_MS);
             } while (System.currentTimeMillis() < waitUntil);
             return null;
         }
 
         private java.nio.channels.FileLock lockInformationRegion(LockMode lockMode, long waitUntil) throws IOException, InterruptedException {
+            long pollIntervalMs = INFORMATION_REGION_MIN_POLL_INTERVAL_MS;
             do {
                 java.nio.channels.FileLock fileLock = lockFileAccess.tryLockInfo(lockMode == LockMode.Shared);
                 if (fileLock != null) {
                     return fileLock;
                 }
-                Thread.sleep(200L);
+                Thread.sleep(pollIntervalMs);
+                pollIntervalMs = Math.min(pollIntervalMs * 2, RELEASE_POLL_INTERVAL_MS);
             }
             while (System.currentTimeMillis() < waitUntil);
             return null;
@@ -19,10 +19,15 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
     private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    // May be created by any of several concurrent readers, see DefaultCacheAccess.readCache()
+    private volatile BTreePersistentIndexedCache<K, V> cache;
 
     public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
@@ -42,6 +47,19 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         }
     }
 
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        final PersistentIndexedCache<K, V> cache = getCache();
+        try {
+            return fileAccess.readFile(new Factory<Map<K, V>>() {
+                public Map<K, V> create() {
+                    return cache.getAll(keys);
+                }
+            });
+        } catch (FileIntegrityViolationException e) {
+            return Collections.emptyMap();
+        }
+    }
+
     public void put(final K key, final V value) {
         final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
@@ -53,6 +71,17 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         });
     }
 
+    public void putAll(final Map<? extends K, ? extends V> entries) {
+        final PersistentIndexedCache<K, V> cache = getCache();
+        // Use writeFile because the cache can internally recover from datafile
+        // corruption, so we don't care at this level if it's corrupt
+        fileAccess.writeFile(new Runnable() {
+            public void run() {
+                cache.putAll(entries);
+            }
+        });
+    }
+
     public void remove(final K key) {
         final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
@@ -90,7 +119,9 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
             // corruption, so we don't care at this level if it's corrupt
             fileAccess.writeFile(new Runnable() {
                 public void run() {
-                    cache = factory.create();
+                    if (cache == null) {
+                        cache = factory.create();
+                    }
                 }
             });
         }
@@ -22,12 +22,16 @@ import java.io.*;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 public class FileLockCommunicator {
     private static final byte PROTOCOL_VERSION = 1;
+    // Messages carry a type after the lock id. Older versions only read the version and the lock id, and send no type.
+    private static final byte LOCK_REQUEST = 0;
+    private static final byte LOCK_RELEASED = 1;
     private final DatagramSocket socket;
     private final InetAddressFactory addressFactory;
     private boolean stopped;
@@ -43,7 +47,7 @@ public class FileLockCommunicator {
 
     public void pingOwner(int ownerPort, long lockId, String displayName) {
         try {
-            byte[] bytesToSend = encode(lockId);
+            byte[] bytesToSend = encode(lockId, LOCK_REQUEST);
             // Ping the owner via all available local addresses
             for (InetAddress address : addressFactory.findLocalAddresses()) {
                 socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, address, ownerPort));
@@ -53,12 +57,28 @@ public class FileLockCommunicator {
         }
     }
 
+    /**
+     * Notifies a process that pinged the owner of a lock that the lock has been released.
+     */
+    public void notifyReleased(SocketAddress waiter, long lockId) {
+        try {
+            byte[] bytesToSend = encode(lockId, LOCK_RELEASED);
+            socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, waiter));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to notify %s that the lock with id %s was released", waiter, lockId), e);
+        }
+    }
+
     public long receive() throws GracefullyStoppedException {
+        return receiveMessage().getLockId();
+    }
+
+    public Message receiveMessage() throws GracefullyStoppedException {
         try {
-            byte[] bytes = new byte[9];
+            byte[] bytes = new byte[10];
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
-            return decode(bytes);
+            return decode(bytes, packet.getLength(), packet.getSocketAddress());
         } catch (IOException e) {
             if (!stopped) {
                 throw new RuntimeException(e);
@@ -72,25 +92,55 @@ public class FileLockCommunicator {
         socket.close();
     }
 
-    private static byte[] encode(long lockId) throws IOException {
+    private static byte[] encode(long lockId, byte type) throws IOException {
         ByteArrayOutputStream packet = new ByteArrayOutputStream();
         DataOutputStream dataOutput = new DataOutputStream(packet);
         dataOutput.writeByte(PROTOCOL_VERSION);
         dataOutput.writeLong(lockId);
+        dataOutput.writeByte(type);
         dataOutput.flush();
         return packet.toByteArray();
     }
 
-    private static long decode(byte[] bytes) throws IOException {
-        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes));
+    private static Message decode(byte[] bytes, int length, SocketAddress sender) throws IOException {
+        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
         byte version = dataInput.readByte();
         if (version != PROTOCOL_VERSION) {
             throw new IllegalArgumentException(String.format("Unexpected protocol version %s received in lock contention notification message", version));
         }
-        return dataInput.readLong();
+        long lockId = dataInput.readLong();
+        boolean released = length > 9 && dataInput.readByte() == LOCK_RELEASED;
+        return new Message(lockId, released, sender);
     }
 
     public int getPort() {
         return socket.getLocalPort();
     }
+
+    public static class Message {
+        private final long lockId;
+        private final boolean released;
+        private final SocketAddress sender;
+
+        Message(long lockId, boolean released, SocketAddress sender) {
+            this.lockId = lockId;
+            this.released = released;
+            this.sender = sender;
+        }
+
+        public long getLockId() {
+            return lockId;
+        }
+
+        /**
+         * Returns true when the sender has released the lock, false when the sender asks for the lock.
+         */
+        public boolean isReleased() {
+            return released;
+        }
+
+        public SocketAddress getSender() {
+            return sender;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Logs the file locks the build waited for, at the end of the build.
+ */
+public class FileLockWaitReporter extends BuildAdapter {
+    private static final Logger LOGGER = Logging.getLogger(FileLockWaitReporter.class);
+    private final FileLockWaitStatistics statistics;
+
+    public FileLockWaitReporter(FileLockWaitStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        // Collect even when not logged, so that the next build in the daemon starts with fresh statistics
+        for (FileLockWaitStatistics.LockWaits lockWaits : statistics.collect()) {
+            if (lockWaits.getTotalMs() > 0) {
+                LOGGER.info("Waited {} ms in total, at most {} ms, for {} acquisitions of lock on {}.",
+                        lockWaits.getTotalMs(), lockWaits.getMaxMs(), lockWaits.getCount(), lockWaits.getLockDisplayName());
+            }
+        }
+    }
+}
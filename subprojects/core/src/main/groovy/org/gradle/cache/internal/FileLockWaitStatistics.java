@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the time spent waiting to acquire each file lock, so that the build can report the locks it waited for the longest.
+ *
+ * <p>Thread-safe.</p>
+ */
+public class FileLockWaitStatistics {
+    private final Map<String, LockWaits> waits = new LinkedHashMap<String, LockWaits>();
+
+    /**
+     * Records that a lock was acquired after waiting the given time.
+     */
+    public synchronized void lockAcquired(String lockDisplayName, long waitedMs) {
+        LockWaits lockWaits = waits.get(lockDisplayName);
+        if (lockWaits == null) {
+            lockWaits = new LockWaits(lockDisplayName);
+            waits.put(lockDisplayName, lockWaits);
+        }
+        lockWaits.add(waitedMs);
+    }
+
+    /**
+     * Returns the wait times of each lock acquired since the last call, longest total wait first, and starts collecting anew.
+     */
+    public synchronized List<LockWaits> collect() {
+        List<LockWaits> result = new ArrayList<LockWaits>(waits.values());
+        waits.clear();
+        Collections.sort(result, new Comparator<LockWaits>() {
+            public int compare(LockWaits left, LockWaits right) {
+                return Long.valueOf(right.getTotalMs()).compareTo(left.getTotalMs());
+            }
+        });
+        return result;
+    }
+
+    public static class LockWaits {
+        private final String lockDisplayName;
+        private int count;
+        private long totalMs;
+        private long maxMs;
+
+        LockWaits(String lockDisplayName) {
+            this.lockDisplayName = lockDisplayName;
+        }
+
+        void add(long waitedMs) {
+            count++;
+            totalMs += waitedMs;
+            maxMs = Math.max(maxMs, waitedMs);
+        }
+
+        public String getLockDisplayName() {
+            return lockDisplayName;
+        }
+
+        /**
+         * Returns the number of times the lock was acquired.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public long getTotalMs() {
+            return totalMs;
+        }
+
+        public long getMaxMs() {
+            return maxMs;
+        }
+    }
+}
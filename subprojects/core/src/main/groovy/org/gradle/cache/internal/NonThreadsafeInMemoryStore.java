@@ -22,6 +22,7 @@ import org.gradle.cache.PersistentStore;
 import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Serializer;
 
+import java.util.Collection;
 import java.util.Map;
 
 public class NonThreadsafeInMemoryStore implements PersistentStore {
@@ -41,6 +42,11 @@ public class NonThreadsafeInMemoryStore implements PersistentStore {
         action.run();
     }
 
+    @Override
+    public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+        return action.create();
+    }
+
     @Override
     public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
         return action.create();
@@ -60,11 +66,28 @@ public class NonThreadsafeInMemoryStore implements PersistentStore {
             return entries.get(key);
         }
 
+        @Override
+        public Map<K, V> getAll(Collection<? extends K> keys) {
+            Map<K, V> values = Maps.newHashMap();
+            for (K key : keys) {
+                V value = entries.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values;
+        }
+
         @Override
         public void put(K key, V value) {
             entries.put(key, value);
         }
 
+        @Override
+        public void putAll(Map<? extends K, ? extends V> values) {
+            entries.putAll(values);
+        }
+
         @Override
         public void remove(K key) {
             entries.remove(key);
@@ -15,6 +15,7 @@
  */
 package org.gradle.cache.internal.btree;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.serialize.Serializer;
@@ -28,6 +29,7 @@ import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions (properly, this time)
@@ -57,12 +59,30 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, new FileBackedBlockStore(cacheFile), keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, backingStore, keySerializer, valueSerializer, (short) 512, 512);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, backingStore, keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries, null);
+    }
+
+    /**
+     * @param writeBehindExecutor The executor to write changed blocks in the background with, or null to write them as each change is made. The executor must mark
+     * the file as being written while it runs each write.
+     */
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, @Nullable Executor writeBehindExecutor) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore = new CachingBlockStore(backingStore, writeBehindExecutor, this, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -113,7 +133,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         header = store.readFirst(HeaderBlock.class);
     }
 
-    public V get(K key) {
+    public synchronized V get(K key) {
         try {
             try {
                 DataBlock block = header.getRoot().get(key);
@@ -130,34 +150,96 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public void put(K key, V value) {
+    public synchronized Map<K, V> getAll(Collection<? extends K> keys) {
         try {
-            MessageDigestStream digestStream = new MessageDigestStream();
-            KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
-            keySerializer.write(encoder, key);
-            encoder.flush();
-            long hashCode = digestStream.getChecksum();
-            Lookup lookup = header.getRoot().find(hashCode);
-            boolean needNewBlock = true;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                needNewBlock = !block.useNewValue(value);
-                if (needNewBlock) {
-                    store.remove(block);
+            try {
+                // Look up the keys in hash order, so that each index block is visited at most once
+                SortedMap<Long, List<K>> keysByHash = new TreeMap<Long, List<K>>();
+                for (K key : keys) {
+                    long hashCode = hashOf(key);
+                    List<K> keysWithHash = keysByHash.get(hashCode);
+                    if (keysWithHash == null) {
+                        keysWithHash = new ArrayList<K>(1);
+                        keysByHash.put(hashCode, keysWithHash);
+                    }
+                    keysWithHash.add(key);
                 }
+                Map<Long, IndexEntry> found = new HashMap<Long, IndexEntry>();
+                header.getRoot().findAll(new ArrayList<Long>(keysByHash.keySet()), 0, keysByHash.size(), found);
+
+                Map<K, V> values = new HashMap<K, V>();
+                for (Map.Entry<Long, List<K>> entry : keysByHash.entrySet()) {
+                    IndexEntry indexEntry = found.get(entry.getKey());
+                    if (indexEntry == null) {
+                        continue;
+                    }
+                    DataBlock block = store.read(indexEntry.dataBlock, DataBlock.class);
+                    V value = block.getValue();
+                    for (K key : entry.getValue()) {
+                        values.put(key, value);
+                    }
+                }
+                return values;
+            } catch (CorruptedCacheException e) {
+                rebuild();
+                return new HashMap<K, V>();
             }
-            if (needNewBlock) {
-                DataBlock block = new DataBlock(value);
-                store.write(block);
-                lookup.indexBlock.put(hashCode, block.getPos());
-            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entries from %s.", this), e);
+        }
+    }
+
+    public synchronized void put(K key, V value) {
+        try {
+            doPut(hashOf(key), value);
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
         }
     }
 
-    public void remove(K key) {
+    public synchronized void putAll(Map<? extends K, ? extends V> entries) {
+        try {
+            // Add the entries in hash order, so that consecutive updates touch neighbouring index blocks, and flush once at the end
+            SortedMap<Long, V> valuesByHash = new TreeMap<Long, V>();
+            for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+                valuesByHash.put(hashOf(entry.getKey()), entry.getValue());
+            }
+            for (Map.Entry<Long, V> entry : valuesByHash.entrySet()) {
+                doPut(entry.getKey(), entry.getValue());
+            }
+            store.flush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entries to %s.", this), e);
+        }
+    }
+
+    private void doPut(long hashCode, V value) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        boolean needNewBlock = true;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            needNewBlock = !block.useNewValue(value);
+            if (needNewBlock) {
+                store.remove(block);
+            }
+        }
+        if (needNewBlock) {
+            DataBlock block = new DataBlock(value);
+            store.write(block);
+            lookup.indexBlock.put(hashCode, block.getPos());
+        }
+    }
+
+    private long hashOf(K key) throws Exception {
+        MessageDigestStream digestStream = new MessageDigestStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
+        keySerializer.write(encoder, key);
+        encoder.flush();
+        return digestStream.getChecksum();
+    }
+
+    public synchronized void remove(K key) {
         try {
             Lookup lookup = header.getRoot().find(key);
             if (lookup.entry == null) {
@@ -180,7 +262,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         return block;
     }
 
-    public void reset() {
+    public synchronized void reset() {
         close();
         try {
             open();
@@ -189,7 +271,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public void close() {
+    public synchronized void close() {
         LOGGER.debug("Closing {}", this);
         try {
             store.close();
@@ -198,7 +280,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public boolean isOpen() {
+    public synchronized boolean isOpen() {
         return store.isOpen();
     }
 
@@ -209,7 +291,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         doOpen();
     }
 
-    public void verify() {
+    public synchronized void verify() {
         try {
             doVerify();
         } catch (Exception e) {
@@ -450,12 +532,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
 
         public Lookup find(K key) throws Exception {
-            MessageDigestStream digestStream = new MessageDigestStream();
-            KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
-            keySerializer.write(encoder, key);
-            encoder.flush();
-            long checksum = digestStream.getChecksum();
-            return find(checksum);
+            return find(hashOf(key));
         }
 
         private Lookup find(long hashCode) throws Exception {
@@ -479,6 +556,34 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             return childBlock.find(hashCode);
         }
 
+        /**
+         * Finds the entries for the given range of hash codes, which must be sorted. Hash codes that belong to the same child block are looked
+         * up with a single visit to that block.
+         */
+        private void findAll(List<Long> hashCodes, int from, int to, Map<Long, IndexEntry> found) throws Exception {
+            int i = from;
+            while (i < to) {
+                long hashCode = hashCodes.get(i);
+                int index = Collections.binarySearch(entries, new IndexEntry(hashCode));
+                if (index >= 0) {
+                    found.put(hashCode, entries.get(index));
+                    i++;
+                    continue;
+                }
+
+                index = -index - 1;
+                int end = i + 1;
+                while (end < to && (index == entries.size() || hashCodes.get(end) < entries.get(index).hashCode)) {
+                    end++;
+                }
+                BlockPointer childBlockPos = index == entries.size() ? tailPos : entries.get(index).childIndexBlock;
+                if (!childBlockPos.isNull()) {
+                    load(childBlockPos, root, this, index).findAll(hashCodes, i, end, found);
+                }
+                i = end;
+            }
+        }
+
         public void remove(IndexEntry entry) throws Exception {
             int index = entries.indexOf(entry);
             assert index >= 0;
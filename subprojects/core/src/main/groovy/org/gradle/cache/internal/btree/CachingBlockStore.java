@@ -16,44 +16,131 @@
 package org.gradle.cache.internal.btree;
 
 import org.apache.commons.collections.map.LRUMap;
+import org.gradle.api.Nullable;
+import org.gradle.internal.UncheckedException;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 
+/**
+ * Caches index blocks and holds written blocks in memory until the store is flushed.
+ *
+ * <p>When created with a write-behind executor, {@link #flush()} does not write the dirty blocks itself. Instead, the dirty blocks are written by
+ * the executor, while the owner of the store is not using it. The executor is responsible for marking the file as being written while it writes
+ * the blocks. Dirty blocks are only ever written all at once, and only when the store is flushed, so that the file always holds the state after
+ * some complete operation. Once too many blocks are dirty, {@link #flush()} writes them itself. {@link #close()} writes any remaining dirty blocks
+ * before it returns, so that all changes are on disk before the cache is handed to another process.</p>
+ */
 public class CachingBlockStore implements BlockStore {
+    static final int MAX_DIRTY_BLOCKS = 512;
+
     private final BlockStore store;
     private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
     private final Map<BlockPointer, BlockPayload> indexBlockCache = new LRUMap(100);
     private final Set<Class<?>> cachableTypes = new HashSet<Class<?>>();
+    private final Executor writeBehindExecutor;
+    private final Object lock;
+    private boolean writeScheduled;
+    private Throwable writeFailure;
 
     public CachingBlockStore(BlockStore store, Class<? extends BlockPayload>... cacheableBlockTypes) {
+        this(store, null, null, cacheableBlockTypes);
+    }
+
+    /**
+     * @param writeBehindExecutor The executor to write dirty blocks with, or null to write them when the store is flushed. The executor must mark the
+     * file as being written while it runs a write, for example using {@link org.gradle.cache.internal.FileAccess#writeFile(Runnable)}.
+     * @param lock The lock that the owner of this store holds while reading or modifying blocks. The dirty blocks are written while holding this lock.
+     */
+    public CachingBlockStore(BlockStore store, @Nullable Executor writeBehindExecutor, @Nullable Object lock, Class<? extends BlockPayload>... cacheableBlockTypes) {
         this.store = store;
+        this.writeBehindExecutor = writeBehindExecutor;
+        this.lock = lock == null ? this : lock;
         cachableTypes.addAll(Arrays.asList(cacheableBlockTypes));
     }
 
     public void open(Runnable initAction, Factory factory) {
-        store.open(initAction, factory);
+        synchronized (lock) {
+            store.open(initAction, factory);
+            // The first block written by the init action is read straight from the backing store, so write the blocks now
+            writeDirtyBlocks();
+        }
     }
 
     public void close() {
-        flush();
-        indexBlockCache.clear();
-        store.close();
+        synchronized (lock) {
+            try {
+                writeDirtyBlocks();
+            } finally {
+                indexBlockCache.clear();
+                store.close();
+            }
+        }
     }
 
     public void clear() {
-        dirty.clear();
-        indexBlockCache.clear();
-        store.clear();
+        synchronized (lock) {
+            dirty.clear();
+            indexBlockCache.clear();
+            writeFailure = null;
+            store.clear();
+        }
     }
 
     public void flush() {
-        Iterator<BlockPayload> iterator = dirty.values().iterator();
-        while (iterator.hasNext()) {
-            BlockPayload block = iterator.next();
-            iterator.remove();
-            store.write(block);
+        if (writeBehindExecutor == null) {
+            writeDirtyBlocks();
+            return;
+        }
+        synchronized (lock) {
+            rethrowWriteFailure();
+            if (dirty.size() >= MAX_DIRTY_BLOCKS) {
+                // Bound the dirty set by writing it now, as part of the caller's change to the file
+                writeDirtyBlocks();
+                return;
+            }
+            if (writeScheduled || dirty.isEmpty()) {
+                return;
+            }
+            writeScheduled = true;
+        }
+        writeBehindExecutor.execute(new Runnable() {
+            public void run() {
+                synchronized (lock) {
+                    writeScheduled = false;
+                    try {
+                        writeDirtyBlocks();
+                    } catch (Throwable t) {
+                        writeFailure = t;
+                    }
+                }
+            }
+        });
+    }
+
+    private void writeDirtyBlocks() {
+        synchronized (lock) {
+            rethrowWriteFailure();
+            if (dirty.isEmpty()) {
+                return;
+            }
+            Iterator<BlockPayload> iterator = dirty.values().iterator();
+            while (iterator.hasNext()) {
+                BlockPayload block = iterator.next();
+                iterator.remove();
+                store.write(block);
+            }
+            // Flush the backing store once for the whole batch
+            store.flush();
+        }
+    }
+
+    private void rethrowWriteFailure() {
+        if (writeFailure != null) {
+            Throwable failure = writeFailure;
+            writeFailure = null;
+            throw UncheckedException.throwAsUncheckedException(failure);
         }
-        store.flush();
     }
 
     public void attach(BlockPayload block) {
@@ -61,35 +148,43 @@ public class CachingBlockStore implements BlockStore {
     }
 
     public void remove(BlockPayload block) {
-        dirty.remove(block.getPos());
-        indexBlockCache.remove(block.getPos());
-        store.remove(block);
+        synchronized (lock) {
+            dirty.remove(block.getPos());
+            indexBlockCache.remove(block.getPos());
+            store.remove(block);
+        }
     }
 
     public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
-        T block = store.readFirst(payloadType);
-        maybeCache(block);
-        return block;
+        synchronized (lock) {
+            T block = store.readFirst(payloadType);
+            maybeCache(block);
+            return block;
+        }
     }
 
     public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
-        T block = payloadType.cast(dirty.get(pos));
-        if (block != null) {
-            return block;
-        }
-        block = payloadType.cast(indexBlockCache.get(pos));
-        if (block != null) {
+        synchronized (lock) {
+            T block = payloadType.cast(dirty.get(pos));
+            if (block != null) {
+                return block;
+            }
+            block = payloadType.cast(indexBlockCache.get(pos));
+            if (block != null) {
+                return block;
+            }
+            block = store.read(pos, payloadType);
+            maybeCache(block);
             return block;
         }
-        block = store.read(pos, payloadType);
-        maybeCache(block);
-        return block;
     }
 
     public void write(BlockPayload block) {
-        store.attach(block);
-        maybeCache(block);
-        dirty.put(block.getPos(), block);
+        synchronized (lock) {
+            store.attach(block);
+            maybeCache(block);
+            dirty.put(block.getPos(), block);
+        }
     }
 
     private <T extends BlockPayload> void maybeCache(T block) {
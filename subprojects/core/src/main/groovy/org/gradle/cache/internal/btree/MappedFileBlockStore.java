@@ -0,0 +1,374 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link BlockStore} that reads blocks through memory mapped regions of the cache file, rather than through a stream per block.
+ *
+ * <p>Uses the same on-disk format as {@link FileBackedBlockStore}, so the two can be used interchangeably for a given file.</p>
+ *
+ * <p>The file is mapped in fixed size regions, which are mapped on demand and remapped as the file grows. Blocks that are appended to the
+ * end of the file are written with a single positional write. Each block is copied out of the mapped region in one go and its checksum
+ * verified against the copy, without any further file system calls.</p>
+ *
+ * <p>Regions are unmapped as soon as they are no longer used, so that the file can be truncated or deleted while the process is still running,
+ * which Windows does not allow for a mapped file. This relies on the cleaner of the JVM's mapped buffers. When the cleaner is not available,
+ * the mapping is released once the buffer is garbage collected instead, and until then truncating or deleting the file may fail on Windows.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    private static final int DEFAULT_REGION_SIZE = 8 * 1024 * 1024;
+    private final File cacheFile;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long length;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    public MappedFileBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            length = file.length();
+            nextBlock = length;
+            if (length == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        unmapRegions();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        unmapRegions();
+        try {
+            file.setLength(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        length = 0;
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    private MappedByteBuffer region(int index) throws IOException {
+        long start = (long) index * regionSize;
+        int size = (int) Math.min(regionSize, length - start);
+        MappedByteBuffer region = index < regions.size() ? regions.get(index) : null;
+        if (region == null || region.capacity() < size) {
+            // Not mapped yet, or the file has grown since this region was mapped
+            if (region != null) {
+                unmap(region);
+            }
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+            while (regions.size() <= index) {
+                regions.add(null);
+            }
+            regions.set(index, region);
+        }
+        return region;
+    }
+
+    private void unmapRegions() {
+        for (MappedByteBuffer region : regions) {
+            if (region != null) {
+                unmap(region);
+            }
+        }
+        regions.clear();
+    }
+
+    /**
+     * Releases the mapping of the given buffer, which must not be used afterwards. Does nothing when the JVM does not expose the cleaner of
+     * its mapped buffers, in which case the mapping is released when the buffer is garbage collected.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (Exception e) {
+            // Not supported by this JVM, leave it to the garbage collector
+        }
+    }
+
+    private void readBytes(long pos, byte[] buffer, int count) throws IOException {
+        int offset = 0;
+        while (offset < count) {
+            int regionOffset = (int) (pos % regionSize);
+            int chunk = Math.min(count - offset, regionSize - regionOffset);
+            MappedByteBuffer region = region((int) (pos / regionSize));
+            region.position(regionOffset);
+            region.get(buffer, offset, chunk);
+            pos += chunk;
+            offset += chunk;
+        }
+    }
+
+    private void writeBytes(long pos, byte[] buffer, int count) throws IOException {
+        if (pos + count > length) {
+            // Appending to the file: use a positional write, and let the affected region be remapped the next time it is read
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, count);
+            while (byteBuffer.hasRemaining()) {
+                pos += channel.write(byteBuffer, pos);
+            }
+            length = Math.max(length, pos);
+            return;
+        }
+        int offset = 0;
+        while (offset < count) {
+            int regionOffset = (int) (pos % regionSize);
+            int chunk = Math.min(count - offset, regionSize - regionOffset);
+            MappedByteBuffer region = region((int) (pos / regionSize));
+            region.position(regionOffset);
+            region.put(buffer, offset, chunk);
+            pos += chunk;
+            offset += chunk;
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            BlockPayload payload = getPayload();
+            ExposingByteArrayOutputStream bytes = new ExposingByteArrayOutputStream(HEADER_SIZE + TAIL_SIZE + payloadSize);
+            DataOutputStream outputStream = new DataOutputStream(bytes);
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write checksum
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes.buffer(), 0, bytes.size());
+            outputStream.writeLong(checksum.getValue());
+            outputStream.close();
+
+            writeBytes(pos, bytes.buffer(), bytes.size());
+
+            // Pad
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+            if (length < finalSize) {
+                file.setLength(finalSize);
+                length = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= length) {
+                throw blockCorruptedException();
+            }
+
+            // Read header
+            byte[] header = new byte[HEADER_SIZE];
+            readBytes(pos, header, HEADER_SIZE);
+            DataInputStream headerStream = new DataInputStream(new ByteArrayInputStream(header));
+            byte type = headerStream.readByte();
+            if (type != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            type = headerStream.readByte();
+            BlockPayload payload = getPayload();
+            if (type != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+            payloadSize = headerStream.readInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > length) {
+                throw blockCorruptedException();
+            }
+
+            // Copy the whole block out of the mapped region, then read the body from the copy
+            int blockSize = HEADER_SIZE + TAIL_SIZE + payloadSize;
+            byte[] block = new byte[blockSize];
+            readBytes(pos, block, blockSize);
+            ByteArrayInputStream bodyStream = new ByteArrayInputStream(block, HEADER_SIZE, blockSize - HEADER_SIZE);
+            DataInputStream inputStream = new DataInputStream(bodyStream);
+            payload.read(inputStream);
+
+            // Verify checksum over the header and the body bytes that were consumed
+            int consumed = blockSize - bodyStream.available();
+            CRC32 actualChecksum = new CRC32();
+            actualChecksum.update(block, 0, consumed);
+            long checksum = inputStream.readLong();
+            if (actualChecksum.getValue() != checksum) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+
+    private static class ExposingByteArrayOutputStream extends ByteArrayOutputStream {
+        private ExposingByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -25,15 +25,25 @@ import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
+import java.net.SocketAddress;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultFileLockContentionHandler implements FileLockContentionHandler, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockContentionHandler.class);
     private final Lock lock = new ReentrantLock();
+    private final Condition releaseReceived = lock.newCondition();
     private final Map<Long, Runnable> contendedActions = new HashMap<Long, Runnable>();
+    // The processes that pinged the owner of each lock held by this process, to notify once the lock is released
+    private final Map<Long, Set<SocketAddress>> waiters = new HashMap<Long, Set<SocketAddress>>();
+    // The locks held by other processes that threads of this process wait for
+    private final Map<Long, AwaitedRelease> awaitedReleases = new HashMap<Long, AwaitedRelease>();
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
 
@@ -62,15 +72,28 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
 
             private void doRun() {
                 while (true) {
-                    long lockId;
+                    FileLockCommunicator.Message message;
                     try {
-                        lockId = communicator.receive();
+                        message = communicator.receiveMessage();
                     } catch (GracefullyStoppedException e) {
                         return;
                     }
+                    long lockId = message.getLockId();
                     lock.lock();
                     Runnable action;
                     try {
+                        if (message.isReleased()) {
+                            AwaitedRelease awaitedRelease = awaitedReleases.get(lockId);
+                            if (awaitedRelease != null) {
+                                awaitedRelease.releases++;
+                                releaseReceived.signalAll();
+                            }
+                            continue;
+                        }
+                        Set<SocketAddress> lockWaiters = waiters.get(lockId);
+                        if (lockWaiters != null) {
+                            lockWaiters.add(message.getSender());
+                        }
                         action = contendedActions.get(lockId);
                         if (action == null) {
                             //received access request for lock that is already closed
@@ -92,23 +115,78 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
             if (communicator == null) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
-            if (executor == null) {
-                executor = executorFactory.create("File lock request listener");
-                executor.execute(listener());
-            }
+            startListener();
             if (contendedActions.containsKey(lockId)) {
                 throw new UnsupportedOperationException("Multiple contention actions for a given lock are currently not supported.");
             }
             contendedActions.put(lockId, whenContended);
+            waiters.put(lockId, new HashSet<SocketAddress>());
         } finally {
             lock.unlock();
         }
     }
 
+    private void startListener() {
+        if (executor == null) {
+            executor = executorFactory.create("File lock request listener");
+            executor.execute(listener());
+        }
+    }
+
     public void pingOwner(int port, long lockId, String displayName) {
         getCommunicator().pingOwner(port, lockId, displayName);
     }
 
+    public boolean waitForRelease(int port, long lockId, String displayName, long timeoutMs) throws InterruptedException {
+        AwaitedRelease awaitedRelease;
+        int releasesBefore;
+        lock.lock();
+        try {
+            // The release notification is received by the listener
+            getCommunicator();
+            startListener();
+            awaitedRelease = awaitedReleases.get(lockId);
+            if (awaitedRelease == null) {
+                awaitedRelease = new AwaitedRelease();
+                awaitedReleases.put(lockId, awaitedRelease);
+            }
+            awaitedRelease.waiters++;
+            releasesBefore = awaitedRelease.releases;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            pingOwner(port, lockId, displayName);
+            return awaitRelease(awaitedRelease, releasesBefore, System.currentTimeMillis() + timeoutMs);
+        } finally {
+            lock.lock();
+            try {
+                awaitedRelease.waiters--;
+                if (awaitedRelease.waiters == 0 && awaitedReleases.get(lockId) == awaitedRelease) {
+                    awaitedReleases.remove(lockId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean awaitRelease(AwaitedRelease awaitedRelease, int releasesBefore, long waitUntil) throws InterruptedException {
+        lock.lock();
+        try {
+            while (awaitedRelease.releases == releasesBefore) {
+                long remaining = waitUntil - System.currentTimeMillis();
+                if (stopped || remaining <= 0) {
+                    return false;
+                }
+                releaseReceived.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void assertNotStopped() {
         if (stopped) {
             throw new IllegalStateException(
@@ -119,17 +197,42 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
     public void stop(long lockId) {
         lock.lock();
         try {
+            // Keep collecting the waiters until the lock is released
             contendedActions.remove(lockId);
         } finally {
             lock.unlock();
         }
     }
 
+    public void released(long lockId) {
+        lock.lock();
+        try {
+            Set<SocketAddress> lockWaiters = waiters.remove(lockId);
+            if (lockWaiters == null || stopped) {
+                return;
+            }
+            for (SocketAddress waiter : lockWaiters) {
+                LOGGER.debug("Notifying {} that lock {} was released.", waiter, lockId);
+                try {
+                    communicator.notifyReleased(waiter, lockId);
+                } catch (RuntimeException e) {
+                    // The waiter falls back to polling the lock
+                    LOGGER.debug("Could not notify {} that lock {} was released.", waiter, lockId, e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void stop() {
         lock.lock();
         try {
             stopped = true;
             contendedActions.clear();
+            waiters.clear();
+            awaitedReleases.clear();
+            releaseReceived.signalAll();
             if (communicator != null) {
                 communicator.stop();
             }
@@ -157,4 +260,12 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
             lock.unlock();
         }
     }
+
+    /**
+     * A lock held by another process that one or more threads of this process wait for. Each thread waits until a release is received after it started to wait.
+     */
+    private static class AwaitedRelease {
+        int waiters;
+        int releases;
+    }
 }
@@ -24,4 +24,17 @@ public interface FileLockContentionHandler {
     int reservePort();
 
     void pingOwner(int port, long lockId, String displayName);
+
+    /**
+     * Pings the owner of the given lock, then blocks until the owner notifies that it has released the lock, or until the given time has passed.
+     * Owners that do not send this notification are only detected by the timeout, so callers should poll the lock again when this method returns.
+     *
+     * @return true when the owner notified that it released the lock.
+     */
+    boolean waitForRelease(int port, long lockId, String displayName, long timeoutMs) throws InterruptedException;
+
+    /**
+     * Notifies the processes that pinged the owner of the given lock that the lock has been released. Called after {@link #stop(long)}, once the lock is released.
+     */
+    void released(long lockId);
 }
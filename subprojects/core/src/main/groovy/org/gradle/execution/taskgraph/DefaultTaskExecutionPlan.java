@@ -18,7 +18,6 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
@@ -29,6 +28,7 @@ import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.ParallelizableTask;
+import org.gradle.api.tasks.TaskState;
 import org.gradle.api.tasks.TaskDependency;
 import org.gradle.execution.MultipleBuildFailures;
 import org.gradle.execution.TaskFailureHandler;
@@ -40,8 +40,8 @@ import org.gradle.internal.graph.DirectedGraph;
 import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
+import org.gradle.util.Clock;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -58,16 +58,22 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String CRITICAL_PATH_REPORT_TOGGLE = "org.gradle.taskgraph.reportCriticalPath";
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.taskgraph.prioritizeCriticalPath";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition tasksComplete = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Map<TaskInfo, QueuedTask> queuedTasks = new HashMap<TaskInfo, QueuedTask>();
+    private final TreeSet<QueuedTask> readyQueue = new TreeSet<QueuedTask>();
+    private int runnableTasks;
+    private int waitingWorkers;
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -77,22 +83,41 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
+    private final TaskOutputPathTrie runningTaskOutputs = new TaskOutputPathTrie();
+    // Running tasks whose outputs have not been added to the trie yet. Outputs are only added once a second task needs checking against them.
+    private final Set<TaskInternal> runningTasksWithUnindexedOutputs = Sets.newIdentityHashSet();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
 
     private final boolean intraProjectParallelization;
+    private final TaskDurationHistory durationHistory;
+    private final boolean prioritizeCriticalPath;
+    private final boolean reportCriticalPath;
+    private final Map<String, Long> historicalDurations = new HashMap<String, Long>();
+    private final Map<String, Long> measuredDurations = new HashMap<String, Long>();
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, TaskDurationHistory durationHistory, boolean prioritizeCriticalPath) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.durationHistory = durationHistory;
+        this.prioritizeCriticalPath = prioritizeCriticalPath;
+        this.reportCriticalPath = Boolean.getBoolean(CRITICAL_PATH_REPORT_TOGGLE);
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
     }
 
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, TaskDurationHistory.NONE, false);
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, TaskDurationHistory durationHistory, boolean prioritizeCriticalPath) {
+        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE), durationHistory, prioritizeCriticalPath);
+    }
+
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
-        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE));
+        this(cancellationToken, TaskDurationHistory.NONE, false);
     }
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
@@ -313,8 +338,126 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        createExecutionQueue();
+    }
+
+    /**
+     * Tracks, for each task in the plan, the number of its dependencies that are not yet complete. A task is added to the ready queue when this
+     * number drops to zero, so that the next task to execute can be found without scanning the whole plan.
+     */
+    private void createExecutionQueue() {
+        queuedTasks.clear();
+        readyQueue.clear();
+        runnableTasks = 0;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            queuedTask(taskInfo).queued = true;
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            QueuedTask queuedTask = queuedTasks.get(taskInfo);
+            for (TaskInfo dependency : Iterables.concat(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors())) {
+                QueuedTask queuedDependency = queuedTask(dependency);
+                queuedDependency.dependents.add(queuedTask);
+                if (!queuedDependency.complete) {
+                    queuedTask.incompleteDependencies++;
+                }
+            }
+        }
+        if (prioritizeCriticalPath || reportCriticalPath) {
+            loadHistoricalDurations();
+        }
+        if (prioritizeCriticalPath) {
+            // Hand out the ready tasks with the longest chain of work remaining after them first
+            calculateRemainingDurations(historicalDurations);
+        }
+        for (QueuedTask queuedTask : queuedTasks.values()) {
+            updateReadyQueue(queuedTask);
+        }
+    }
+
+    private void loadHistoricalDurations() {
+        List<String> taskPaths = new ArrayList<String>(executionPlan.size());
+        for (Task task : executionPlan.keySet()) {
+            taskPaths.add(task.getPath());
+        }
+        historicalDurations.clear();
+        historicalDurations.putAll(durationHistory.getDurations(taskPaths));
+    }
+
+    /**
+     * Calculates, for each task in the plan, the duration of the longest chain of tasks that starts with the task and follows the tasks that
+     * depend on it. Tasks without a known duration count as taking no time.
+     */
+    private void calculateRemainingDurations(Map<String, Long> durations) {
+        List<TaskInfo> tasks = new ArrayList<TaskInfo>(executionPlan.values());
+        // Tasks that depend on a task are always later in the plan
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            QueuedTask queuedTask = queuedTasks.get(tasks.get(i));
+            long longestDependent = 0;
+            for (QueuedTask dependent : queuedTask.dependents) {
+                longestDependent = Math.max(longestDependent, dependent.remainingDuration);
+            }
+            Long duration = durations.get(queuedTask.taskInfo.getTask().getPath());
+            queuedTask.remainingDuration = (duration == null ? 0 : duration) + longestDependent;
+        }
+    }
+
+    private QueuedTask queuedTask(TaskInfo taskInfo) {
+        QueuedTask queuedTask = queuedTasks.get(taskInfo);
+        if (queuedTask == null) {
+            // The index keeps the plan order in the ready queue, and must be unique as the queue is sorted
+            queuedTask = new QueuedTask(taskInfo, queuedTasks.size());
+            queuedTasks.put(taskInfo, queuedTask);
+        }
+        return queuedTask;
+    }
+
+    /**
+     * Updates the ready queue after the state of the given task has changed.
+     */
+    private void taskStateChanged(TaskInfo taskInfo) {
+        QueuedTask queuedTask = queuedTasks.get(taskInfo);
+        if (queuedTask == null) {
+            return;
+        }
+        boolean complete = taskInfo.isComplete();
+        if (complete != queuedTask.complete) {
+            queuedTask.complete = complete;
+            for (QueuedTask dependent : queuedTask.dependents) {
+                dependent.incompleteDependencies += complete ? -1 : 1;
+                updateReadyQueue(dependent);
+            }
+        }
+        updateReadyQueue(queuedTask);
+    }
+
+    private void updateReadyQueue(QueuedTask queuedTask) {
+        boolean runnable = queuedTask.queued && queuedTask.taskInfo.isReady();
+        if (runnable != queuedTask.runnable) {
+            queuedTask.runnable = runnable;
+            runnableTasks += runnable ? 1 : -1;
+        }
+        if (runnable && queuedTask.incompleteDependencies == 0) {
+            readyQueue.add(queuedTask);
+        } else {
+            readyQueue.remove(queuedTask);
+        }
+    }
+
+    /**
+     * Wakes up as many waiting workers as there are tasks in the ready queue, or all of them when there are no tasks left to execute.
+     */
+    private void signalWorkers() {
+        if (runnableTasks == 0) {
+            taskAvailable.signalAll();
+            if (runningTasks.isEmpty()) {
+                tasksComplete.signalAll();
+            }
+            return;
+        }
+        int count = Math.min(readyQueue.size(), waitingWorkers);
+        for (int i = 0; i < count; i++) {
+            taskAvailable.signal();
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -435,13 +578,19 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
-            executionQueue.clear();
+            queuedTasks.clear();
+            readyQueue.clear();
+            runnableTasks = 0;
+            historicalDurations.clear();
+            measuredDurations.clear();
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            runningTaskOutputs.clear();
+            runningTasksWithUnindexedOutputs.clear();
         } finally {
             lock.unlock();
         }
@@ -468,35 +617,38 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                         tasksCancelled = true;
                     }
                 }
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
-                while (iterator.hasNext()) {
-                    TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
-                        nextMatching = taskInfo;
-                        iterator.remove();
+                if (runnableTasks == 0) {
+                    return null;
+                }
+                QueuedTask nextMatching = null;
+                for (QueuedTask queuedTask : readyQueue) {
+                    if (canRunWithWithCurrentlyExecutedTasks(queuedTask.taskInfo)) {
+                        nextMatching = queuedTask;
                         break;
                     }
                 }
-                if (allTasksComplete) {
-                    return null;
-                }
                 if (nextMatching == null) {
+                    waitingWorkers++;
                     try {
-                        condition.await();
+                        taskAvailable.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        waitingWorkers--;
                     }
                 } else {
-                    if (nextMatching.allDependenciesSuccessful()) {
-                        nextMatching.startExecution();
-                        recordTaskStarted(nextMatching);
-                        return nextMatching;
+                    TaskInfo taskInfo = nextMatching.taskInfo;
+                    nextMatching.queued = false;
+                    if (taskInfo.allDependenciesSuccessful()) {
+                        taskInfo.startExecution();
+                        nextMatching.startTime = System.currentTimeMillis();
+                        recordTaskStarted(taskInfo);
+                        taskStateChanged(taskInfo);
+                        return taskInfo;
                     } else {
-                        nextMatching.skipExecution();
-                        condition.signalAll();
+                        taskInfo.skipExecution();
+                        taskStateChanged(taskInfo);
+                        signalWorkers();
                     }
                 }
             }
@@ -529,62 +681,75 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return false;
     }
 
+    public void resolveOutputPaths() {
+        lock.lock();
+        try {
+            for (TaskInfo taskInfo : executionPlan.values()) {
+                TaskInternal task = taskInfo.getTask();
+                if (canonicalizedOutputCache.containsKey(task)) {
+                    continue;
+                }
+                try {
+                    canonicalizedOutputCache.put(task, canonicalizeOutputPaths(task));
+                } catch (RuntimeException e) {
+                    // The outputs may depend on work done by the dependencies of the task, so try again once the task is about to be handed out
+                    LOGGER.debug("Could not resolve the outputs of {} before execution.", task, e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private Set<String> canonicalizedOutputPaths(TaskInternal task) {
         Set<String> paths = canonicalizedOutputCache.get(task);
         if (paths == null) {
-            paths = Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
-                @Override
-                public String apply(File file) {
-                    String path;
-                    try {
-                        path = file.getCanonicalPath();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                    return path;
-                }
-            }));
+            paths = canonicalizeOutputPaths(task);
             canonicalizedOutputCache.put(task, paths);
         }
 
         return paths;
     }
 
+    private static Set<String> canonicalizeOutputPaths(TaskInternal task) {
+        return Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
+            @Override
+            public String apply(File file) {
+                String path;
+                try {
+                    path = file.getCanonicalPath();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return path;
+            }
+        }));
+    }
+
     @Nullable
     private Pair<TaskInternal, String> firstTaskWithOverlappingOutput(TaskInternal candidateTask) {
         if (runningTasks.isEmpty()) {
             return null;
         }
 
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
-                    }
-                }
+        for (TaskInternal runningTask : runningTasksWithUnindexedOutputs) {
+            for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
+                runningTaskOutputs.add(runningTaskOutputPath, runningTask);
             }
         }
-
-        return null;
-    }
-
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
+        runningTasksWithUnindexedOutputs.clear();
+        if (runningTaskOutputs.isEmpty()) {
+            return null;
         }
 
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
+        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
+            Pair<TaskInternal, String> overlap = runningTaskOutputs.findOverlap(candidateTaskOutputPath);
+            if (overlap != null) {
+                return overlap;
+            }
         }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
+
+        return null;
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -621,6 +786,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         projectsWithRunningTasks.add(projectPath);
         runningTasks.add(task);
+        runningTasksWithUnindexedOutputs.add(task);
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -630,9 +796,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
-        canonicalizedOutputCache.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
+        if (!runningTasksWithUnindexedOutputs.remove(task)) {
+            for (String outputPath : canonicalizedOutputPaths(task)) {
+                runningTaskOutputs.remove(outputPath, task);
+            }
+        }
     }
 
     public void taskComplete(TaskInfo taskInfo) {
@@ -645,12 +815,74 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            recordTaskDuration(taskInfo);
+            taskStateChanged(taskInfo);
+            signalWorkers();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordTaskDuration(TaskInfo taskInfo) {
+        if (durationHistory == TaskDurationHistory.NONE && !reportCriticalPath) {
+            return;
+        }
+        TaskState state = taskInfo.getTask().getState();
+        QueuedTask queuedTask = queuedTasks.get(taskInfo);
+        // Only keep the durations of tasks that actually did their work, as up-to-date tasks say nothing about how long the work takes
+        if (queuedTask != null && !taskInfo.isFailed() && !state.getSkipped() && state.getDidWork()) {
+            measuredDurations.put(taskInfo.getTask().getPath(), System.currentTimeMillis() - queuedTask.startTime);
+        }
+    }
+
+    /**
+     * Stores the durations of the tasks executed by this plan, and reports the critical path of the plan when requested. Called once all tasks have completed,
+     * including when the build fails, so failures are logged rather than thrown.
+     */
+    public void recordTaskDurations() {
+        if (durationHistory == TaskDurationHistory.NONE && !reportCriticalPath) {
+            return;
+        }
+        lock.lock();
+        try {
+            durationHistory.recordDurations(measuredDurations);
+            if (reportCriticalPath && !executionPlan.isEmpty()) {
+                Map<String, Long> durations = new HashMap<String, Long>(historicalDurations);
+                durations.putAll(measuredDurations);
+                reportCriticalPath(durations);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not record the durations of the executed tasks.", e);
         } finally {
             lock.unlock();
         }
     }
 
+    private void reportCriticalPath(Map<String, Long> durations) {
+        calculateRemainingDurations(durations);
+        QueuedTask current = null;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            QueuedTask queuedTask = queuedTasks.get(taskInfo);
+            if (current == null || queuedTask.remainingDuration > current.remainingDuration) {
+                current = queuedTask;
+            }
+        }
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Critical path (%s):", Clock.prettyTime(current.remainingDuration)));
+        while (current != null) {
+            Long duration = durations.get(current.taskInfo.getTask().getPath());
+            report.append(String.format("%n  %s %s", current.taskInfo.getTask().getPath(), duration == null ? "(unknown)" : Clock.prettyTime(duration)));
+            QueuedTask next = null;
+            for (QueuedTask dependent : current.dependents) {
+                if (next == null || dependent.remainingDuration > next.remainingDuration) {
+                    next = dependent;
+                }
+            }
+            current = next;
+        }
+        LOGGER.lifecycle(report.toString());
+    }
+
     private void enforceFinalizerTasks(TaskInfo taskInfo) {
         for (TaskInfo finalizerNode : taskInfo.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
@@ -665,6 +897,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         if (node.isMustNotRun() || node.isRequired()) {
             node.enforceRun();
+            taskStateChanged(node);
         }
     }
 
@@ -694,9 +927,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                taskStateChanged(taskInfo);
                 aborted = true;
             }
         }
+        if (aborted) {
+            signalWorkers();
+        }
         return aborted;
     }
 
@@ -705,7 +942,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    tasksComplete.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -760,6 +997,32 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private static class QueuedTask implements Comparable<QueuedTask> {
+        private final TaskInfo taskInfo;
+        private final List<QueuedTask> dependents = new ArrayList<QueuedTask>();
+        private final int index;
+        private long remainingDuration;
+        private long startTime;
+        private int incompleteDependencies;
+        private boolean complete;
+        // Has not been handed out for execution yet
+        private boolean queued;
+        private boolean runnable;
+
+        private QueuedTask(TaskInfo taskInfo, int index) {
+            this.taskInfo = taskInfo;
+            this.index = index;
+            this.complete = taskInfo.isComplete();
+        }
+
+        public int compareTo(QueuedTask other) {
+            if (remainingDuration != other.remainingDuration) {
+                return remainingDuration > other.remainingDuration ? -1 : 1;
+            }
+            return index < other.index ? -1 : (index == other.index ? 0 : 1);
+        }
+    }
+
     private static class RethrowingFailureHandler implements TaskFailureHandler {
         public void onTaskFailure(Task task) {
             task.getState().rethrowFailure();
@@ -49,10 +49,15 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken) {
+        this(listenerManager, taskPlanExecutor, cancellationToken, TaskDurationHistory.NONE, false);
+    }
+
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken,
+                                    TaskDurationHistory durationHistory, boolean prioritizeCriticalPath) {
         this.taskPlanExecutor = taskPlanExecutor;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
-        taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken);
+        taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken, durationHistory, prioritizeCriticalPath);
     }
 
     public void useFailureHandler(TaskFailureHandler handler) {
@@ -88,6 +93,7 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
             taskPlanExecutor.process(taskExecutionPlan, taskListeners.getSource());
             logger.debug("Timing: Executing the DAG took " + clock.getTime());
         } finally {
+            taskExecutionPlan.recordTaskDurations();
             taskExecutionPlan.clear();
         }
     }
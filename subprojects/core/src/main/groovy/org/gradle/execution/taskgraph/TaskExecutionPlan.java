@@ -47,4 +47,10 @@ public interface TaskExecutionPlan {
      * @return The task, or null if no matching tasks remain.
      */
     TaskInfo getTaskToExecute();
+
+    /**
+     * Works out the output locations of the tasks in the plan up front, so that tasks with overlapping outputs can be detected without doing
+     * this while tasks are being handed out to workers. Called before tasks are executed in parallel.
+     */
+    void resolveOutputPaths();
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Splitter;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.internal.Pair;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The canonical output paths of the running tasks, arranged as a trie of path segments. Finding the running task whose outputs overlap with a
+ * given path takes time proportional to the depth of the path, rather than to the number of outputs of the running tasks.
+ */
+public class TaskOutputPathTrie {
+    private static final Splitter SPLITTER = Splitter.on(File.separatorChar).omitEmptyStrings();
+
+    private final Node root = new Node();
+
+    public void add(String path, TaskInternal task) {
+        Node node = root;
+        node.tasksInSubtree++;
+        for (String segment : SPLITTER.split(path)) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+            node.tasksInSubtree++;
+        }
+        node.path = path;
+        node.tasks.add(task);
+    }
+
+    public void remove(String path, TaskInternal task) {
+        List<Node> nodes = new ArrayList<Node>();
+        List<String> segments = new ArrayList<String>();
+        Node node = root;
+        for (String segment : SPLITTER.split(path)) {
+            nodes.add(node);
+            segments.add(segment);
+            node = node.children.get(segment);
+            if (node == null) {
+                return;
+            }
+        }
+        if (!node.tasks.remove(task)) {
+            return;
+        }
+        node.tasksInSubtree--;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            Node parent = nodes.get(i);
+            parent.tasksInSubtree--;
+            if (node.tasksInSubtree == 0) {
+                parent.children.remove(segments.get(i));
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Returns a task with an output that is the given path, an ancestor of it or a descendant of it, along with the shorter of the two overlapping paths.
+     */
+    @Nullable
+    public Pair<TaskInternal, String> findOverlap(String path) {
+        Node node = root;
+        for (String segment : SPLITTER.split(path)) {
+            if (!node.tasks.isEmpty()) {
+                return Pair.of(node.tasks.get(0), node.path);
+            }
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        if (node.tasksInSubtree == 0) {
+            return null;
+        }
+        // Some output is the path itself or lives below it, follow any branch that leads to one
+        while (node.tasks.isEmpty()) {
+            for (Node child : node.children.values()) {
+                if (child.tasksInSubtree > 0) {
+                    node = child;
+                    break;
+                }
+            }
+        }
+        return Pair.of(node.tasks.get(0), path);
+    }
+
+    public boolean isEmpty() {
+        return root.tasksInSubtree == 0;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.tasks.clear();
+        root.tasksInSubtree = 0;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private final List<TaskInternal> tasks = new ArrayList<TaskInternal>(1);
+        private String path;
+        private int tasksInSubtree;
+    }
+}
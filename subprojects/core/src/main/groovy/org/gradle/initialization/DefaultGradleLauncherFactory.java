@@ -24,6 +24,8 @@ import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.StandardOutputListener;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.internal.FileLockWaitReporter;
+import org.gradle.cache.internal.FileLockWaitStatistics;
 import org.gradle.configuration.BuildConfigurer;
 import org.gradle.execution.BuildExecuter;
 import org.gradle.initialization.buildsrc.BuildSourceBuilder;
@@ -111,6 +113,8 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         listenerManager.useLogger(new TaskExecutionLogger(serviceRegistry.get(ProgressLoggerFactory.class), loggerProvider));
         if (tracker.getCurrentBuild() == null) {
             listenerManager.useLogger(new BuildLogger(Logging.getLogger(BuildLogger.class), serviceRegistry.get(StyledTextOutputFactory.class), startParameter, requestMetaData));
+            // The statistics are global, so they cover any nested build as well
+            listenerManager.addListener(new FileLockWaitReporter(serviceRegistry.get(FileLockWaitStatistics.class)));
         }
         listenerManager.addListener(tracker);
 
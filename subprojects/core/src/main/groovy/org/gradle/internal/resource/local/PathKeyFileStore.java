@@ -25,6 +25,7 @@ import org.gradle.api.internal.file.IdentityFileResolver;
 import org.gradle.api.internal.file.collections.MinimalFileTree;
 import org.gradle.api.internal.file.collections.SingleIncludePatternFileTree;
 import org.gradle.api.internal.file.copy.DeleteActionImpl;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
@@ -69,6 +70,10 @@ public class PathKeyFileStore implements FileStore<String>, FileStoreSearcher<St
         return saveIntoFileStore(source, getFile(path), true);
     }
 
+    public LocallyAvailableResource move(String path, File source, HashValue sha1) {
+        return move(path, source);
+    }
+
     public LocallyAvailableResource copy(String path, File source) {
         return saveIntoFileStore(source, getFile(path), false);
     }
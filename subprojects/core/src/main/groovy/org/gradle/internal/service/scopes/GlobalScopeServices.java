@@ -126,8 +126,8 @@ public class GlobalScopeServices {
         return new DefaultPluginModuleRegistry(moduleRegistry);
     }
 
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager) {
-        return new DefaultCacheFactory(fileLockManager);
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory) {
+        return new DefaultCacheFactory(fileLockManager, executorFactory);
     }
 
     DefaultClassLoaderRegistry createClassLoaderRegistry(ClassPathRegistry classPathRegistry, ClassLoaderFactory classLoaderFactory) {
@@ -162,11 +162,16 @@ public class GlobalScopeServices {
         return new DefaultExecutorFactory();
     }
 
-    FileLockManager createFileLockManager(ProcessEnvironment processEnvironment, FileLockContentionHandler fileLockContentionHandler) {
+    FileLockWaitStatistics createFileLockWaitStatistics() {
+        return new FileLockWaitStatistics();
+    }
+
+    FileLockManager createFileLockManager(ProcessEnvironment processEnvironment, FileLockContentionHandler fileLockContentionHandler, FileLockWaitStatistics fileLockWaitStatistics) {
         return new DefaultFileLockManager(
                 new DefaultProcessMetaDataProvider(
                         processEnvironment),
-                fileLockContentionHandler);
+                fileLockContentionHandler,
+                fileLockWaitStatistics);
     }
 
     InMemoryTaskArtifactCache createInMemoryTaskArtifactCache() {
@@ -15,6 +15,7 @@
  */
 package org.gradle.internal.service.scopes;
 
+import org.gradle.StartParameter;
 import org.gradle.api.Action;
 import org.gradle.api.internal.DependencyInjectingInstantiator;
 import org.gradle.api.internal.GradleInternal;
@@ -26,7 +27,9 @@ import org.gradle.api.invocation.Gradle;
 import org.gradle.execution.*;
 import org.gradle.execution.commandline.CommandLineTaskConfigurer;
 import org.gradle.execution.commandline.CommandLineTaskParser;
+import org.gradle.execution.taskgraph.DefaultTaskExecutionPlan;
 import org.gradle.execution.taskgraph.DefaultTaskGraphExecuter;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.concurrent.CompositeStoppable;
@@ -93,8 +96,11 @@ public class GradleScopeServices extends DefaultServiceRegistry {
         };
     }
 
-    TaskGraphExecuter createTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken) {
-        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, cancellationToken);
+    TaskGraphExecuter createTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken,
+                                              TaskDurationHistory durationHistory, StartParameter startParameter) {
+        // Ordering by critical path only makes a difference when tasks are executed in parallel
+        boolean prioritizeCriticalPath = startParameter.getParallelThreadCount() != 0 && Boolean.getBoolean(DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE);
+        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, cancellationToken, durationHistory, prioritizeCriticalPath);
     }
 
     ServiceRegistryFactory createServiceRegistryFactory(final ServiceRegistry services) {
@@ -15,6 +15,8 @@
  */
 package org.gradle.internal.service.scopes;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.execution.TaskActionListener;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
@@ -23,10 +25,14 @@ import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactS
 import org.gradle.api.internal.changedetection.state.*;
 import org.gradle.api.internal.hash.DefaultHasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.cache.LocalDirectoryTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheDecorator;
+import org.gradle.execution.taskgraph.DefaultTaskExecutionPlan;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -40,35 +46,55 @@ import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 public class TaskExecutionServices {
-    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager) {
+    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager, TaskOutputCache taskOutputCache) {
+        TaskExecuter executer = new PostExecutionAnalysisTaskExecuter(
+                new ExecuteActionsTaskExecuter(
+                        listenerManager.getBroadcaster(TaskActionListener.class)
+                ));
+        if ("true".equalsIgnoreCase(System.getProperty(SkipCachedTaskExecuter.TOGGLE_PROPERTY))) {
+            executer = new SkipCachedTaskExecuter(taskOutputCache, executer);
+        }
         return new ExecuteAtMostOnceTaskExecuter(
                 new SkipOnlyIfTaskExecuter(
                         new SkipTaskWithNoActionsExecuter(
                                 new SkipEmptySourceFilesTaskExecuter(
                                         new ValidatingTaskExecuter(
-                                                new SkipUpToDateTaskExecuter(repository,
-                                                        new PostExecutionAnalysisTaskExecuter(
-                                                                new ExecuteActionsTaskExecuter(
-                                                                        listenerManager.getBroadcaster(TaskActionListener.class)
-                                                                ))))))));
+                                                new SkipUpToDateTaskExecuter(repository, executer))))));
+    }
+
+    TaskOutputCache createTaskOutputCache(CacheRepository cacheRepository) {
+        long maxSize = Integer.getInteger(LocalDirectoryTaskOutputCache.MAX_SIZE_PROPERTY, LocalDirectoryTaskOutputCache.DEFAULT_MAX_SIZE_MB) * 1024L * 1024L;
+        return new LocalDirectoryTaskOutputCache(cacheRepository, maxSize);
     }
 
-    TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
+    TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, final InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
         CacheDecorator decorator;
         if (environment.isLongLivingProcess()) {
             decorator = inMemoryTaskArtifactCache;
+            gradle.addBuildListener(new BuildAdapter() {
+                @Override
+                public void buildFinished(BuildResult result) {
+                    inMemoryTaskArtifactCache.logStats();
+                }
+            });
         } else {
             decorator = new NoOpDecorator();
         }
         return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
     }
 
-    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
+    CachingFileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
         return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess);
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess);
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, CachingFileSnapshotter fileSnapshotter,
+                                                                  BuildOperationProcessor buildOperationProcessor) {
+        FileCollectionSnapshotter fileCollectionSnapshotter;
+        if ("true".equalsIgnoreCase(System.getProperty(ParallelFileCollectionSnapshotter.TOGGLE_PROPERTY))) {
+            fileCollectionSnapshotter = new ParallelFileCollectionSnapshotter(fileSnapshotter, cacheAccess, buildOperationProcessor);
+        } else {
+            fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess);
+        }
 
         FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess);
 
@@ -88,11 +114,21 @@ public class TaskExecutionServices {
                                 taskHistoryRepository,
                                 instantiator,
                                 outputFilesSnapshotter,
-                                fileCollectionSnapshotter
+                                fileCollectionSnapshotter,
+                                new ClassLoaderHasher(fileSnapshotter, cacheAccess)
                         )
         );
     }
 
+    TaskDurationHistory createTaskDurationHistory(TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter) {
+        // The durations are only used to order the tasks of parallel builds by critical path, or to report the critical path
+        boolean prioritizeCriticalPath = startParameter.getParallelThreadCount() != 0 && Boolean.getBoolean(DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE);
+        if (prioritizeCriticalPath || Boolean.getBoolean(DefaultTaskExecutionPlan.CRITICAL_PATH_REPORT_TOGGLE)) {
+            return new CacheBackedTaskDurationHistory(cacheAccess);
+        }
+        return TaskDurationHistory.NONE;
+    }
+
     TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
         return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
     }
@@ -105,6 +105,10 @@ public class InMemoryCacheFactory implements CacheFactory {
             action.run();
         }
 
+        public <T> T readCache(String operationDisplayName, Factory<? extends T> action) {
+            return useCache(operationDisplayName, action);
+        }
+
         public <T> T longRunningOperation(String operationDisplayName, Factory<? extends T> action) {
             assertNotClosed();
             return action.create();
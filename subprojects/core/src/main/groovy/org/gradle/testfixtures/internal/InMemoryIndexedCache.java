@@ -23,6 +23,7 @@ import org.gradle.internal.serialize.Serializer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -51,6 +52,17 @@ public class InMemoryIndexedCache<K, V> implements PersistentIndexedCache<K, V>
         }
     }
 
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new HashMap<K, V>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
     public void put(K key, V value) {
         ByteArrayOutputStream outstr = new ByteArrayOutputStream();
         OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(outstr);
@@ -64,6 +76,12 @@ public class InMemoryIndexedCache<K, V> implements PersistentIndexedCache<K, V>
         entries.put(key, outstr.toByteArray());
     }
 
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
     public void remove(K key) {
         entries.remove(key);
     }
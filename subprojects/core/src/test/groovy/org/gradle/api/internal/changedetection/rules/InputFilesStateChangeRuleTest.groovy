@@ -62,4 +62,20 @@ public class InputFilesStateChangeRuleTest extends Specification {
         and:
         messages == ["Input file one has been added.", "Input file two has been removed.", "Input file three has changed."]
     }
+
+    def "emits no change without loading the previous input snapshot when the hashes match"() {
+        def previousExecution = Mock(TaskExecution)
+
+        when:
+        def messages = InputFilesStateChangeRule.create(previousExecution, Mock(TaskExecution), inputSnapshot).iterator().collect {it.message}
+
+        then:
+        1 * previousExecution.getInputFilesHash() >> ([1, 2] as byte[])
+        1 * inputSnapshot.getHash() >> ([1, 2] as byte[])
+        0 * previousExecution.getInputFilesSnapshot()
+        0 * inputSnapshot.iterateChangesSince(_)
+
+        and:
+        messages.empty
+    }
 }
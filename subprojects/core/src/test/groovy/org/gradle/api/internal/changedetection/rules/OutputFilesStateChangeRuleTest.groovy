@@ -79,4 +79,29 @@ public class OutputFilesStateChangeRuleTest extends Specification {
         and:
         messages == ["Output file one has been added.", "Output file two has been removed.", "Output file three has changed."]
     }
+
+    def "emits no change without loading the previous output snapshot when the hashes match"() {
+        def taskOutputs = Stub(TaskOutputsInternal) {
+            getFiles() >> new SimpleFileCollection()
+        }
+        def task = Stub(TaskInternal) {
+            getOutputs() >> taskOutputs
+        }
+        def snapshotter = Stub(FileCollectionSnapshotter) {
+            snapshot(_) >> outputSnapshot
+        }
+        def previousExecution = Mock(TaskExecution)
+
+        when:
+        def messages = OutputFilesStateChangeRule.create(task, previousExecution, Mock(TaskExecution), snapshotter).iterator().collect {it.message}
+
+        then:
+        1 * previousExecution.getOutputFilesHash() >> ([1, 2] as byte[])
+        1 * outputSnapshot.getHash() >> ([1, 2] as byte[])
+        0 * previousExecution.getOutputFilesSnapshot()
+        0 * outputSnapshot.iterateChangesSince(_)
+
+        and:
+        messages.empty
+    }
 }
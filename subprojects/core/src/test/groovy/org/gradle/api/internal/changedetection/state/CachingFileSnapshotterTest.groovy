@@ -103,4 +103,23 @@ class CachingFileSnapshotterTest extends Specification {
         1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
         0 * _._
     }
+
+    def looksUpAndUpdatesCachedHashesOfManyFilesInOneBatch() {
+        def changedFile = tmpDir.createFile("changed")
+        def cachedHash = "cached".bytes
+
+        when:
+        def result = hasher.snapshotAll([file, changedFile])
+
+        then:
+        result[file].hash == cachedHash
+        result[changedFile].hash == hash
+
+        and:
+        1 * cache.getAll([file, changedFile]) >> [(file): new CachingFileSnapshotter.FileInfo(cachedHash, file.length(), file.lastModified()),
+                                                  (changedFile): new CachingFileSnapshotter.FileInfo(cachedHash, 1024, changedFile.lastModified())]
+        1 * target.hash(changedFile) >> hash
+        1 * cache.putAll({ it.keySet() == [changedFile] as Set && it[changedFile].hash == hash })
+        0 * _._
+    }
 }
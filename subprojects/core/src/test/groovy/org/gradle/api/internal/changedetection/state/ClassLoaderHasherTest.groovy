@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.cache.internal.NonThreadsafeInMemoryStore
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassLoaderHasherTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def store = new NonThreadsafeInMemoryStore()
+    def hasher = new ClassLoaderHasher(new CachingFileSnapshotter(new DefaultHasher(), store), store)
+    def parent = new URLClassLoader([] as URL[], (ClassLoader) null)
+
+    def "class loaders with the same class path contents have the same hash"() {
+        def classes = tmpDir.file("classes")
+        classes.file("org/Foo.class").createFile().text = "foo"
+
+        expect:
+        hasher.getHash(loader(classes)) == hasher.getHash(loader(classes))
+    }
+
+    def "hash changes when the contents of the class path change"() {
+        def classes = tmpDir.file("classes")
+        def classFile = classes.file("org/Foo.class")
+        classFile.createFile().text = "foo"
+        def original = hasher.getHash(loader(classes))
+
+        when:
+        classFile.text = "changed"
+
+        then:
+        hasher.getHash(loader(classes)) != original
+
+        when:
+        classes.file("org/Bar.class").createFile().text = "bar"
+
+        then:
+        hasher.getHash(loader(classes)) != original
+    }
+
+    def "hash of a class loader changes when the contents of its class path change"() {
+        def classes = tmpDir.file("classes")
+        def classFile = classes.file("org/Foo.class")
+        classFile.createFile().text = "foo"
+        def classLoader = loader(classes)
+        def original = hasher.getHash(classLoader)
+
+        expect:
+        hasher.getHash(classLoader) == original
+
+        when:
+        classFile.text = "changed"
+
+        then:
+        hasher.getHash(classLoader) != original
+
+        when:
+        classFile.text = "foo"
+
+        then:
+        hasher.getHash(classLoader) == original
+    }
+
+    def "hash changes when the parent changes"() {
+        def classes = tmpDir.file("classes")
+        classes.file("org/Foo.class").createFile().text = "foo"
+        def otherParent = new URLClassLoader([tmpDir.file("other").createDir().toURI().toURL()] as URL[], (ClassLoader) null)
+
+        expect:
+        hasher.getHash(loader(classes)) != hasher.getHash(new URLClassLoader([classes.toURI().toURL()] as URL[], otherParent))
+    }
+
+    def "hash is not available for class loaders that do not have a class path"() {
+        def classLoader = new ClassLoader(loader(tmpDir.file("classes"))) {}
+
+        expect:
+        hasher.getHash(classLoader) == null
+        hasher.getHash(new URLClassLoader([] as URL[], classLoader)) == null
+    }
+
+    def "hash of classes includes their names and class loaders"() {
+        expect:
+        hasher.getHash([String]) == hasher.getHash([String])
+        hasher.getHash([String]) != hasher.getHash([Integer])
+        hasher.getHash([String]) != hasher.getHash([String, Integer])
+    }
+
+    private ClassLoader loader(File classes) {
+        return new URLClassLoader([classes.toURI().toURL()] as URL[], parent)
+    }
+}
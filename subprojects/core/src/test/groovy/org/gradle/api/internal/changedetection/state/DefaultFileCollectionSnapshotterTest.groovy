@@ -34,9 +34,11 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
     def setup() {
-        fileSnapshotter.snapshot(_) >> { File file ->
-            return Stub(FileSnapshot) {
-                getHash() >> HashUtil.sha1(file).asByteArray()
+        fileSnapshotter.snapshotAll(_) >> { arguments ->
+            return arguments[0].collectEntries { File file ->
+                [file, Stub(FileSnapshot) {
+                    getHash() >> HashUtil.sha1(file).asByteArray()
+                }]
             }
         }
         cacheAccess.useCache(_, _) >> { String name, Runnable action ->
@@ -342,6 +344,46 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         0 * _
     }
 
+    def diffMergesChangesWithOtherFilesInSnapshot() {
+        TestFile file1 = tmpDir.createFile('file1')
+        TestFile file2 = tmpDir.createFile('file2')
+        TestFile file3 = tmpDir.createFile('file3')
+        TestFile file4 = tmpDir.createFile('file4')
+        TestFile file5 = tmpDir.createFile('file5')
+
+        when:
+        FileCollectionSnapshot original = snapshotter.snapshot(files(file2, file4))
+        file2.write('new content')
+        FileCollectionSnapshot modified = snapshotter.snapshot(files(file2, file3))
+        FileCollectionSnapshot target = modified.changesSince(original).applyTo(snapshotter.snapshot(files(file1, file4, file5)))
+        target.iterateChangesSince(snapshotter.snapshot(files(file1, file2, file3, file5))).next(listener)
+
+        then:
+        _ * listener.stopped >> false
+        _ * listener.resumeAfter >> null
+        0 * _
+
+        and:
+        target.files.files as List == [file1, file2, file3, file5]
+    }
+
+    def snapshotsWithSameContentHaveSameHash() {
+        TestFile file1 = tmpDir.createFile('file1')
+        TestFile file2 = tmpDir.createFile('file2')
+        TestFile dir = tmpDir.createDir('dir')
+
+        expect:
+        def snapshot = snapshotter.snapshot(files(file1, file2, dir))
+        snapshotter.snapshot(files(dir, file2, file1)).hash == snapshot.hash
+        snapshotter.snapshot(files(file1, dir)).hash != snapshot.hash
+
+        when:
+        file2.write('new content')
+
+        then:
+        snapshotter.snapshot(files(file1, file2, dir)).hash != snapshot.hash
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = Mock(FileTree.class)
         _ * collection.asFileTree >> collection
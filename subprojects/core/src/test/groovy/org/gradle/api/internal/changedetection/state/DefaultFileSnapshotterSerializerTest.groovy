@@ -30,9 +30,22 @@ class DefaultFileSnapshotterSerializerTest extends SerializerSpec {
                 "3": new DefaultFileCollectionSnapshotter.FileHashSnapshot("foo".bytes)]), serializer)
 
         then:
-        out.snapshots.size() == 3
-        out.snapshots['1'] instanceof DefaultFileCollectionSnapshotter.DirSnapshot
-        out.snapshots['2'] instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot
-        ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots['3']).hash == "foo".bytes
+        out.paths == ["1", "2", "3"] as String[]
+        out.kinds == [DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.DIR, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.MISSING, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl.FILE] as byte[]
+        out.getHash(0).length == 0
+        out.getHash(1).length == 0
+        out.getHash(2) == "foo".bytes
+    }
+
+    def "reads and writes paths that share a prefix"() {
+        def paths = ["/root/a/b/File.java", "/root/a/b/File2.java", "/root/a/c", "/root/a", "/other", "/root/a/b/Filé.java"]
+        def snapshots = paths.collectEntries { [it, new DefaultFileCollectionSnapshotter.FileHashSnapshot(it.bytes)] }
+
+        when:
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots), serializer)
+
+        then:
+        out.paths == paths.sort() as String[]
+        (0..<out.size()).every { out.getHash(it) == out.paths[it].bytes }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.TimeProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class InMemoryCacheSizerTest extends Specification {
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
+    def timeProvider = Stub(TimeProvider) {
+        getCurrentTime() >> { now }
+    }
+    long now
+    long gcTime
+
+    def "sizes each cache from its share of the heap"() {
+        given:
+        def sizer = new InMemoryCacheSizer(1000 * 1024 * 1024, 10, timeProvider)
+
+        expect:
+        sizer.getMaxWeight("fileHashes") == 31457280
+        sizer.getMaxWeight("fileSnapshots") == 36700160
+        sizer.getMaxWeight("unknown") == 5242880
+    }
+
+    def "uses a minimum weight for small heaps"() {
+        given:
+        def sizer = new InMemoryCacheSizer(1024 * 1024, 1, timeProvider)
+
+        expect:
+        sizer.getMaxWeight("compilationState") == InMemoryCacheSizer.MIN_WEIGHT
+    }
+
+    def "reads heap share from system property"() {
+        when:
+        System.setProperty(InMemoryCacheSizer.HEAP_SHARE_PROPERTY, " 25 ")
+
+        then:
+        InMemoryCacheSizer.heapShareFromSystemProperties() == 25
+
+        when:
+        System.clearProperty(InMemoryCacheSizer.HEAP_SHARE_PROPERTY)
+
+        then:
+        InMemoryCacheSizer.heapShareFromSystemProperties() == InMemoryCacheSizer.DEFAULT_HEAP_SHARE
+    }
+
+    def "rejects invalid heap share"() {
+        given:
+        System.setProperty(InMemoryCacheSizer.HEAP_SHARE_PROPERTY, value)
+
+        when:
+        InMemoryCacheSizer.heapShareFromSystemProperties()
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Invalid value '$value' for system property '${InMemoryCacheSizer.HEAP_SHARE_PROPERTY}'. Expected a percentage between 1 and 100."
+
+        where:
+        value << ["0", "101", "lots"]
+    }
+
+    def "raises the weight factor while the heap is under gc pressure and lowers it again afterwards"() {
+        given:
+        def sizer = new InMemoryCacheSizer(1024, 10, timeProvider) {
+            @Override
+            long getCollectionTime() {
+                return gcTime
+            }
+        }
+
+        when:
+        now = 10000
+        gcTime = 100
+
+        then:
+        sizer.weightFactor == 1
+
+        when:
+        now = 12000
+        gcTime = 500
+
+        then:
+        sizer.weightFactor == 2
+
+        when:
+        now = 12500
+        gcTime = 1000
+
+        then:
+        sizer.weightFactor == 2
+
+        when:
+        now = 13500
+        gcTime = 1500
+
+        then:
+        sizer.weightFactor == 4
+
+        when:
+        now = 15500
+        gcTime = 1600
+
+        then:
+        sizer.weightFactor == 2
+    }
+
+    def "limits the weight factor"() {
+        given:
+        def sizer = new InMemoryCacheSizer(1024, 10, timeProvider) {
+            @Override
+            long getCollectionTime() {
+                return gcTime
+            }
+        }
+
+        when:
+        10.times {
+            now += 1000
+            gcTime += 500
+            sizer.weightFactor
+        }
+
+        then:
+        sizer.weightFactor == InMemoryCacheSizer.MAX_WEIGHT_FACTOR
+    }
+}
@@ -133,4 +133,102 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "fetches entries that are not cached from backing cache in one batch"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        1 * target.get("key1") >> "result1"
+        cache.get("key1")
+
+        when:
+        def result = cache.getAll(["key1", "key2", "key3"])
+
+        then:
+        result == [key1: "result1", key2: "result2"]
+
+        and:
+        1 * target.getAll(["key2", "key3"]) >> [key2: "result2"]
+        0 * target._
+
+        when:
+        result = cache.getAll(["key1", "key2", "key3"])
+
+        then:
+        result == [key1: "result1", key2: "result2"]
+
+        and:
+        0 * target._
+    }
+
+    def "caches result of putting several items"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+
+        when:
+        cache.putAll([key1: "value1", key2: "value2"])
+
+        then:
+        1 * target.putAll([key1: "value1", key2: "value2"])
+        0 * target._
+
+        when:
+        def result = cache.getAll(["key1", "key2"])
+
+        then:
+        result == [key1: "value1", key2: "value2"]
+
+        and:
+        0 * target._
+    }
+
+    def "sizes cache from sizer"() {
+        given:
+        def sizer = Stub(InMemoryCacheSizer) {
+            getKnownCacheCount() >> 6
+            getMaxWeight("fileSnapshots") >> 2 * entryWeight(1)
+            getWeightFactor() >> 1
+        }
+        def cache = new InMemoryTaskArtifactCache(sizer).decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+
+        when:
+        cache.get("key1")
+        cache.get("key2")
+        cache.get("key3")
+        cache.get("key1")
+
+        then:
+        2 * target.get("key1") >> "value1"
+        1 * target.get("key2") >> "value2"
+        1 * target.get("key3") >> "value3"
+        0 * target._
+    }
+
+    def "evicts the least recently used entries once the weight factor is raised under gc pressure"() {
+        given:
+        def weightFactor = 1
+        def sizer = Stub(InMemoryCacheSizer) {
+            getKnownCacheCount() >> 6
+            getMaxWeight("fileSnapshots") >> 4 * entryWeight(1)
+            getWeightFactor() >> { weightFactor }
+        }
+        def cache = new InMemoryTaskArtifactCache(sizer).decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        4.times { cache.put("key" + it, "value" + it) }
+
+        when:
+        weightFactor = 2
+        cache.get("key4")
+        cache.get("key3")
+        cache.get("key0")
+
+        then:
+        1 * target.get("key4") >> "value4"
+        1 * target.get("key0") >> "value0"
+        0 * target._
+    }
+
+    private int entryWeight(int weightFactor) {
+        def sizer = Stub(InMemoryCacheSizer) {
+            getWeightFactor() >> weightFactor
+        }
+        return new InMemoryCacheEntryWeigher(sizer).weigh("key0", "value0")
+    }
 }
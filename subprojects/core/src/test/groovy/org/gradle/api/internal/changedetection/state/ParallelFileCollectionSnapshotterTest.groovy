@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.file.FileTree
+import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.api.internal.hash.Hasher
+import org.gradle.cache.internal.NonThreadsafeInMemoryStore
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.ChangeListener
+import org.junit.Rule
+import spock.lang.Specification
+
+class ParallelFileCollectionSnapshotterTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def hasher = Mock(Hasher)
+    // Not a Spock stub, as the stub would hold the mock controller lock while the workers call the hasher mock
+    def cacheAccess = [useCache: { String name, Runnable action -> action.run() }] as TaskArtifactStateCacheAccess
+    def fileSnapshotter = new CachingFileSnapshotter(hasher, new NonThreadsafeInMemoryStore())
+    def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+    def snapshotter = new ParallelFileCollectionSnapshotter(fileSnapshotter, cacheAccess, buildOperationProcessor)
+    def sequentialSnapshotter = new DefaultFileCollectionSnapshotter(new CachingFileSnapshotter(new DefaultHasher(), new NonThreadsafeInMemoryStore()), cacheAccess)
+
+    def cleanup() {
+        buildOperationProcessor.stop()
+    }
+
+    def "creates the same snapshot as the sequential snapshotter"() {
+        given:
+        def files = createFiles(250)
+        files << tmpDir.createDir("dir") << tmpDir.file("missing")
+        def listener = Mock(ChangeListener)
+
+        when:
+        def parallel = snapshotter.snapshot(fileCollection(files))
+        def sequential = sequentialSnapshotter.snapshot(fileCollection(files))
+        parallel.iterateChangesSince(sequential).next(listener)
+
+        then:
+        250 * hasher.hash(_) >> { File file -> hash(file) }
+        parallel.files.files == files.findAll { it.file } as Set
+        0 * listener._
+    }
+
+    def "hashes only the files that changed since the previous snapshot"() {
+        given:
+        def files = createFiles(150)
+        _ * hasher.hash(_) >> { File file -> hash(file) }
+        snapshotter.snapshot(fileCollection(files))
+        files[3].text = "changed"
+        def listener = Mock(ChangeListener)
+
+        when:
+        def before = sequentialSnapshotter.snapshot(fileCollection(files))
+        def after = snapshotter.snapshot(fileCollection(files))
+        after.iterateChangesSince(before).next(listener)
+
+        then:
+        1 * hasher.hash(files[3]) >> hash(files[3])
+        0 * hasher.hash(_)
+        0 * listener._
+    }
+
+    def "snapshots small collections on the calling thread"() {
+        given:
+        def files = createFiles(3)
+
+        when:
+        def snapshot = snapshotter.snapshot(fileCollection(files))
+
+        then:
+        snapshot.files.files == files as Set
+        3 * hasher.hash(_) >> { File file -> hash(file) }
+    }
+
+    private static byte[] hash(File file) {
+        return new DefaultHasher().hash(file)
+    }
+
+    private List<TestFile> createFiles(int count) {
+        return (0..<count).collect {
+            def file = tmpDir.file("file$it")
+            file.text = "content $it"
+            file
+        }
+    }
+
+    private FileCollection fileCollection(Collection<File> files) {
+        FileTree collection = Mock(FileTree.class)
+        _ * collection.asFileTree >> collection
+        _ * collection.getFiles() >> (files as Set)
+        return collection
+    }
+}
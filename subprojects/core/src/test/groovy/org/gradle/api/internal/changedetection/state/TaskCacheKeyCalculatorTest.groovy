@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.HashValue
+import spock.lang.Specification
+
+class TaskCacheKeyCalculatorTest extends Specification {
+    def calculator = new TaskCacheKeyCalculator(getClass().classLoader)
+    def implementationHash = new HashValue("abc")
+    def inputFilesHash = [1, 2, 3] as byte[]
+
+    def "executions with same inputs have same key"() {
+        def first = execution("SomeTask", [b: "value", a: 12], ["/out/b", "/out/a"])
+        def second = execution("SomeTask", [a: 12, b: "value"], ["/out/a", "/out/b"])
+
+        expect:
+        calculator.calculate(first, implementationHash, inputFilesHash) == calculator.calculate(second, implementationHash, inputFilesHash)
+    }
+
+    def "key changes when any of the inputs change"() {
+        def key = calculator.calculate(execution("SomeTask", [a: 12], ["/out"]), implementationHash, inputFilesHash)
+
+        expect:
+        calculator.calculate(execution("OtherTask", [a: 12], ["/out"]), implementationHash, inputFilesHash) != key
+        calculator.calculate(execution("SomeTask", [a: 13], ["/out"]), implementationHash, inputFilesHash) != key
+        calculator.calculate(execution("SomeTask", [:], ["/out"]), implementationHash, inputFilesHash) != key
+        calculator.calculate(execution("SomeTask", [a: 12], ["/other"]), implementationHash, inputFilesHash) != key
+        calculator.calculate(execution("SomeTask", [a: 12], ["/out"]), implementationHash, [1, 2, 4] as byte[]) != key
+        calculator.calculate(execution("SomeTask", [a: 12], ["/out"]), new HashValue("abd"), inputFilesHash) != key
+    }
+
+    private TaskExecution execution(String taskClass, Map<String, Object> inputProperties, List<String> outputFiles) {
+        TaskExecution execution = Stub(TaskExecution)
+        _ * execution.taskClass >> taskClass
+        _ * execution.inputProperties >> inputProperties
+        _ * execution.outputFiles >> (outputFiles as Set)
+        return execution
+    }
+}
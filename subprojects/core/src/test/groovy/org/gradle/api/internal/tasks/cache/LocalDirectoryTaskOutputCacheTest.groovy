@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.hash.HashValue
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class LocalDirectoryTaskOutputCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheDir = tmpDir.createDir("cache")
+    def persistentCache = Mock(PersistentCache)
+    def cacheBuilder = Mock(CacheBuilder)
+    def cacheRepository = Mock(CacheRepository)
+    def key = new HashValue("0123456789abcdef")
+
+    def setup() {
+        _ * cacheRepository.cache("taskOutputs") >> cacheBuilder
+        _ * cacheBuilder.withDisplayName(_) >> cacheBuilder
+        _ * cacheBuilder.withLockOptions(_) >> cacheBuilder
+        _ * cacheBuilder.open() >> persistentCache
+        _ * persistentCache.baseDir >> cacheDir
+    }
+
+    def "restores stored output files and directories"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheRepository, 1024 * 1024)
+        def outputFile = tmpDir.createFile("build/output.txt")
+        outputFile.text = "output"
+        def outputDir = tmpDir.createDir("build/classes")
+        outputDir.file("a/A.class").createFile().text = "A"
+        outputDir.file("a/b/B.class").createFile().text = "B"
+        outputDir.createDir("empty")
+        def outputs = [outputFile, outputDir]
+
+        when:
+        cache.store(key, outputs)
+        outputFile.delete()
+        outputDir.deleteDir()
+        tmpDir.createFile("build/classes/a/Stale.class").text = "stale"
+
+        then:
+        cache.load(key, outputs)
+        outputFile.text == "output"
+        outputDir.file("a/A.class").createFile().text == "A"
+        outputDir.file("a/b/B.class").createFile().text == "B"
+        outputDir.file("empty").directory
+        !outputDir.file("a/Stale.class").exists()
+    }
+
+    def "does not load outputs for unknown key"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheRepository, 1024 * 1024)
+        def outputFile = tmpDir.createFile("build/output.txt")
+        outputFile.text = "output"
+
+        expect:
+        !cache.load(key, [outputFile])
+        outputFile.text == "output"
+    }
+
+    def "leaves outputs untouched and removes the entry when the entry is broken"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheRepository, 1024 * 1024)
+        def outputDir = tmpDir.createDir("build/classes")
+        outputDir.file("A.class").createFile().text = "A"
+        def entry = cacheDir.file(key.asCompactString() + ".zip")
+        def zipStream = new ZipOutputStream(new FileOutputStream(entry))
+        zipStream.putNextEntry(new ZipEntry("0/B.class"))
+        zipStream.write("B".bytes)
+        zipStream.closeEntry()
+        zipStream.putNextEntry(new ZipEntry("broken"))
+        zipStream.closeEntry()
+        zipStream.close()
+
+        expect:
+        !cache.load(key, [outputDir])
+        outputDir.file("A.class").text == "A"
+        !outputDir.file("B.class").exists()
+        !entry.exists()
+        cacheDir.list() as List == []
+    }
+
+    def "removes least recently used entries when cache is too large"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheRepository, 7000)
+        def outputFile = tmpDir.createFile("build/output.txt")
+        def keys = (1..3).collect { new HashValue(Integer.toHexString(it)) }
+        keys.eachWithIndex { HashValue key, int i ->
+            outputFile.text = randomContent(i)
+            cache.store(key, [outputFile])
+        }
+        def entries = cacheDir.listFiles().sort { it.name }
+        entries[0].lastModified = 3000
+        entries[1].lastModified = 1000
+        entries[2].lastModified = 2000
+
+        when:
+        cache.stop()
+
+        then:
+        1 * persistentCache.close()
+        cacheDir.listFiles().collect { it.name }.sort() == [entries[0].name, entries[2].name]
+    }
+
+    def "keeps entries used since they were stored"() {
+        def cache = new LocalDirectoryTaskOutputCache(cacheRepository, 1024 * 1024)
+        def outputFile = tmpDir.createFile("build/output.txt")
+        outputFile.text = "output"
+        cache.store(key, [outputFile])
+        def entry = cacheDir.listFiles()[0]
+        entry.lastModified = 1000
+
+        when:
+        cache.load(key, [outputFile])
+
+        then:
+        entry.lastModified() > 1000
+    }
+
+    private static String randomContent(int seed) {
+        def bytes = new byte[3000]
+        new Random(seed).nextBytes(bytes)
+        return new BigInteger(1, bytes).toString(36)
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.internal.tasks.cache.TaskOutputCache
+import org.gradle.internal.hash.HashValue
+import spock.lang.Specification
+
+class SkipCachedTaskExecuterTest extends Specification {
+    def delegate = Mock(TaskExecuter)
+    def task = Mock(TaskInternal)
+    def outputs = Mock(TaskOutputsInternal)
+    def outputFiles = Mock(FileCollection)
+    def state = Mock(TaskStateInternal)
+    def context = Mock(TaskExecutionContext)
+    def taskArtifactState = Mock(TaskArtifactState)
+    def cache = Mock(TaskOutputCache)
+    def cacheKey = new HashValue("0123456789abcdef")
+    def files = [new File("out")] as Set
+    def executer = new SkipCachedTaskExecuter(cache, delegate)
+
+    def setup() {
+        _ * task.outputs >> outputs
+        _ * outputs.files >> outputFiles
+        _ * outputFiles.files >> files
+    }
+
+    def "skips task when outputs are loaded from cache"() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * cache.load(cacheKey, files) >> true
+        1 * state.setDidWork(true)
+        1 * state.skipped("FROM-CACHE")
+        0 * delegate._
+        0 * cache._
+    }
+
+    def "executes task and stores outputs when not in cache"() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * cache.load(cacheKey, files) >> false
+
+        then:
+        1 * delegate.execute(task, state, context)
+
+        then:
+        1 * state.failure >> null
+        1 * cache.store(cacheKey, files)
+        0 * state.skipped(_)
+    }
+
+    def "does not store outputs when task fails"() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> cacheKey
+        1 * cache.load(cacheKey, files) >> false
+        1 * delegate.execute(task, state, context)
+        1 * state.failure >> new RuntimeException()
+        0 * cache.store(_, _)
+    }
+
+    def "executes task without using cache when task has no cache key"() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey() >> null
+        1 * delegate.execute(task, state, context)
+        0 * cache._
+    }
+}
@@ -38,8 +38,9 @@ abstract class AbstractFileLockManagerTest extends Specification {
     def metaDataProvider = Mock(ProcessMetaDataProvider)
     def generator = Stub(IdGenerator)
     def contentionHandler = Stub(FileLockContentionHandler)
+    def lockWaitStatistics = new FileLockWaitStatistics()
 
-    FileLockManager manager = new DefaultFileLockManager(metaDataProvider, 5000, contentionHandler, generator)
+    FileLockManager manager = new DefaultFileLockManager(metaDataProvider, 5000, contentionHandler, generator, lockWaitStatistics)
 
     TestFile testFile
     TestFile testFileLock
@@ -128,6 +129,17 @@ abstract class AbstractFileLockManagerTest extends Specification {
         lockMode << [Exclusive, Shared]
     }
 
+    def "records the time waited for each lock"() {
+        when:
+        createLock(Exclusive).close()
+        createLock(Exclusive).close()
+
+        then:
+        def waits = lockWaitStatistics.collect()
+        waits*.lockDisplayName == ["foo"]
+        waits[0].count == 2
+    }
+
     def "can lock a file after it has been closed"() {
         given:
         def fileLock = createLock(Exclusive)
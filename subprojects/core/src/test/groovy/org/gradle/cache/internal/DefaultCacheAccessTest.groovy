@@ -18,6 +18,8 @@ package org.gradle.cache.internal
 import org.gradle.cache.PersistentIndexedCacheParameters
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
 import org.gradle.internal.serialize.Serializer
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -38,7 +40,7 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     DefaultCacheAccess access = newAccess()
 
     private DefaultCacheAccess newAccess() {
-        new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction) {
+        new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction, Mock(ExecutorFactory)) {
             @Override
             def <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
                 return backingCache
@@ -46,6 +48,15 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         }
     }
 
+    private DefaultCacheAccess newConcurrentReadsAccess() {
+        System.setProperty(DefaultCacheAccess.CONCURRENT_READS_PROPERTY, "true")
+        try {
+            return newAccess()
+        } finally {
+            System.clearProperty(DefaultCacheAccess.CONCURRENT_READS_PROPERTY)
+        }
+    }
+
     def "acquires lock on open and releases on close when lock mode is shared"() {
         when:
         access.open(mode(Shared))
@@ -340,6 +351,120 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         thrown(UnsupportedOperationException)
     }
 
+    def "read operation is exclusive when concurrent reads are not enabled"() {
+        Factory<String> action = Mock()
+
+        when:
+        access.open(mode(None))
+        access.readCache("some operation", action)
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "some operation") >> lock
+        1 * action.create() >> { assert access.owner == Thread.currentThread() }
+
+        and:
+        !access.owner
+    }
+
+    def "read operations run concurrently when concurrent reads are enabled"() {
+        given:
+        access = newConcurrentReadsAccess()
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+        access.useCache("acquire lock", Mock(Runnable))
+
+        when:
+        async {
+            start {
+                access.readCache("read 1", {
+                    instant.read1Started
+                    thread.blockUntil.read2Done
+                    instant.read1Done
+                } as Factory)
+            }
+            start {
+                access.readCache("read 2", {
+                    thread.blockUntil.read1Started
+                    assert !access.owner
+                    instant.read2Done
+                } as Factory)
+            }
+        }
+
+        then:
+        instant.read1Done > instant.read2Done
+    }
+
+    def "use cache operation waits for read operations to complete"() {
+        given:
+        access = newConcurrentReadsAccess()
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+
+        when:
+        async {
+            start {
+                access.readCache("read", {
+                    instant.readStarted
+                    thread.block()
+                    instant.readDone
+                } as Factory)
+            }
+            start {
+                thread.blockUntil.readStarted
+                access.useCache("write") {
+                    instant.writeStarted
+                }
+            }
+        }
+
+        then:
+        instant.writeStarted > instant.readDone
+    }
+
+    def "cannot use cache from within a read operation"() {
+        given:
+        access = newConcurrentReadsAccess()
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+        access.useCache("acquire lock", Mock(Runnable))
+
+        when:
+        async {
+            start {
+                access.readCache("read", {
+                    access.useCache("write", Mock(Runnable))
+                } as Factory)
+            }
+        }
+
+        then:
+        IllegalStateException e = thrown()
+        e.message == "Cannot write to <display-name> while reading from it."
+    }
+
+    def "contended read operation closes the lock when the last reader completes"() {
+        given:
+        access = newConcurrentReadsAccess()
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        access.open(mode(None))
+        access.useCache("acquire lock", Mock(Runnable))
+
+        when:
+        async {
+            start {
+                access.readCache("read", {
+                    access.whenContended().run()
+                    assert access.fileAccess.readFile({ "value" } as Factory) == null
+                } as Factory)
+            }
+        }
+
+        then:
+        1 * lock.readFile(_)
+        1 * lock.close()
+    }
+
     def "long running operation pushes an operation and releases ownership but not lock"() {
         Factory<String> action = Mock()
 
@@ -552,4 +677,37 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         1 * lock.close()
     }
 
-}
\ No newline at end of file
+    def "writes changes to indexed caches in the background while the lock is marked as being written"() {
+        given:
+        def writes = []
+        def executorFactory = Stub(ExecutorFactory) {
+            create(_) >> Stub(StoppableExecutor) {
+                execute(_) >> { Runnable write -> writes << write }
+            }
+        }
+        def cacheFile = cacheDir.createDir().file("cache.bin")
+        lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "use cache") >> lock
+        System.setProperty(DefaultCacheAccess.WRITE_BEHIND_PROPERTY, "true")
+        def access = new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction, executorFactory)
+        access.open(mode(None))
+        def cache = access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+
+        when:
+        access.useCache("use cache", { cache.put("key", 12) })
+
+        then:
+        2 * lock.writeFile(_) >> { Runnable action -> action.run() }
+        writes.size() == 1
+
+        when:
+        def lengthBeforeWrite = cacheFile.length()
+        writes[0].run()
+
+        then:
+        1 * lock.writeFile(_) >> { Runnable action -> action.run() }
+        cacheFile.length() > lengthBeforeWrite
+
+        cleanup:
+        System.clearProperty(DefaultCacheAccess.WRITE_BEHIND_PROPERTY)
+    }
+}
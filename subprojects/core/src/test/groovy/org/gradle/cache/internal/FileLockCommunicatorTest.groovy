@@ -62,6 +62,27 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
         }
     }
 
+    def "can receive release notification"() {
+        FileLockCommunicator.Message message = null
+        def owner = new FileLockCommunicator(new InetAddressFactory())
+        start {
+            def request = owner.receiveMessage()
+            owner.notifyReleased(request.sender, request.lockId)
+            message = communicator.receiveMessage()
+        }
+
+        when:
+        communicator.pingOwner(owner.getPort(), 155, "lock")
+
+        then:
+        poll {
+            assert message != null && message.released && message.lockId == 155
+        }
+
+        cleanup:
+        owner.stop()
+    }
+
     def "may not receive after the stop"() {
         communicator.stop()
         when:
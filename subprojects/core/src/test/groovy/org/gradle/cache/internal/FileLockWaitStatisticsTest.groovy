@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import spock.lang.Specification
+
+class FileLockWaitStatisticsTest extends Specification {
+    def statistics = new FileLockWaitStatistics()
+
+    def "collects the count, total and maximum wait time of each lock"() {
+        when:
+        statistics.lockAcquired("lock 1", 10)
+        statistics.lockAcquired("lock 2", 50)
+        statistics.lockAcquired("lock 1", 30)
+        statistics.lockAcquired("lock 1", 0)
+        def waits = statistics.collect()
+
+        then:
+        waits.size() == 2
+        waits[0].lockDisplayName == "lock 2"
+        waits[0].count == 1
+        waits[0].totalMs == 50
+        waits[0].maxMs == 50
+        waits[1].lockDisplayName == "lock 1"
+        waits[1].count == 3
+        waits[1].totalMs == 40
+        waits[1].maxMs == 30
+    }
+
+    def "starts collecting anew after the wait times are collected"() {
+        given:
+        statistics.lockAcquired("lock 1", 10)
+        statistics.collect()
+
+        when:
+        statistics.lockAcquired("lock 2", 20)
+        def waits = statistics.collect()
+
+        then:
+        waits*.lockDisplayName == ["lock 2"]
+        statistics.collect().empty
+    }
+}
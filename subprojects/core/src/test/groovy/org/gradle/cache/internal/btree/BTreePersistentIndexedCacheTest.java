@@ -27,6 +27,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertNull;
@@ -258,6 +262,150 @@ public class BTreePersistentIndexedCacheTest {
         assertThat(cache.get(key2), equalTo(2));
     }
 
+    @Test
+    public void getAllReturnsValuesOfExistingEntries() {
+        Map<String, Integer> added = checkAdds(Arrays.asList(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0));
+
+        List<String> keys = new ArrayList<String>(added.keySet());
+        keys.add("unknown");
+        assertThat(cache.getAll(keys), equalTo(added));
+        assertThat(cache.getAll(Collections.<String>emptyList()).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void getAllReturnsSameValuesAsGetForLargeNumberOfEntries() {
+        Map<String, Integer> added = new HashMap<String, Integer>();
+        for (int i = 0; i < 500; i++) {
+            added.put(String.format("key_%d", i), i);
+        }
+        cache.putAll(added);
+
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 1000; i += 3) {
+            keys.add(String.format("key_%d", i));
+        }
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (String key : keys) {
+            Integer value = cache.get(key);
+            if (value != null) {
+                expected.put(key, value);
+            }
+        }
+        assertThat(cache.getAll(keys), equalTo(expected));
+        cache.verify();
+    }
+
+    @Test
+    public void persistsEntriesAddedInBatch() {
+        Map<String, Integer> added = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < 50; i++) {
+            added.put(String.format("key_%d", i), i);
+        }
+        cache.putAll(added);
+        cache.put("key_3", 12);
+        added.put("key_3", 12);
+
+        cache.reset();
+
+        for (Map.Entry<String, Integer> entry : added.entrySet()) {
+            assertThat(cache.get(entry.getKey()), equalTo(entry.getValue()));
+        }
+        cache.verify();
+    }
+
+    @Test
+    public void writesChangesUsingWriteBehindExecutor() {
+        final List<Runnable> pending = new ArrayList<Runnable>();
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                pending.add(command);
+            }
+        };
+        final AtomicInteger writes = new AtomicInteger();
+        BlockStore backingStore = new FileBackedBlockStore(cacheFile) {
+            @Override
+            public void write(BlockPayload block) {
+                writes.incrementAndGet();
+                super.write(block);
+            }
+        };
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, backingStore, stringSerializer, integerSerializer, (short) 4, 100, executor);
+
+        cache.put("key_1", 1);
+        cache.put("key_2", 2);
+
+        assertThat(writes.get(), equalTo(0));
+        assertThat(pending.size(), equalTo(1));
+
+        pending.remove(0).run();
+
+        assertThat(writes.get(), greaterThan(0));
+        assertThat(cache.get("key_1"), equalTo(1));
+        assertThat(cache.get("key_2"), equalTo(2));
+        cache.verify();
+    }
+
+    @Test
+    public void writesRemainingChangesOnCloseWhenUsingWriteBehindExecutor() {
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+            }
+        };
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, new FileBackedBlockStore(cacheFile), stringSerializer, integerSerializer, (short) 4, 100, executor);
+
+        checkAdds(1, 2, 3, 4, 5, 6, 7, 8);
+        cache.close();
+
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        for (int i = 1; i <= 8; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i));
+        }
+        cache.verify();
+    }
+
+    @Test
+    public void writesChangesWhenTooManyBlocksAreDirtyWhenUsingWriteBehindExecutor() {
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+            }
+        };
+        final AtomicInteger writes = new AtomicInteger();
+        BlockStore backingStore = new FileBackedBlockStore(cacheFile) {
+            @Override
+            public void write(BlockPayload block) {
+                writes.incrementAndGet();
+                super.write(block);
+            }
+        };
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, backingStore, stringSerializer, integerSerializer, (short) 4, 100, executor);
+
+        for (int i = 0; i < CachingBlockStore.MAX_DIRTY_BLOCKS; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+
+        assertThat(writes.get(), greaterThanOrEqualTo(CachingBlockStore.MAX_DIRTY_BLOCKS));
+        cache.verify();
+    }
+
+    @Test
+    public void canHandleLargeNumberOfEntriesWhenUsingWriteBehindExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, new FileBackedBlockStore(cacheFile), stringSerializer, integerSerializer, (short) 4, 100, executor);
+
+            List<Integer> values = new ArrayList<Integer>();
+            for (int i = 0; i < 2000; i++) {
+                values.add(i);
+            }
+            checkAddsAndRemoves(null, values);
+            checkAdds(values);
+            cache.verify();
+        } finally {
+            cache.close();
+            executor.shutdown();
+        }
+    }
+
     private void checkAdds(Integer... values) {
         checkAdds(Arrays.asList(values));
     }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final cacheFile = tmpDir.file("cache.bin")
+    final serializer = new DefaultSerializer<String>()
+
+    def "persists entries spread over multiple regions"() {
+        def cache = mappedCache()
+
+        when:
+        (1..200).each { cache.put("key_$it".toString(), "value_$it".toString()) }
+
+        then:
+        (1..200).every { cache.get("key_$it".toString()) == "value_$it".toString() }
+        cacheFile.length() > 256
+
+        when:
+        cache.reset()
+
+        then:
+        (1..200).every { cache.get("key_$it".toString()) == "value_$it".toString() }
+
+        and:
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "persists replaced and removed entries"() {
+        def cache = mappedCache()
+
+        when:
+        (1..20).each { cache.put("key_$it".toString(), "value_$it".toString()) }
+        cache.put("key_3", "a much longer value than the original one")
+        cache.put("key_4", "v")
+        cache.remove("key_5")
+        cache.reset()
+
+        then:
+        cache.get("key_3") == "a much longer value than the original one"
+        cache.get("key_4") == "v"
+        cache.get("key_5") == null
+        cache.get("key_6") == "value_6"
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "uses the same file format as the stream based store"() {
+        def cache = mappedCache()
+        (1..50).each { cache.put("key_$it".toString(), "value_$it".toString()) }
+        cache.close()
+
+        when:
+        def fileBacked = new BTreePersistentIndexedCache<String, String>(cacheFile, serializer, serializer, (short) 4, 100)
+
+        then:
+        (1..50).every { fileBacked.get("key_$it".toString()) == "value_$it".toString() }
+        fileBacked.verify()
+
+        when:
+        (51..100).each { fileBacked.put("key_$it".toString(), "value_$it".toString()) }
+        fileBacked.close()
+        cache = mappedCache()
+
+        then:
+        (1..100).every { cache.get("key_$it".toString()) == "value_$it".toString() }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "releases the file when closed"() {
+        def cache = mappedCache()
+        (1..200).each { cache.put("key_$it".toString(), "value_$it".toString()) }
+        (1..200).each { cache.get("key_$it".toString()) }
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.delete()
+
+        when:
+        cache = mappedCache()
+
+        then:
+        cache.get("key_1") == null
+
+        when:
+        cache.put("key_1", "value_1")
+        cache.reset()
+
+        then:
+        cache.get("key_1") == "value_1"
+
+        cleanup:
+        cache.close()
+    }
+
+    private BTreePersistentIndexedCache<String, String> mappedCache() {
+        // Use a tiny region size, so that blocks straddle region boundaries
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, new MappedFileBlockStore(cacheFile, 256), serializer, serializer, (short) 4, 100)
+    }
+}
@@ -113,6 +113,67 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         canHandleMoreRequests()
     }
 
+    def "notifies the processes waiting for a lock once it is released"() {
+        def notified = new AtomicBoolean()
+        int port = handler.reservePort()
+        handler.start(10, {} as Runnable)
+
+        when:
+        start {
+            notified.set(client.waitForRelease(port, 10, "lock 1", 20000))
+        }
+        sleep(300) //so that the owner receives the ping
+        handler.stop(10)
+        handler.released(10)
+
+        then:
+        poll {
+            assert notified.get()
+        }
+    }
+
+    def "notifies all threads waiting for a lock once it is released"() {
+        def notified1 = new AtomicBoolean()
+        def notified2 = new AtomicBoolean()
+        int port = handler.reservePort()
+        handler.start(10, {} as Runnable)
+
+        when:
+        start {
+            notified1.set(client.waitForRelease(port, 10, "lock 1", 20000))
+        }
+        start {
+            notified2.set(client.waitForRelease(port, 10, "lock 1", 20000))
+        }
+        sleep(300) //so that the owner receives the pings
+        handler.stop(10)
+        handler.released(10)
+
+        then:
+        poll {
+            assert notified1.get() && notified2.get()
+        }
+    }
+
+    def "waiting for a lock times out when the owner does not notify"() {
+        int port = handler.reservePort()
+        handler.start(10, {} as Runnable)
+
+        expect:
+        !client.waitForRelease(port, 10, "lock 1", 100)
+    }
+
+    def "does not notify the processes waiting for a lock until it is released"() {
+        int port = handler.reservePort()
+        handler.start(10, {} as Runnable)
+
+        when:
+        handler.stop(10)
+
+        then:
+        !client.waitForRelease(port, 10, "lock 1", 300)
+    }
+
     private void canHandleMoreRequests() {
         def executed = new AtomicBoolean()
         int port = handler.reservePort();
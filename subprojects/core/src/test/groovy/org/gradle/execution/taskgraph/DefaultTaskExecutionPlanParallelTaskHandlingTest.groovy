@@ -177,6 +177,73 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         requestedTasksBecomeAvailableForExecution()
     }
 
+    def "all tasks that become available when a dependency completes are handed to waiting workers"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel).dependsOn(a)
+        Task c = root.task("c", type: Parallel).dependsOn(a)
+
+        when:
+        addToGraphAndPopulate(b, c)
+        startTasks(1)
+
+        then:
+        noMoreTasksCurrentlyAvailableForExecution()
+        noMoreTasksCurrentlyAvailableForExecution()
+
+        when:
+        completeAllStartedTasks()
+
+        then:
+        requestedTasksBecomeAvailableForExecution()
+    }
+
+    def "ready tasks with the longest chain of dependent work are handed out first"() {
+        given:
+        def durations = [":a": 10L, ":b": 10L, ":c": 100L]
+        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true, [getDurations: { durations }] as TaskDurationHistory, true)
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(a, c)
+        startTasks(2)
+
+        then:
+        startedTasks*.task == [b, a]
+    }
+
+    def "tasks are handed out in plan order when critical path prioritization is off"() {
+        given:
+        def durations = [":a": 10L, ":b": 10L, ":c": 100L]
+        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true, [getDurations: { durations }] as TaskDurationHistory, false)
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(a, c)
+        startTasks(2)
+
+        then:
+        startedTasks*.task == [a, b]
+    }
+
+    def "logs rather than throws failures to record the task durations"() {
+        given:
+        def history = [getDurations: { [:] }, recordDurations: { throw new RuntimeException("broken") }] as TaskDurationHistory
+        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true, history, true)
+        Task a = root.task("a", type: Parallel)
+
+        when:
+        addToGraphAndPopulate(a)
+        executionPlan.recordTaskDurations()
+
+        then:
+        noExceptionThrown()
+    }
+
     def "a parallelizable task with custom actions is not run in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
@@ -252,6 +319,29 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         }
     }
 
+    def "outputs of tasks are resolved once before execution"() {
+        given:
+        int resolved = 0
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        [a, b].each { task ->
+            task.outputs.file({ resolved++; file(task.name) })
+        }
+
+        when:
+        addToGraphAndPopulate(a, b)
+        executionPlan.resolveOutputPaths()
+
+        then:
+        resolved == 2
+
+        when:
+        startTasks(2)
+
+        then:
+        resolved == 2
+    }
+
     def "a task that writes into a directory that is an output of currently running task is not started"() {
         given:
         Task a = taskWithOutputDirectory("a", file("outputDir"))
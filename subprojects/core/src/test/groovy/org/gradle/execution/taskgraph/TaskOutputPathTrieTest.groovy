@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class TaskOutputPathTrieTest extends Specification {
+    def trie = new TaskOutputPathTrie()
+    def a = Stub(TaskInternal)
+    def b = Stub(TaskInternal)
+
+    def "finds no overlap when empty"() {
+        expect:
+        trie.isEmpty()
+        trie.findOverlap(path("build/out")) == null
+    }
+
+    def "finds task with the same output"() {
+        given:
+        trie.add(path("build/out"), a)
+
+        expect:
+        overlap(path("build/out")) == [a, path("build/out")]
+    }
+
+    def "finds task with an output that is an ancestor of the path"() {
+        given:
+        trie.add(path("build"), a)
+
+        expect:
+        overlap(path("build/out/file")) == [a, path("build")]
+    }
+
+    def "finds task with an output that is a descendant of the path"() {
+        given:
+        trie.add(path("build/out/classes/file"), a)
+        trie.add(path("other"), b)
+
+        expect:
+        overlap(path("build/out")) == [a, path("build/out")]
+    }
+
+    def "does not treat a path that shares a name prefix as overlapping"() {
+        given:
+        trie.add(path("build/out"), a)
+
+        expect:
+        trie.findOverlap(path("build/output")) == null
+        trie.findOverlap(path("build/ou")) == null
+        trie.findOverlap(path("build/other/out")) == null
+    }
+
+    def "removed outputs no longer overlap"() {
+        given:
+        trie.add(path("build/out/a"), a)
+        trie.add(path("build/out"), b)
+
+        when:
+        trie.remove(path("build/out"), b)
+
+        then:
+        overlap(path("build/out")) == [a, path("build/out")]
+        trie.findOverlap(path("build/out/b")) == null
+
+        when:
+        trie.remove(path("build/out/a"), a)
+
+        then:
+        trie.isEmpty()
+        trie.findOverlap(path("build")) == null
+    }
+
+    def "keeps output shared by several tasks until all of them are removed"() {
+        given:
+        trie.add(path("build/out"), a)
+        trie.add(path("build/out"), b)
+
+        when:
+        trie.remove(path("build/out"), a)
+
+        then:
+        overlap(path("build/out/file")) == [b, path("build/out")]
+    }
+
+    def "ignores removal of unknown outputs"() {
+        given:
+        trie.add(path("build/out"), a)
+
+        when:
+        trie.remove(path("build/out/file"), a)
+        trie.remove(path("build/out"), b)
+
+        then:
+        overlap(path("build")) == [a, path("build")]
+    }
+
+    private List<Object> overlap(String path) {
+        def overlap = trie.findOverlap(path)
+        return [overlap.left, overlap.right]
+    }
+
+    private static String path(String relativePath) {
+        return new File(new File("root").absoluteFile, relativePath).path
+    }
+}
@@ -28,4 +28,11 @@ public class NoOpFileLockContentionHandler implements FileLockContentionHandler
 
     public void pingOwner(int port, long lockId, String displayName) {
     }
+
+    public boolean waitForRelease(int port, long lockId, String displayName, long timeoutMs) throws InterruptedException {
+        Thread.sleep(timeoutMs);
+        return false;
+    }
+
+    public void released(long lockId) {}
 }
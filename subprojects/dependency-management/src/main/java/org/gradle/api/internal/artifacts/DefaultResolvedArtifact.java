@@ -81,8 +81,8 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
     public String getClassifier() {
         return artifact.getClassifier();
     }
-    
-    public File getFile() {
+
+    public synchronized File getFile() {
         if (file == null) {
             file = artifactSource.create();
             artifactSource = null;
@@ -51,6 +51,7 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -204,7 +205,7 @@ class DependencyManagementBuildScopeServices {
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory, LocalComponentFactory publishModuleDescriptorConverter, DependencyDescriptorFactory dependencyDescriptorFactory,
                                                                 CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, ResolutionResultsStoreFactory resolutionResultsStoreFactory,
                                                                 VersionComparator versionComparator, ProjectRegistry<ProjectInternal> projectRegistry, ComponentIdentifierFactory componentIdentifierFactory,
-                                                                StartParameter startParameter) {
+                                                                StartParameter startParameter, ExecutorFactory executorFactory, ParallelArtifactFileResolver parallelArtifactFileResolver) {
         ArtifactDependencyResolver resolver = new DefaultDependencyResolver(
                 resolveIvyFactory,
                 publishModuleDescriptorConverter,
@@ -216,7 +217,9 @@ class DependencyManagementBuildScopeServices {
                 ivyContextManager,
                 resolutionResultsStoreFactory,
                 versionComparator,
-                startParameter.isBuildProjectDependencies()
+                startParameter.isBuildProjectDependencies(),
+                executorFactory,
+                ParallelArtifactFileResolver.isEnabled() ? parallelArtifactFileResolver : null
         );
         return new ErrorHandlingArtifactDependencyResolver(
                 new ShortcircuitEmptyConfigsArtifactDependencyResolver(
@@ -227,6 +230,11 @@ class DependencyManagementBuildScopeServices {
                         componentIdentifierFactory));
     }
 
+    ParallelArtifactFileResolver createParallelArtifactFileResolver(CacheLockingManager cacheLockingManager, ExecutorFactory executorFactory) {
+        // Shares a single pool of download threads between the configurations resolved by the build
+        return new ParallelArtifactFileResolver(cacheLockingManager, executorFactory);
+    }
+
     ResolutionResultsStoreFactory createResolutionResultsStoreFactory(TemporaryFileProvider temporaryFileProvider) {
         return new ResolutionResultsStoreFactory(temporaryFileProvider);
     }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedArtifactResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedGraphResults;
@@ -23,6 +24,7 @@ import org.gradle.internal.resolve.ArtifactResolveException;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.graph.CachingDirectedGraphWalker;
 import org.gradle.internal.graph.DirectedGraphWithEdgeValues;
 import org.gradle.util.CollectionUtils;
@@ -36,14 +38,24 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     private final ResolvedGraphResults graphResults;
     private final ResolvedArtifactResults artifactResults;
     private final Factory<TransientConfigurationResults> transientConfigurationResultsFactory;
+    private final ParallelArtifactFileResolver parallelFileResolver;
 
     public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, ResolvedGraphResults graphResults, ResolvedArtifactResults artifactResults,
                                        Factory<TransientConfigurationResults> transientConfigurationResultsLoader) {
+        this(configuration, cacheLockingManager, graphResults, artifactResults, transientConfigurationResultsLoader, null);
+    }
+
+    /**
+     * @param parallelFileResolver used to download the files of the artifacts concurrently, or null to download them one at a time.
+     */
+    public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, ResolvedGraphResults graphResults, ResolvedArtifactResults artifactResults,
+                                       Factory<TransientConfigurationResults> transientConfigurationResultsLoader, @Nullable ParallelArtifactFileResolver parallelFileResolver) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
         this.graphResults = graphResults;
         this.artifactResults = artifactResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
+        this.parallelFileResolver = parallelFileResolver;
     }
 
     public boolean hasError() {
@@ -83,8 +95,9 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     }
 
     public Set<File> getFiles(Spec<? super Dependency> dependencySpec) {
+        // getArtifacts() has already resolved the file of each artifact it returns
         Set<ResolvedArtifact> artifacts = getArtifacts(dependencySpec);
-        return getFiles(artifacts);
+        return collectFiles(artifacts);
     }
 
     public Set<File> getFilesStrict(Spec<? super Dependency> dependencySpec) {
@@ -99,6 +112,15 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
      */
     public Set<ResolvedArtifact> getArtifacts(Spec<? super Dependency> dependencySpec) {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
+        if (parallelFileResolver != null) {
+            Map<ResolvedArtifact, Throwable> failures = parallelFileResolver.resolveFiles(allArtifacts);
+            for (Map.Entry<ResolvedArtifact, Throwable> entry : failures.entrySet()) {
+                if (!(entry.getValue() instanceof ArtifactResolveException)) {
+                    throw UncheckedException.throwAsUncheckedException(entry.getValue());
+                }
+                allArtifacts.remove(entry.getKey());
+            }
+        }
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
@@ -116,6 +138,17 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     }
 
     private Set<File> getFiles(final Set<ResolvedArtifact> artifacts) {
+        if (parallelFileResolver != null) {
+            // Report all of the artifacts that could not be resolved, rather than the first one only
+            Map<ResolvedArtifact, Throwable> failures = parallelFileResolver.resolveFiles(artifacts);
+            if (!failures.isEmpty()) {
+                throw new ResolveException(configuration, failures.values());
+            }
+        }
+        return collectFiles(artifacts);
+    }
+
+    private Set<File> collectFiles(final Set<ResolvedArtifact> artifacts) {
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
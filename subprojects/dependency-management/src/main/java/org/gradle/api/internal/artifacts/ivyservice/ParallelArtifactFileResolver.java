@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves the files of a set of artifacts using a bounded pool of threads, so that the artifacts are downloaded concurrently.
+ *
+ * <p>Each worker resolves the file of an artifact through the artifact itself, which takes the cache lock while it uses the cache and releases it
+ * while it downloads. The calling thread releases the cache lock while it waits for the workers.</p>
+ *
+ * <p>The pool of threads is created when first used and is shared by all of the configurations resolved by the build, until the resolver is stopped.</p>
+ */
+public class ParallelArtifactFileResolver implements Stoppable {
+    public final static String TOGGLE_PROPERTY = "org.gradle.resolution.parallelDownload";
+    public final static String CONNECTIONS_PROPERTY = "org.gradle.resolution.parallelDownload.connections";
+    private final static int DEFAULT_CONNECTIONS = 8;
+
+    private final CacheLockingManager cacheLockingManager;
+    private final ExecutorFactory executorFactory;
+    private StoppableExecutor executor;
+
+    public ParallelArtifactFileResolver(CacheLockingManager cacheLockingManager, ExecutorFactory executorFactory) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.executorFactory = executorFactory;
+    }
+
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    /**
+     * Resolves the file of each of the given artifacts. Does not stop at the first failure.
+     *
+     * @return the failure for each artifact whose file could not be resolved, in the order of the given artifacts.
+     */
+    public Map<ResolvedArtifact, Throwable> resolveFiles(Collection<? extends ResolvedArtifact> artifacts) {
+        final Map<ResolvedArtifact, Throwable> failures = Collections.synchronizedMap(new LinkedHashMap<ResolvedArtifact, Throwable>());
+        if (artifacts.size() < 2) {
+            return failures;
+        }
+        StoppableExecutor pool = getExecutor();
+        final List<Future<?>> results = new ArrayList<Future<?>>(artifacts.size());
+        for (final ResolvedArtifact artifact : artifacts) {
+            results.add(pool.submit(new Runnable() {
+                public void run() {
+                    try {
+                        artifact.getFile();
+                    } catch (Throwable t) {
+                        failures.put(artifact, t);
+                    }
+                }
+            }));
+        }
+        cacheLockingManager.longRunningOperation("Download artifacts", new Runnable() {
+            public void run() {
+                waitFor(results);
+            }
+        });
+        return orderedFailures(artifacts, failures);
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            int connections = Math.max(1, Integer.getInteger(CONNECTIONS_PROPERTY, DEFAULT_CONNECTIONS));
+            executor = executorFactory.create("Artifact download", connections);
+        }
+        return executor;
+    }
+
+    private static void waitFor(List<Future<?>> results) {
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private static Map<ResolvedArtifact, Throwable> orderedFailures(Collection<? extends ResolvedArtifact> artifacts, Map<ResolvedArtifact, Throwable> failures) {
+        if (failures.isEmpty()) {
+            return failures;
+        }
+        Map<ResolvedArtifact, Throwable> ordered = new LinkedHashMap<ResolvedArtifact, Throwable>();
+        for (ResolvedArtifact artifact : artifacts) {
+            Throwable failure = failures.get(artifact);
+            if (failure != null) {
+                ordered.put(artifact, failure);
+            }
+        }
+        return ordered;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
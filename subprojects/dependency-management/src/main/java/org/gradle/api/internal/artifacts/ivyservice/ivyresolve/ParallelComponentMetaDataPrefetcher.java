@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Transformer;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
+import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves the components that dependencies refer to using a bounded pool of threads, so that the remote requests for their meta-data are made
+ * concurrently. The results end up in the in-memory repository caches, where the graph traversal finds them when it resolves the dependencies itself.
+ *
+ * <p>This resolver sits in front of the id resolver of the repository chain. When asked to resolve a dependency whose fetch is in progress, it
+ * first waits for the fetch to complete, releasing the cache lock while it waits. A fetch that has not started yet is discarded and the dependency
+ * resolved directly. The graph traversal itself remains single threaded.</p>
+ */
+public class ParallelComponentMetaDataPrefetcher implements ComponentMetaDataPrefetcher, DependencyToComponentIdResolver, Stoppable {
+    public final static String TOGGLE_PROPERTY = "org.gradle.resolution.prefetch";
+    public final static String THREADS_PROPERTY = "org.gradle.resolution.prefetch.threads";
+    private final static int DEFAULT_THREADS = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelComponentMetaDataPrefetcher.class);
+
+    private final DependencyToComponentIdResolver idResolver;
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final CacheLockingManager cacheLockingManager;
+    private final IvyContextManager ivyContextManager;
+    private final ExecutorFactory executorFactory;
+    // Only used by the thread that traverses the graph
+    private final Map<ModuleVersionSelector, Fetch> fetches = new HashMap<ModuleVersionSelector, Fetch>();
+    private StoppableExecutor executor;
+
+    public ParallelComponentMetaDataPrefetcher(RepositoryChain repositoryChain, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, ExecutorFactory executorFactory) {
+        this.idResolver = repositoryChain.getComponentIdResolver();
+        this.metaDataResolver = repositoryChain.getComponentResolver();
+        this.cacheLockingManager = cacheLockingManager;
+        this.ivyContextManager = ivyContextManager;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Prefetching relies on the in-memory repository caches to hand the fetched meta-data to the graph traversal.
+     */
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY)) && !"false".equalsIgnoreCase(System.getProperty(InMemoryCachedRepositoryFactory.TOGGLE_PROPERTY));
+    }
+
+    public void prefetch(Collection<? extends DependencyMetaData> dependencies) {
+        for (DependencyMetaData dependency : dependencies) {
+            // Project dependencies are not resolved using the repositories
+            if (!(dependency.getSelector() instanceof ModuleComponentSelector) || fetches.containsKey(dependency.getRequested())) {
+                continue;
+            }
+            if (executor == null) {
+                executor = executorFactory.create("Dependency meta-data prefetch", Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS));
+            }
+            Fetch fetch = new Fetch(dependency);
+            fetches.put(dependency.getRequested(), fetch);
+            executor.execute(fetch);
+        }
+    }
+
+    public void resolve(DependencyMetaData dependency, BuildableComponentIdResolveResult result) {
+        final Fetch fetch = fetches.get(dependency.getRequested());
+        if (fetch != null && !fetch.claim()) {
+            cacheLockingManager.longRunningOperation(String.format("Wait for meta-data of %s", dependency), new Runnable() {
+                public void run() {
+                    fetch.awaitCompletion();
+                }
+            });
+        }
+        // Any failure to fetch is reported from here
+        idResolver.resolve(dependency, result);
+    }
+
+    /**
+     * Discards the fetches that have not started yet and waits for the running ones to complete.
+     */
+    public void stop() {
+        for (Fetch fetch : fetches.values()) {
+            fetch.claim();
+        }
+        fetches.clear();
+        if (executor != null) {
+            cacheLockingManager.longRunningOperation("Stop dependency meta-data prefetch", new Runnable() {
+                public void run() {
+                    executor.stop();
+                }
+            });
+            executor = null;
+        }
+    }
+
+    private class Fetch implements Runnable {
+        private final DependencyMetaData dependency;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private Fetch(DependencyMetaData dependency) {
+            this.dependency = dependency;
+        }
+
+        /**
+         * Prevents this fetch from running, if it has not started yet.
+         *
+         * @return true if the fetch had not started.
+         */
+        boolean claim() {
+            return started.compareAndSet(false, true);
+        }
+
+        void awaitCompletion() {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
+        public void run() {
+            if (!claim()) {
+                return;
+            }
+            try {
+                cacheLockingManager.useCache(String.format("Prefetch meta-data of %s", dependency), new Factory<Void>() {
+                    public Void create() {
+                        return ivyContextManager.withIvy(new Transformer<Void, Ivy>() {
+                            public Void transform(Ivy ivy) {
+                                fetch();
+                                return null;
+                            }
+                        });
+                    }
+                });
+            } catch (Throwable t) {
+                LOGGER.debug("Could not prefetch meta-data of {}.", dependency, t);
+            } finally {
+                completed.countDown();
+            }
+        }
+
+        private void fetch() {
+            BuildableComponentIdResolveResult idResult = new DefaultBuildableComponentIdResolveResult();
+            idResolver.resolve(dependency, idResult);
+            // Dynamic versions are resolved along with their meta-data
+            if (idResult.getFailure() == null && idResult.getMetaData() == null) {
+                metaDataResolver.resolve(idResult.getId(), DefaultComponentOverrideMetadata.forDependency(dependency), new DefaultBuildableComponentResolveResult());
+            }
+        }
+    }
+}
@@ -27,6 +27,9 @@ import java.util.Set;
 
 import static org.gradle.internal.resolve.result.BuildableModuleVersionListingResolveResult.State.Listed;
 
+/**
+ * Caches meta-data in memory for the duration of a build. May be used by several threads at the same time.
+ */
 class InMemoryMetaDataCache {
     private final Map<ModuleVersionSelector, Set<String>> moduleVersionListing = new HashMap<ModuleVersionSelector, Set<String>>();
     private final Map<ModuleComponentIdentifier, CachedModuleVersionResult> metaData = new HashMap<ModuleComponentIdentifier, CachedModuleVersionResult>();
@@ -36,7 +39,7 @@ class InMemoryMetaDataCache {
         this.stats = stats;
     }
 
-    public boolean supplyModuleVersions(ModuleVersionSelector requested, BuildableModuleVersionListingResolveResult result) {
+    public synchronized boolean supplyModuleVersions(ModuleVersionSelector requested, BuildableModuleVersionListingResolveResult result) {
         Set<String> versions = moduleVersionListing.get(requested);
         if (versions == null) {
             return false;
@@ -45,13 +48,13 @@ class InMemoryMetaDataCache {
         return true;
     }
 
-    public void newModuleVersions(ModuleVersionSelector requested, BuildableModuleVersionListingResolveResult result) {
+    public synchronized void newModuleVersions(ModuleVersionSelector requested, BuildableModuleVersionListingResolveResult result) {
         if (result.getState() == Listed) {
             moduleVersionListing.put(requested, result.getVersions());
         }
     }
 
-    boolean supplyMetaData(ModuleComponentIdentifier requested, BuildableModuleComponentMetaDataResolveResult result) {
+    synchronized boolean supplyMetaData(ModuleComponentIdentifier requested, BuildableModuleComponentMetaDataResolveResult result) {
         CachedModuleVersionResult fromCache = metaData.get(requested);
         if (fromCache == null) {
             return false;
@@ -61,7 +64,7 @@ class InMemoryMetaDataCache {
         return true;
     }
 
-    void newDependencyResult(ModuleComponentIdentifier requested, BuildableModuleComponentMetaDataResolveResult result) {
+    synchronized void newDependencyResult(ModuleComponentIdentifier requested, BuildableModuleComponentMetaDataResolveResult result) {
         CachedModuleVersionResult cachedResult = new CachedModuleVersionResult(result);
         if (cachedResult.isCacheable()) {
             metaData.put(requested, cachedResult);
@@ -17,6 +17,7 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
 
 import org.apache.ivy.Ivy;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ResolveException;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
@@ -27,6 +28,7 @@ import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyIntern
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ErrorHandlingArtifactResolver;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ParallelComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChain;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator;
@@ -35,6 +37,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectArtifac
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectComponentRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
@@ -49,6 +52,7 @@ import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.cache.BinaryStore;
 import org.gradle.api.internal.cache.Store;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -68,10 +72,13 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
     private final ResolutionResultsStoreFactory storeFactory;
     private final VersionComparator versionComparator;
     private final boolean buildProjectDependencies;
+    private final ExecutorFactory executorFactory;
+    private final ParallelArtifactFileResolver parallelFileResolver;
 
     public DefaultDependencyResolver(ResolveIvyFactory ivyFactory, LocalComponentFactory localComponentFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
                                      ProjectComponentRegistry projectComponentRegistry, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager,
-                                     ResolutionResultsStoreFactory storeFactory, VersionComparator versionComparator, boolean buildProjectDependencies) {
+                                     ResolutionResultsStoreFactory storeFactory, VersionComparator versionComparator, boolean buildProjectDependencies, ExecutorFactory executorFactory,
+                                     @Nullable ParallelArtifactFileResolver parallelFileResolver) {
         this.ivyFactory = ivyFactory;
         this.localComponentFactory = localComponentFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
@@ -81,6 +88,8 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         this.storeFactory = storeFactory;
         this.versionComparator = versionComparator;
         this.buildProjectDependencies = buildProjectDependencies;
+        this.executorFactory = executorFactory;
+        this.parallelFileResolver = parallelFileResolver;
     }
 
     public void resolve(final ConfigurationInternal configuration,
@@ -93,7 +102,13 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 RepositoryChain repositoryChain = ivyFactory.create(configuration, repositories, metadataHandler.getComponentMetadataProcessor());
 
                 ComponentMetaDataResolver metaDataResolver = new ClientModuleResolver(repositoryChain.getComponentResolver(), dependencyDescriptorFactory);
-                ProjectDependencyResolver projectDependencyResolver = new ProjectDependencyResolver(projectComponentRegistry, localComponentFactory, repositoryChain.getComponentIdResolver(), metaDataResolver);
+                DependencyToComponentIdResolver componentIdResolver = repositoryChain.getComponentIdResolver();
+                ParallelComponentMetaDataPrefetcher metaDataPrefetcher = null;
+                if (ParallelComponentMetaDataPrefetcher.isEnabled()) {
+                    metaDataPrefetcher = new ParallelComponentMetaDataPrefetcher(repositoryChain, cacheLockingManager, ivyContextManager, executorFactory);
+                    componentIdResolver = metaDataPrefetcher;
+                }
+                ProjectDependencyResolver projectDependencyResolver = new ProjectDependencyResolver(projectComponentRegistry, localComponentFactory, componentIdResolver, metaDataResolver);
 
                 ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
                 DependencyToComponentIdResolver idResolver = new DependencySubstitutionResolver(projectDependencyResolver, resolutionStrategy.getDependencySubstitutionRule());
@@ -109,7 +124,8 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
                 ConflictHandler conflictHandler = new DefaultConflictHandler(conflictResolver, metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
 
-                DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, projectDependencyResolver, projectDependencyResolver, artifactResolver, conflictHandler, new DefaultDependencyToConfigurationResolver());
+                DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, projectDependencyResolver, projectDependencyResolver, artifactResolver, conflictHandler, new DefaultDependencyToConfigurationResolver(),
+                        metaDataPrefetcher == null ? ComponentMetaDataPrefetcher.NONE : metaDataPrefetcher);
 
                 StoreSet stores = storeFactory.createStoreSet();
 
@@ -130,7 +146,13 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 }
 
                 // Resolve the dependency graph
-                builder.resolve(configuration, newModelBuilder, oldModelBuilder, artifactsBuilder, projectModelBuilder);
+                try {
+                    builder.resolve(configuration, newModelBuilder, oldModelBuilder, artifactsBuilder, projectModelBuilder);
+                } finally {
+                    if (metaDataPrefetcher != null) {
+                        metaDataPrefetcher.stop();
+                    }
+                }
                 results.resolved(newModelBuilder.complete(), projectModelBuilder.complete());
 
                 ResolvedGraphResults graphResults = oldModelBuilder.complete();
@@ -150,7 +172,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
 
         Factory<TransientConfigurationResults> transientConfigurationResultsFactory = new TransientConfigurationResultsLoader(results.getTransientConfigurationResultsBuilder(), graphResults, artifactResults);
 
-        DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, cacheLockingManager, graphResults, artifactResults, transientConfigurationResultsFactory);
+        DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, cacheLockingManager, graphResults, artifactResults, transientConfigurationResultsFactory, parallelFileResolver);
         results.withResolvedConfiguration(new DefaultResolvedConfiguration(result));
     }
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.internal.component.model.DependencyMetaData;
+
+import java.util.Collection;
+
+/**
+ * Fetches the meta-data of the components that dependencies refer to, ahead of the graph traversal asking for it.
+ */
+public interface ComponentMetaDataPrefetcher {
+    ComponentMetaDataPrefetcher NONE = new ComponentMetaDataPrefetcher() {
+        public void prefetch(Collection<? extends DependencyMetaData> dependencies) {
+        }
+    };
+
+    /**
+     * Starts fetching the meta-data for the given dependencies in the background. Does not wait for the fetches to complete.
+     */
+    void prefetch(Collection<? extends DependencyMetaData> dependencies);
+}
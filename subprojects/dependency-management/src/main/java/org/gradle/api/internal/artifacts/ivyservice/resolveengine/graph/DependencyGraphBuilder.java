@@ -57,6 +57,7 @@ public class DependencyGraphBuilder {
     private final ArtifactResolver artifactResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver idResolver,
                                   ComponentMetaDataResolver metaDataResolver,
@@ -64,7 +65,18 @@ public class DependencyGraphBuilder {
                                   ArtifactResolver artifactResolver,
                                   ConflictHandler conflictHandler,
                                   DependencyToConfigurationResolver dependencyToConfigurationResolver) {
+        this(idResolver, metaDataResolver, moduleResolver, artifactResolver, conflictHandler, dependencyToConfigurationResolver, ComponentMetaDataPrefetcher.NONE);
+    }
+
+    public DependencyGraphBuilder(DependencyToComponentIdResolver idResolver,
+                                  ComponentMetaDataResolver metaDataResolver,
+                                  ModuleToComponentResolver moduleResolver,
+                                  ArtifactResolver artifactResolver,
+                                  ConflictHandler conflictHandler,
+                                  DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ComponentMetaDataPrefetcher metaDataPrefetcher) {
         this.idResolver = idResolver;
+        this.metaDataPrefetcher = metaDataPrefetcher;
         this.metaDataResolver = metaDataResolver;
         this.moduleResolver = moduleResolver;
         this.artifactResolver = artifactResolver;
@@ -104,6 +116,7 @@ public class DependencyGraphBuilder {
         resolveState.onMoreSelected(resolveState.root);
 
         List<DependencyEdge> dependencies = new ArrayList<DependencyEdge>();
+        List<DependencyMetaData> unresolvedDependencies = new ArrayList<DependencyMetaData>();
         while (resolveState.peek() != null || conflictHandler.hasConflicts()) {
             if (resolveState.peek() != null) {
                 ConfigurationNode node = resolveState.pop();
@@ -113,6 +126,17 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                // Start fetching the meta-data for the targets of all the edges, while they are visited one at a time below
+                unresolvedDependencies.clear();
+                for (DependencyEdge dependency : dependencies) {
+                    if (!dependency.selector.isResolved()) {
+                        unresolvedDependencies.add(dependency.dependencyMetaData);
+                    }
+                }
+                if (!unresolvedDependencies.isEmpty()) {
+                    metaDataPrefetcher.prefetch(unresolvedDependencies);
+                }
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -846,6 +870,10 @@ public class DependencyGraphBuilder {
             return targetModule;
         }
 
+        public boolean isResolved() {
+            return targetModuleRevision != null || failure != null;
+        }
+
         /**
          * @return The module version, or null if there is a failure to resolve this selector.
          */
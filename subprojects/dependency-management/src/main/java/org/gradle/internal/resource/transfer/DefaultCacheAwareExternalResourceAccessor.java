@@ -26,6 +26,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultEx
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.ExternalResourceCachePolicy;
 import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.hash.HashUtil;
 import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.ExternalResource;
@@ -46,6 +47,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExternalResourceAccessor {
 
@@ -166,7 +170,7 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             if (!localChecksum.equals(remoteChecksum)) {
                 return null;
             }
-            return moveIntoCache(source, destination, fileStore, remoteMetaData);
+            return moveIntoCache(source, destination, localChecksum, fileStore, remoteMetaData);
         } finally {
             destination.delete();
         }
@@ -193,16 +197,16 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             } catch (Exception e) {
                 throw ResourceException.failure(source, String.format("Failed to download resource '%s'.", source), e);
             }
-            return moveIntoCache(source, destination, fileStore, downloadAction.metaData);
+            return moveIntoCache(source, destination, downloadAction.sha1, fileStore, downloadAction.metaData);
         } finally {
             destination.delete();
         }
     }
 
-    private LocallyAvailableExternalResource moveIntoCache(final URI source, final File destination, final ResourceFileStore fileStore, final ExternalResourceMetaData metaData) {
+    private LocallyAvailableExternalResource moveIntoCache(final URI source, final File destination, final HashValue sha1, final ResourceFileStore fileStore, final ExternalResourceMetaData metaData) {
         return cacheLockingManager.useCache(String.format("Store %s", source), new Factory<LocallyAvailableExternalResource>() {
             public LocallyAvailableExternalResource create() {
-                LocallyAvailableResource cachedResource = fileStore.moveIntoCache(destination);
+                LocallyAvailableResource cachedResource = fileStore.moveIntoCache(destination, sha1);
                 File fileInFileStore = cachedResource.getFile();
                 cachedExternalResourceIndex.store(source.toString(), fileInFileStore, metaData);
                 return new DefaultLocallyAvailableExternalResource(source, cachedResource, metaData);
@@ -214,9 +218,13 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
         return timeProvider.getCurrentTime() - cached.getCachedAt();
     }
 
+    /**
+     * Writes the content to the destination file, calculating the SHA1 checksum of the content as it goes.
+     */
     private static class DownloadToFileAction implements ExternalResource.ContentAction<Object> {
         private final File destination;
         private ExternalResourceMetaData metaData;
+        private HashValue sha1;
 
         public DownloadToFileAction(File destination) {
             this.destination = destination;
@@ -225,13 +233,23 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
         @Override
         public Object execute(InputStream inputStream, ExternalResourceMetaData metaData) throws IOException {
             this.metaData = metaData;
+            DigestInputStream digestInputStream = new DigestInputStream(inputStream, createSha1Digest());
             FileOutputStream outputStream = new FileOutputStream(destination);
             try {
-                IOUtils.copyLarge(inputStream, outputStream);
+                IOUtils.copyLarge(digestInputStream, outputStream);
             } finally {
                 outputStream.close();
             }
+            sha1 = new HashValue(digestInputStream.getMessageDigest().digest());
             return null;
         }
+
+        private static MessageDigest createSha1Digest() {
+            try {
+                return MessageDigest.getInstance("SHA1");
+            } catch (NoSuchAlgorithmException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
     }
 }
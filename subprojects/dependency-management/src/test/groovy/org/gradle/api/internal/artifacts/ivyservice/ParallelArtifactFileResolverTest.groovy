@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.resolve.ArtifactResolveException
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParallelArtifactFileResolverTest extends Specification {
+    // Not Spock mocks, as these are called from the worker threads
+    def operations = Collections.synchronizedList([])
+    def cacheLockingManager = [
+            longRunningOperation: { String operation, action ->
+                operations << operation
+                action instanceof Factory ? action.create() : action.run()
+            }
+    ] as CacheLockingManager
+    def executorFactory = new DefaultExecutorFactory()
+    def executors = Collections.synchronizedList([])
+    def countingExecutorFactory = [
+            create: { String displayName, int fixedSize ->
+                def executor = executorFactory.create(displayName, fixedSize)
+                executors << executor
+                executor
+            }
+    ] as ExecutorFactory
+    def resolver = new ParallelArtifactFileResolver(cacheLockingManager, countingExecutorFactory)
+
+    def cleanup() {
+        resolver.stop()
+        executorFactory.stop()
+        System.clearProperty(ParallelArtifactFileResolver.CONNECTIONS_PROPERTY)
+    }
+
+    def "resolves the files of the artifacts concurrently"() {
+        def allStarted = new CountDownLatch(3)
+        def artifacts = (1..3).collect { i ->
+            artifact {
+                allStarted.countDown()
+                assert allStarted.await(5, TimeUnit.SECONDS)
+                new File("file$i")
+            }
+        }
+
+        when:
+        def failures = resolver.resolveFiles(artifacts)
+
+        then:
+        failures.isEmpty()
+        operations == ["Download artifacts"]
+    }
+
+    def "does not use more connections than configured"() {
+        System.setProperty(ParallelArtifactFileResolver.CONNECTIONS_PROPERTY, "2")
+        def active = new AtomicInteger()
+        def maxActive = new AtomicInteger()
+        def artifacts = (1..6).collect { i ->
+            artifact {
+                def count = active.incrementAndGet()
+                maxActive.set(Math.max(maxActive.get(), count))
+                Thread.sleep(20)
+                active.decrementAndGet()
+                new File("file$i")
+            }
+        }
+
+        when:
+        resolver.resolveFiles(artifacts)
+
+        then:
+        maxActive.get() <= 2
+    }
+
+    def "reports every artifact that could not be resolved in the order of the artifacts"() {
+        def failure1 = new ArtifactResolveException("broken 1")
+        def failure2 = new RuntimeException("broken 2")
+        def broken1 = artifact { throw failure1 }
+        def ok = artifact { new File("ok") }
+        def broken2 = artifact { throw failure2 }
+
+        when:
+        def failures = resolver.resolveFiles([broken1, ok, broken2])
+
+        then:
+        failures.keySet() as List == [broken1, broken2]
+        failures[broken1] == failure1
+        failures[broken2] == failure2
+    }
+
+    def "leaves a single artifact to be resolved by the caller"() {
+        def count = new AtomicInteger()
+        def single = artifact { count.incrementAndGet(); new File("file") }
+
+        when:
+        def failures = resolver.resolveFiles([single])
+
+        then:
+        failures.isEmpty()
+        count.get() == 0
+        operations.isEmpty()
+    }
+
+    def "uses the same threads for every set of artifacts until stopped"() {
+        def artifacts = (1..3).collect { i -> artifact { new File("file$i") } }
+        def moreArtifacts = (1..3).collect { i -> artifact { new File("other$i") } }
+
+        when:
+        resolver.resolveFiles(artifacts)
+        resolver.resolveFiles(moreArtifacts)
+
+        then:
+        executors.size() == 1
+        !executors[0].isShutdown()
+
+        when:
+        resolver.stop()
+
+        then:
+        executors[0].isShutdown()
+    }
+
+    private ResolvedArtifact artifact(Closure<File> fileSource) {
+        return [getFile: fileSource] as ResolvedArtifact
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.api.Transformer
+import org.gradle.api.artifacts.component.ProjectComponentSelector
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
+import org.gradle.internal.Factory
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.model.DefaultDependencyMetaData
+import org.gradle.internal.component.model.DependencyMetaData
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver
+import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableComponentIdResolveResult
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+
+class ParallelComponentMetaDataPrefetcherTest extends Specification {
+    // Not Spock mocks, as these are called from the worker threads
+    def resolvedIds = new CopyOnWriteArrayList<String>()
+    def fetchedMetaData = new CopyOnWriteArrayList<String>()
+    def fetchStarted = new CopyOnWriteArrayList<String>()
+    def blocked = [] as Set
+    def release = new CountDownLatch(1)
+    def idResolver = { DependencyMetaData dependency, BuildableComponentIdResolveResult result ->
+        resolvedIds << dependency.requested.name
+        result.resolved(DefaultModuleComponentIdentifier.newId(dependency.requested.group, dependency.requested.name, dependency.requested.version),
+                DefaultModuleVersionIdentifier.newId(dependency.requested.group, dependency.requested.name, dependency.requested.version))
+    } as DependencyToComponentIdResolver
+    def metaDataResolver = [resolve: { id, override, result ->
+        fetchStarted << id.module
+        if (blocked.contains(id.module)) {
+            release.await()
+        }
+        fetchedMetaData << id.module
+    }] as ComponentMetaDataResolver
+    def repositoryChain = [getComponentIdResolver: { idResolver }, getComponentResolver: { metaDataResolver }] as RepositoryChain
+    def cacheLockingManager = [
+            useCache: { String operation, action -> action instanceof Factory ? action.create() : action.run() },
+            longRunningOperation: { String operation, action -> action instanceof Factory ? action.create() : action.run() }
+    ] as CacheLockingManager
+    def ivyContextManager = [withIvy: { action -> action instanceof Transformer ? action.transform(null) : action.execute(null) }] as IvyContextManager
+    def executorFactory = new DefaultExecutorFactory()
+    def prefetcher = new ParallelComponentMetaDataPrefetcher(repositoryChain, cacheLockingManager, ivyContextManager, executorFactory)
+    def conditions = new PollingConditions(timeout: 5)
+
+    def cleanup() {
+        release.countDown()
+        prefetcher.stop()
+        executorFactory.stop()
+        System.clearProperty(ParallelComponentMetaDataPrefetcher.THREADS_PROPERTY)
+    }
+
+    def "fetches the meta-data of module dependencies in the background"() {
+        when:
+        prefetcher.prefetch([dependency("a"), dependency("b"), dependency("c")])
+
+        then:
+        conditions.eventually {
+            assert fetchedMetaData as Set == ["a", "b", "c"] as Set
+        }
+
+        when:
+        def result = new DefaultBuildableComponentIdResolveResult()
+        prefetcher.resolve(dependency("b"), result)
+
+        then:
+        result.id == DefaultModuleComponentIdentifier.newId("org", "b", "1.0")
+        resolvedIds.findAll { it == "b" }.size() == 2
+    }
+
+    def "fetches the meta-data of each module once"() {
+        when:
+        prefetcher.prefetch([dependency("a"), dependency("a")])
+        prefetcher.prefetch([dependency("a")])
+        prefetcher.stop()
+
+        then:
+        fetchedMetaData.findAll { it == "a" }.size() <= 1
+        fetchStarted.size() == fetchedMetaData.size()
+    }
+
+    def "does not fetch project dependencies"() {
+        def projectDependency = Stub(DependencyMetaData) {
+            getSelector() >> Stub(ProjectComponentSelector)
+        }
+
+        when:
+        prefetcher.prefetch([projectDependency])
+        prefetcher.stop()
+
+        then:
+        resolvedIds.empty
+    }
+
+    def "waits for a fetch in progress before resolving the dependency"() {
+        given:
+        blocked << "a"
+        prefetcher.prefetch([dependency("a")])
+        conditions.eventually {
+            assert fetchStarted == ["a"]
+        }
+
+        when:
+        def result = new DefaultBuildableComponentIdResolveResult()
+        def resolveThread = new Thread({ prefetcher.resolve(dependency("a"), result) })
+        resolveThread.start()
+
+        then:
+        conditions.eventually {
+            assert resolveThread.state == Thread.State.WAITING
+        }
+        resolvedIds == ["a"]
+
+        when:
+        release.countDown()
+        resolveThread.join()
+
+        then:
+        fetchedMetaData == ["a"]
+        resolvedIds == ["a", "a"]
+        result.id == DefaultModuleComponentIdentifier.newId("org", "a", "1.0")
+    }
+
+    def "resolves the dependency directly when its fetch has not started"() {
+        given:
+        System.setProperty(ParallelComponentMetaDataPrefetcher.THREADS_PROPERTY, "1")
+        blocked << "a"
+        prefetcher.prefetch([dependency("a"), dependency("b")])
+        conditions.eventually {
+            assert fetchStarted == ["a"]
+        }
+
+        when:
+        def result = new DefaultBuildableComponentIdResolveResult()
+        prefetcher.resolve(dependency("b"), result)
+        release.countDown()
+        prefetcher.stop()
+
+        then:
+        result.id == DefaultModuleComponentIdentifier.newId("org", "b", "1.0")
+        fetchedMetaData == ["a"]
+        resolvedIds == ["a", "b"]
+    }
+
+    private static DependencyMetaData dependency(String name) {
+        return new DefaultDependencyMetaData(DefaultModuleVersionIdentifier.newId("org", name, "1.0"))
+    }
+}
@@ -114,7 +114,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, HashUtil.sha1(new byte[0])) >> localResource
         1 * index.store("scheme:thing", cachedFile, metaData)
         0 * _._
     }
@@ -183,7 +183,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, sha1) >> localResource
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
     }
@@ -230,7 +230,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, sha1) >> localResource
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
     }
@@ -274,7 +274,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, HashUtil.sha1(new byte[0])) >> localResource
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
     }
@@ -328,7 +328,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, HashUtil.sha1(new byte[0])) >> localResource
         1 * index.store("scheme:thing", cachedFile, remoteMetaData)
         0 * _._
     }
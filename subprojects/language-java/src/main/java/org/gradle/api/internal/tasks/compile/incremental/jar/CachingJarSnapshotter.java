@@ -16,11 +16,13 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.changedetection.state.FileSnapshot;
 import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.internal.Factory;
+import org.gradle.internal.operations.BuildOperationProcessor;
 
 public class CachingJarSnapshotter implements JarSnapshotter {
 
@@ -30,8 +32,16 @@ public class CachingJarSnapshotter implements JarSnapshotter {
     private final FilesSnapshotSet inputFilesSnapshot;
 
     public CachingJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer, JarSnapshotCache cache, FilesSnapshotSet inputFilesSnapshot) {
+        this(hasher, analyzer, cache, inputFilesSnapshot, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to analyse the classes of a jar in parallel. May be null, in which case they are analysed one after the other.
+     */
+    public CachingJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer, JarSnapshotCache cache, FilesSnapshotSet inputFilesSnapshot,
+                                 @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.inputFilesSnapshot = inputFilesSnapshot;
-        this.snapshotter = new DefaultJarSnapshotter(hasher, analyzer);
+        this.snapshotter = new DefaultJarSnapshotter(hasher, analyzer, buildOperationProcessor);
         this.hasher = hasher;
         this.cache = cache;
     }
@@ -45,6 +55,15 @@ public class CachingJarSnapshotter implements JarSnapshotter {
         });
     }
 
+    public JarSnapshot createSnapshotInParallel(final JarArchive jarArchive) {
+        final byte[] hash = getHash(jarArchive);
+        return cache.get(hash, new Factory<JarSnapshot>() {
+            public JarSnapshot create() {
+                return snapshotter.createSnapshotInParallel(hash, jarArchive);
+            }
+        });
+    }
+
     private byte[] getHash(JarArchive jarArchive) {
         FileSnapshot s = inputFilesSnapshot.findSnapshot(jarArchive.file);
         if (s != null) {
@@ -19,19 +19,28 @@ package org.gradle.api.internal.tasks.compile.incremental.jar;
 import org.gradle.api.internal.cache.MinimalPersistentCache;
 import org.gradle.cache.CacheRepository;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.serialize.BaseSerializerFactory;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * Cross-process, global cache of jar snapshots. Required to make incremental java compilation fast.
  * Jar snapshots are cached globally, so if one project caches the groovy jar, it can be used by some other project.
+ * Projects that need the snapshot of the same jar at the same time wait for a single snapshot to be created.
  */
 public class DefaultJarSnapshotCache implements JarSnapshotCache {
 
     private final MinimalPersistentCache<byte[], JarSnapshotData> cache;
+    private final ConcurrentMap<HashValue, FutureTask<JarSnapshotData>> inProgress = new ConcurrentHashMap<HashValue, FutureTask<JarSnapshotData>>();
 
     public DefaultJarSnapshotCache(CacheRepository cacheRepository) {
         cache = new MinimalPersistentCache<byte[], JarSnapshotData>(cacheRepository, "jar snapshots", BaseSerializerFactory.BYTE_ARRAY_SERIALIZER, new JarSnapshotDataSerializer());
@@ -50,12 +59,33 @@ public class DefaultJarSnapshotCache implements JarSnapshotCache {
         });
     }
 
-    public JarSnapshot get(byte[] key, final Factory<JarSnapshot> factory) {
-        return new JarSnapshot(cache.get(key, new Factory<JarSnapshotData>() {
-            public JarSnapshotData create() {
-                return factory.create().getData();
+    public JarSnapshot get(final byte[] key, final Factory<JarSnapshot> factory) {
+        HashValue hash = new HashValue(key);
+        FutureTask<JarSnapshotData> task = new FutureTask<JarSnapshotData>(new Callable<JarSnapshotData>() {
+            public JarSnapshotData call() {
+                return cache.get(key, new Factory<JarSnapshotData>() {
+                    public JarSnapshotData create() {
+                        return factory.create().getData();
+                    }
+                });
             }
-        }));
+        });
+        FutureTask<JarSnapshotData> existing = inProgress.putIfAbsent(hash, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                inProgress.remove(hash, task);
+            }
+            existing = task;
+        }
+        try {
+            return new JarSnapshot(existing.get());
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
     }
 
     public void stop() {
@@ -15,24 +15,47 @@
  */
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.internal.hash.Hasher;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassDependentsAccumulator;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 class DefaultJarSnapshotter {
 
+    private static final int CLASS_BATCH_SIZE = 100;
+
     private final Hasher hasher;
     private final ClassDependenciesAnalyzer analyzer;
+    private final BuildOperationProcessor buildOperationProcessor;
 
     public DefaultJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer) {
+        this(hasher, analyzer, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used by {@link #createSnapshotInParallel(byte[], JarArchive)}. May be null, in which case the classes are
+     * always analysed one after the other.
+     */
+    public DefaultJarSnapshotter(Hasher hasher, ClassDependenciesAnalyzer analyzer, @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.hasher = hasher;
         this.analyzer = analyzer;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     public JarSnapshot createSnapshot(byte[] hash, JarArchive jarArchive) {
@@ -55,4 +78,76 @@ class DefaultJarSnapshotter {
 
         return new JarSnapshot(new JarSnapshotData(hash, hashes, analyzer.getAnalysis()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates the snapshot of a jar, hashing and analysing its classes in parallel. The classes are extracted on the calling thread.
+     * Must not be called from a build operation, as it waits for other build operations.
+     */
+    public JarSnapshot createSnapshotInParallel(byte[] hash, JarArchive jarArchive) {
+        if (buildOperationProcessor == null) {
+            return createSnapshot(hash, jarArchive);
+        }
+
+        final List<String> classNames = new ArrayList<String>();
+        final List<File> classFiles = new ArrayList<File>();
+        jarArchive.contents.visit(new FileVisitor() {
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            public void visitFile(FileVisitDetails fileDetails) {
+                classNames.add(fileDetails.getPath().replaceAll("/", ".").replaceAll("\\.class$", ""));
+                classFiles.add(fileDetails.getFile());
+            }
+        });
+
+        final byte[][] classHashes = new byte[classNames.size()][];
+        final ClassAnalysis[] analyses = new ClassAnalysis[classNames.size()];
+        BuildOperationQueue<ClassBatch> queue = buildOperationProcessor.newQueue(new BuildOperationWorker<ClassBatch>() {
+            public String getDisplayName() {
+                return "jar snapshotter";
+            }
+
+            public void execute(ClassBatch batch) {
+                for (int i = batch.start; i < batch.end; i++) {
+                    File file = classFiles.get(i);
+                    classHashes[i] = hasher.hash(file);
+                    // Like ClassFilesAnalyzer, only analyse the class files, while hashing every entry
+                    if (file.getName().endsWith(".class")) {
+                        analyses[i] = analyzer.getClassAnalysis(classNames.get(i), file);
+                    }
+                }
+            }
+        }, null);
+        for (int start = 0; start < classNames.size(); start += CLASS_BATCH_SIZE) {
+            queue.add(new ClassBatch(jarArchive.file, start, Math.min(start + CLASS_BATCH_SIZE, classNames.size())));
+        }
+        queue.waitForCompletion();
+
+        // Accumulate in the order of the jar entries, as the sequential snapshotter does
+        Map<String, byte[]> hashes = new HashMap<String, byte[]>();
+        ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator("");
+        for (int i = 0; i < classNames.size(); i++) {
+            hashes.put(classNames.get(i), classHashes[i]);
+            if (analyses[i] != null) {
+                accumulator.addClass(classNames.get(i), analyses[i].isDependencyToAll(), analyses[i].getClassDependencies());
+            }
+        }
+        return new JarSnapshot(new JarSnapshotData(hash, hashes, new ClassSetAnalysisData(accumulator.getDependentsMap())));
+    }
+
+    private static class ClassBatch implements BuildOperation {
+        private final File jar;
+        private final int start;
+        private final int end;
+
+        private ClassBatch(File jar, int start, int end) {
+            this.jar = jar;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getDescription() {
+            return String.format("snapshot classes %d to %d of %s", start, end - 1, jar);
+        }
+    }
+}
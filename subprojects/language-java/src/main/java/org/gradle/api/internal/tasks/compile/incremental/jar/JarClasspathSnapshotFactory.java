@@ -16,28 +16,61 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import com.google.common.collect.Lists;
+import org.gradle.api.Nullable;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class JarClasspathSnapshotFactory {
+    public final static String TOGGLE_PROPERTY = "org.gradle.compile.parallelJarSnapshotting";
+
+    // Jars from this size on have their classes analysed in parallel, rather than being snapshotted in parallel with other jars
+    static final long LARGE_JAR_SIZE = 1024 * 1024;
 
     private final JarSnapshotter jarSnapshotter;
+    private final BuildOperationProcessor buildOperationProcessor;
 
     public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter) {
+        this(jarSnapshotter, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to snapshot the jars in parallel. May be null, in which case the jars are snapshotted one after the other.
+     */
+    public JarClasspathSnapshotFactory(JarSnapshotter jarSnapshotter, @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.jarSnapshotter = jarSnapshotter;
+        this.buildOperationProcessor = buildOperationProcessor;
+    }
+
+    /**
+     * Returns true when the jars of the compile classpath should be snapshotted in parallel.
+     */
+    public static boolean isParallelSnapshottingEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
     }
 
     JarClasspathSnapshot createSnapshot(Iterable<JarArchive> jarArchives) {
+        List<JarArchive> jars = Lists.newArrayList(jarArchives);
+        JarSnapshot[] snapshots = snapshotJars(jars);
+
         Map<File, JarSnapshot> jarSnapshots = new HashMap<File, JarSnapshot>();
         Map<File, byte[]> jarHashes = new HashMap<File, byte[]>();
         Set<String> allClasses = new HashSet<String>();
         Set<String> duplicateClasses = new HashSet<String>();
 
-        for (JarArchive jar : jarArchives) {
-            JarSnapshot snapshot = jarSnapshotter.createSnapshot(jar);
+        for (int i = 0; i < jars.size(); i++) {
+            JarArchive jar = jars.get(i);
+            JarSnapshot snapshot = snapshots[i];
             jarSnapshots.put(jar.file, snapshot);
             jarHashes.put(jar.file, snapshot.getHash());
             for (String c : snapshot.getClasses()) {
@@ -49,4 +82,58 @@ public class JarClasspathSnapshotFactory {
         JarClasspathSnapshotData jarClasspathSnapshotData = new JarClasspathSnapshotData(jarHashes, duplicateClasses);
         return new JarClasspathSnapshot(jarSnapshots, jarClasspathSnapshotData);
     }
+
+    private JarSnapshot[] snapshotJars(final List<JarArchive> jars) {
+        final JarSnapshot[] snapshots = new JarSnapshot[jars.size()];
+        if (buildOperationProcessor == null) {
+            for (int i = 0; i < jars.size(); i++) {
+                snapshots[i] = jarSnapshotter.createSnapshot(jars.get(i));
+            }
+            return snapshots;
+        }
+
+        // Snapshot the large jars one at a time, each with its classes analysed in parallel, then the other jars in parallel with each other.
+        // Build operations are never nested, so that they cannot wait for each other on a full worker pool.
+        List<Integer> smallJars = new ArrayList<Integer>();
+        for (int i = 0; i < jars.size(); i++) {
+            if (jars.get(i).file.length() >= LARGE_JAR_SIZE) {
+                snapshots[i] = jarSnapshotter.createSnapshotInParallel(jars.get(i));
+            } else {
+                smallJars.add(i);
+            }
+        }
+        if (smallJars.size() == 1) {
+            int index = smallJars.get(0);
+            snapshots[index] = jarSnapshotter.createSnapshot(jars.get(index));
+        } else if (!smallJars.isEmpty()) {
+            BuildOperationQueue<JarOperation> queue = buildOperationProcessor.newQueue(new BuildOperationWorker<JarOperation>() {
+                public String getDisplayName() {
+                    return "jar snapshotter";
+                }
+
+                public void execute(JarOperation operation) {
+                    snapshots[operation.index] = jarSnapshotter.createSnapshot(jars.get(operation.index));
+                }
+            }, null);
+            for (Integer index : smallJars) {
+                queue.add(new JarOperation(index, jars.get(index).file));
+            }
+            queue.waitForCompletion();
+        }
+        return snapshots;
+    }
+
+    private static class JarOperation implements BuildOperation {
+        private final int index;
+        private final File jar;
+
+        private JarOperation(int index, File jar) {
+            this.index = index;
+            this.jar = jar;
+        }
+
+        public String getDescription() {
+            return String.format("snapshot %s", jar);
+        }
+    }
 }
@@ -18,4 +18,10 @@ package org.gradle.api.internal.tasks.compile.incremental.jar;
 
 public interface JarSnapshotter {
     JarSnapshot createSnapshot(JarArchive jarArchive);
+
+    /**
+     * Like {@link #createSnapshot(JarArchive)}, but hashes and analyses the classes of the jar in parallel, when possible.
+     * Must not be called from a build operation.
+     */
+    JarSnapshot createSnapshotInParallel(JarArchive jarArchive);
 }
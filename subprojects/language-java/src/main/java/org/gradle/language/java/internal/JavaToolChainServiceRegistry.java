@@ -25,6 +25,7 @@ import org.gradle.api.internal.tasks.compile.JavaHomeBasedJavaCompilerFactory;
 import org.gradle.api.internal.tasks.compile.daemon.CompilerClientsManager;
 import org.gradle.api.internal.tasks.compile.daemon.CompilerDaemonManager;
 import org.gradle.api.internal.tasks.compile.daemon.CompilerDaemonStarter;
+import org.gradle.api.internal.tasks.compile.daemon.SharedCompilerClientsManager;
 import org.gradle.internal.Factory;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
@@ -36,6 +37,7 @@ import javax.tools.JavaCompiler;
 
 public class JavaToolChainServiceRegistry implements PluginServiceRegistry {
     public void registerGlobalServices(ServiceRegistration registration) {
+        registration.addProvider(new GlobalScopeCompileServices());
     }
 
     public void registerBuildServices(ServiceRegistration registration) {
@@ -49,9 +51,20 @@ public class JavaToolChainServiceRegistry implements PluginServiceRegistry {
         registration.addProvider(new ProjectScopeCompileServices());
     }
 
+    private static class GlobalScopeCompileServices {
+        SharedCompilerClientsManager createSharedCompilerClientsManager() {
+            // The shared clients manager is only created by the builds that keep the compiler daemons alive
+            return new SharedCompilerClientsManager();
+        }
+    }
+
     private static class BuildScopeCompileServices {
-        CompilerDaemonManager createCompilerDaemonManager(Factory<WorkerProcessBuilder> workerFactory, StartParameter startParameter) {
-            return new CompilerDaemonManager(new CompilerClientsManager(new CompilerDaemonStarter(workerFactory, startParameter)));
+        CompilerDaemonManager createCompilerDaemonManager(Factory<WorkerProcessBuilder> workerFactory, StartParameter startParameter, SharedCompilerClientsManager sharedClientsManager) {
+            CompilerDaemonStarter starter = new CompilerDaemonStarter(workerFactory, startParameter);
+            if (CompilerClientsManager.isKeepAliveEnabled()) {
+                return new CompilerDaemonManager(sharedClientsManager.get(), starter);
+            }
+            return new CompilerDaemonManager(new CompilerClientsManager(starter, CompilerClientsManager.getMaxClientsSetting(), CompilerClientsManager.getMaxTotalHeapSizeMbSetting()));
         }
 
         Factory<JavaCompiler> createJavaHomeBasedJavaCompilerFactory() {
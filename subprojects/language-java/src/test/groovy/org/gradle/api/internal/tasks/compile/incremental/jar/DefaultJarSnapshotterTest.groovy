@@ -20,10 +20,14 @@ package org.gradle.api.internal.tasks.compile.incremental.jar
 
 import org.gradle.api.internal.file.collections.DirectoryFileTree
 import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.internal.hash.DefaultHasher
 import org.gradle.api.internal.hash.Hasher
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
 import org.junit.Rule
@@ -35,9 +39,14 @@ class DefaultJarSnapshotterTest extends Specification {
 
     @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
     def hasher = Mock(Hasher)
+    def processor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
 
     @Subject snapshotter = new DefaultJarSnapshotter(hasher, Mock(ClassDependenciesAnalyzer))
 
+    def cleanup() {
+        processor.stop()
+    }
+
     def "creates snapshot for an empty jar"() {
         expect:
         def snapshot = snapshotter.createSnapshot(new byte[0], new JarArchive(new File("a.jar"), new FileTreeAdapter(new DirectoryFileTree(new File("missing")))))
@@ -64,4 +73,27 @@ class DefaultJarSnapshotterTest extends Specification {
         snapshot.hashes.keySet() == ["Foo", "com.Foo2"] as Set
         snapshot.analysis
     }
+
+    def "creates the same snapshot in parallel as sequentially"() {
+        given:
+        (0..<250).each { temp.createFile("classes/org/Foo${it}.class").text = "class $it" }
+        def jar = new JarArchive(temp.file("lib.jar"), new FileTreeAdapter(new DirectoryFileTree(temp.file("classes"))))
+        // Not a Spock mock, as it is called from the worker threads
+        def analyzer = [getClassAnalysis: { String className, File file ->
+            new ClassAnalysis(className == "org.Foo0" ? [] as Set : ["org.Foo0"] as Set, className == "org.Foo1")
+        }] as ClassDependenciesAnalyzer
+
+        when:
+        def parallel = new DefaultJarSnapshotter(new DefaultHasher(), analyzer, processor).createSnapshotInParallel(new byte[0], jar)
+        def sequential = new DefaultJarSnapshotter(new DefaultHasher(), analyzer).createSnapshot(new byte[0], jar)
+
+        then:
+        parallel.classes == sequential.classes
+        parallel.hashes.keySet() == sequential.hashes.keySet()
+        parallel.hashes.every { Arrays.equals(it.value, sequential.hashes[it.key]) }
+        parallel.analysis.getRelevantDependents("org.Foo0").dependentClasses == sequential.analysis.getRelevantDependents("org.Foo0").dependentClasses
+        !parallel.analysis.getRelevantDependents("org.Foo0").dependentClasses.isEmpty()
+        parallel.analysis.isDependencyToAll("org.Foo1")
+        parallel.getAffectedClassesSince(sequential).altered.dependentClasses.isEmpty()
+    }
 }
@@ -17,13 +17,24 @@
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
 import org.gradle.api.file.FileTree
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Subject
 
 class JarClasspathSnapshotFactoryTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
 
     def snapshotter = Mock(JarSnapshotter)
     @Subject factory = new JarClasspathSnapshotFactory(snapshotter)
+    def processor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+
+    def cleanup() {
+        processor.stop()
+    }
 
     def "creates classpath snapshot with correct duplicate classes"() {
         def jar1 = Stub(JarArchive); def jar2 = Stub(JarArchive); def jar3 = Stub(JarArchive)
@@ -62,4 +73,32 @@ class JarClasspathSnapshotFactoryTest extends Specification {
         s.data.jarHashes[new File("f1")] == new byte[1]
         s.data.jarHashes[new File("f2")] == new byte[2]
     }
+
+    def "snapshots large jars one at a time and the other jars in parallel"() {
+        given:
+        def large = temp.createFile("large.jar")
+        large.bytes = new byte[JarClasspathSnapshotFactory.LARGE_JAR_SIZE]
+        def jars = [new JarArchive(temp.createFile("a.jar"), Stub(FileTree)), new JarArchive(large, Stub(FileTree)), new JarArchive(temp.createFile("b.jar"), Stub(FileTree))]
+        def parallel = [].asSynchronized()
+        def sequential = [].asSynchronized()
+        // Not a Spock mock, as it is called from the worker threads
+        def jarSnapshotter = [
+            createSnapshot: { JarArchive jar -> sequential << jar.file.name; snapshot(jar.file.name) },
+            createSnapshotInParallel: { JarArchive jar -> parallel << jar.file.name; snapshot(jar.file.name) }
+        ] as JarSnapshotter
+
+        when:
+        def s = new JarClasspathSnapshotFactory(jarSnapshotter, processor).createSnapshot(jars)
+
+        then:
+        parallel == ["large.jar"]
+        sequential as Set == ["a.jar", "b.jar"] as Set
+        s.data.jarHashes.size() == 3
+        s.getSnapshot(jars[1]).classes == ["large.jar"] as Set
+        s.data.duplicateClasses.isEmpty()
+    }
+
+    private static JarSnapshot snapshot(String className) {
+        return new JarSnapshot(new JarSnapshotData(new byte[0], [(className): new byte[0]], new ClassSetAnalysisData([:])))
+    }
 }
@@ -15,33 +15,155 @@
  */
 package org.gradle.api.internal.tasks.compile.daemon;
 
+import org.gradle.api.Nullable;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
-public class CompilerClientsManager {
+/**
+ * Keeps track of the compiler daemons and of which of them are idle.
+ *
+ * <p>The number of compiler daemons and the sum of their maximum heap sizes can be limited. When a new compiler daemon would go over a limit, the
+ * least recently used idle compiler daemons are stopped to make room for it. When all compiler daemons are busy, the caller waits until one of them
+ * is released. A compiler daemon without a maximum heap size is counted as if it could use as much heap as the build process.</p>
+ *
+ * <p>An idle compiler daemon whose process has exited is never reused.</p>
+ */
+public class CompilerClientsManager implements Stoppable {
 
     private static final Logger LOGGER = Logging.getLogger(CompilerDaemonManager.class);
 
+    /**
+     * The maximum number of compiler daemons. Not limited when not set.
+     */
+    public final static String MAX_DAEMONS_PROPERTY = "org.gradle.compilerDaemons.maxCount";
+    /**
+     * The maximum sum of the maximum heap sizes of the compiler daemons, such as 4g. Not limited when not set.
+     */
+    public final static String MAX_HEAP_SIZE_PROPERTY = "org.gradle.compilerDaemons.maxHeapSize";
+    /**
+     * Whether the compiler daemons are kept alive between the builds run by the Gradle daemon.
+     */
+    public final static String KEEP_ALIVE_PROPERTY = "org.gradle.compilerDaemons.keepAlive";
+
     private final Object lock = new Object();
     private final List<CompilerDaemonClient> allClients = new ArrayList<CompilerDaemonClient>();
-    private final List<CompilerDaemonClient> idleClients = new ArrayList<CompilerDaemonClient>();
+    // Ordered from the most recently released to the least recently released
+    private final List<CompilerDaemonClient> idleClients = new LinkedList<CompilerDaemonClient>();
+    private final int maxClients;
+    private final int maxTotalHeapSizeMb;
+    private int startingClients;
+    private int startingHeapSizeMb;
 
     private CompilerDaemonStarter compilerDaemonStarter;
 
     public CompilerClientsManager(CompilerDaemonStarter compilerDaemonStarter) {
+        this(compilerDaemonStarter, 0, 0);
+    }
+
+    /**
+     * @param compilerDaemonStarter used by {@link #reserveNewClient(File, DaemonForkOptions)}. May be null when new clients are only reserved with
+     * {@link #reserveNewClient(CompilerDaemonStarter, File, DaemonForkOptions)}.
+     * @param maxClients the maximum number of compiler daemons, or 0 for no limit.
+     * @param maxTotalHeapSizeMb the maximum sum of the maximum heap sizes of the compiler daemons, in MB, or 0 for no limit.
+     */
+    public CompilerClientsManager(@Nullable CompilerDaemonStarter compilerDaemonStarter, int maxClients, int maxTotalHeapSizeMb) {
         this.compilerDaemonStarter = compilerDaemonStarter;
+        this.maxClients = maxClients;
+        this.maxTotalHeapSizeMb = maxTotalHeapSizeMb;
+    }
+
+    /**
+     * Returns the maximum number of compiler daemons set by the {@value #MAX_DAEMONS_PROPERTY} system property, or 0 when it is not set.
+     */
+    public static int getMaxClientsSetting() {
+        String value = System.getProperty(MAX_DAEMONS_PROPERTY);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid value '%s' for system property '%s'. Expected a number of compiler daemons.", value, MAX_DAEMONS_PROPERTY), e);
+        }
+    }
+
+    /**
+     * Returns the maximum sum of heap sizes set by the {@value #MAX_HEAP_SIZE_PROPERTY} system property, in MB, or 0 when it is not set.
+     */
+    public static int getMaxTotalHeapSizeMbSetting() {
+        String value = System.getProperty(MAX_HEAP_SIZE_PROPERTY);
+        return value == null ? 0 : Math.max(0, DaemonForkOptions.getHeapSizeMb(value));
+    }
+
+    /**
+     * Returns true when the compiler daemons should be kept alive between builds.
+     */
+    public static boolean isKeepAliveEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(KEEP_ALIVE_PROPERTY));
     }
 
     public CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
+        return reserveIdleClient(forkOptions, (LogLevel) null);
+    }
+
+    /**
+     * Reserves an idle compiler daemon that is compatible with the given fork options and was started with the given log level. Idle compiler
+     * daemons whose process has exited are forgotten, and those started with another log level are stopped, as they cannot be used by this build.
+     *
+     * @param logLevel the log level of the build. May be null, in which case the log level of the compiler daemons is not checked.
+     */
+    public CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, @Nullable LogLevel logLevel) {
+        List<CompilerDaemonClient> mismatched = new ArrayList<CompilerDaemonClient>();
+        try {
+            synchronized (lock) {
+                return reserveIdleClient(forkOptions, logLevel, mismatched);
+            }
+        } finally {
+            stopMismatched(mismatched);
+        }
+    }
+
+    private CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, @Nullable LogLevel logLevel, List<CompilerDaemonClient> mismatched) {
+        boolean discarded = false;
+        Iterator<CompilerDaemonClient> it = idleClients.iterator();
+        while (it.hasNext()) {
+            CompilerDaemonClient candidate = it.next();
+            if (!candidate.isAlive()) {
+                LOGGER.info("Discarding a compiler daemon whose process has exited.");
+                it.remove();
+                allClients.remove(candidate);
+                discarded = true;
+            } else if (logLevel != null && candidate.getLogLevel() != logLevel) {
+                it.remove();
+                allClients.remove(candidate);
+                mismatched.add(candidate);
+                discarded = true;
+            }
+        }
+        if (discarded) {
+            // Make room for the compiler daemons waiting to be started
+            lock.notifyAll();
+        }
         return reserveIdleClient(forkOptions, idleClients);
     }
 
+    private void stopMismatched(List<CompilerDaemonClient> mismatched) {
+        if (!mismatched.isEmpty()) {
+            LOGGER.info("Stopping {} compiler daemon(s) started with another log level.", mismatched.size());
+            CompositeStoppable.stoppable(mismatched).stop();
+        }
+    }
+
     CompilerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<CompilerDaemonClient> clients) {
         synchronized (lock) {
             Iterator<CompilerDaemonClient> it = clients.iterator();
@@ -57,17 +179,95 @@ public class CompilerClientsManager {
     }
 
     public CompilerDaemonClient reserveNewClient(File workingDir, DaemonForkOptions forkOptions) {
+        return reserveNewClient(compilerDaemonStarter, workingDir, forkOptions);
+    }
+
+    /**
+     * Starts a new compiler daemon with the given starter, once there is room for it. Returns an idle compatible compiler daemon instead, when one is
+     * released while waiting for room.
+     */
+    public CompilerDaemonClient reserveNewClient(CompilerDaemonStarter starter, File workingDir, DaemonForkOptions forkOptions) {
+        int heapSizeMb = getHeapSizeMb(forkOptions);
+        List<CompilerDaemonClient> evicted = new ArrayList<CompilerDaemonClient>();
+        List<CompilerDaemonClient> mismatched = new ArrayList<CompilerDaemonClient>();
+        try {
+            synchronized (lock) {
+                while (!hasRoomFor(heapSizeMb)) {
+                    if (!idleClients.isEmpty()) {
+                        CompilerDaemonClient leastRecentlyUsed = idleClients.remove(idleClients.size() - 1);
+                        allClients.remove(leastRecentlyUsed);
+                        evicted.add(leastRecentlyUsed);
+                        continue;
+                    }
+                    if (allClients.isEmpty() && startingClients == 0) {
+                        // Nothing to wait for, so start the compiler daemon even if it is larger than the limit on its own
+                        break;
+                    }
+                    LOGGER.info("Waiting for a compiler daemon to become idle, as the compiler daemon limits have been reached.");
+                    lock.wait();
+                    CompilerDaemonClient client = reserveIdleClient(forkOptions, starter.getLogLevel(), mismatched);
+                    if (client != null) {
+                        return client;
+                    }
+                }
+                startingClients++;
+                startingHeapSizeMb += heapSizeMb;
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            if (!evicted.isEmpty()) {
+                LOGGER.info("Stopping {} least recently used compiler daemon(s) to stay within the compiler daemon limits.", evicted.size());
+                CompositeStoppable.stoppable(evicted).stop();
+            }
+            stopMismatched(mismatched);
+        }
+
         //allow the daemon to be started concurrently
-        CompilerDaemonClient client = compilerDaemonStarter.startDaemon(workingDir, forkOptions);
-        synchronized (lock) {
-            allClients.add(client);
+        CompilerDaemonClient client = null;
+        try {
+            client = starter.startDaemon(workingDir, forkOptions);
+        } finally {
+            synchronized (lock) {
+                startingClients--;
+                startingHeapSizeMb -= heapSizeMb;
+                if (client != null) {
+                    allClients.add(client);
+                }
+                lock.notifyAll();
+            }
         }
         return client;
     }
 
+    private boolean hasRoomFor(int heapSizeMb) {
+        if (maxClients > 0 && allClients.size() + startingClients >= maxClients) {
+            return false;
+        }
+        if (maxTotalHeapSizeMb > 0) {
+            int usedHeapSizeMb = startingHeapSizeMb;
+            for (CompilerDaemonClient client : allClients) {
+                usedHeapSizeMb += getHeapSizeMb(client.getForkOptions());
+            }
+            return usedHeapSizeMb + heapSizeMb <= maxTotalHeapSizeMb;
+        }
+        return true;
+    }
+
+    private int getHeapSizeMb(DaemonForkOptions forkOptions) {
+        if (maxTotalHeapSizeMb <= 0) {
+            return 0;
+        }
+        int heapSizeMb = forkOptions.getMaxHeapSizeMb();
+        return heapSizeMb >= 0 ? heapSizeMb : (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+    }
+
     public void release(CompilerDaemonClient client) {
         synchronized (lock) {
-            idleClients.add(client);
+            if (allClients.contains(client)) {
+                idleClients.add(0, client);
+            }
+            lock.notifyAll();
         }
     }
 
@@ -77,6 +277,7 @@ public class CompilerClientsManager {
             CompositeStoppable.stoppable(allClients).stop();
             LOGGER.info("Stopped {} compiler daemon(s).", allClients.size());
             allClients.clear();
+            idleClients.clear();
         }
     }
-}
\ No newline at end of file
+}
@@ -15,10 +15,14 @@
  */
 package org.gradle.api.internal.tasks.compile.daemon;
 
+import org.gradle.api.logging.LogLevel;
 import org.gradle.language.base.internal.compile.CompileSpec;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.UncheckedException;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.WorkerProcess;
 
 import java.util.concurrent.BlockingQueue;
@@ -26,13 +30,17 @@ import java.util.concurrent.SynchronousQueue;
 
 class CompilerDaemonClient implements CompilerDaemon, CompilerDaemonClientProtocol, Stoppable {
     private final DaemonForkOptions forkOptions;
+    private final LogLevel logLevel;
     private final WorkerProcess workerProcess;
+    private final ProcessState processState;
     private final CompilerDaemonServerProtocol server;
     private final BlockingQueue<CompileResult> compileResults = new SynchronousQueue<CompileResult>();
 
-    public CompilerDaemonClient(DaemonForkOptions forkOptions, WorkerProcess workerProcess, CompilerDaemonServerProtocol server) {
+    public CompilerDaemonClient(DaemonForkOptions forkOptions, LogLevel logLevel, WorkerProcess workerProcess, ProcessState processState, CompilerDaemonServerProtocol server) {
         this.forkOptions = forkOptions;
+        this.logLevel = logLevel;
         this.workerProcess = workerProcess;
+        this.processState = processState;
         this.server = server;
     }
 
@@ -47,10 +55,28 @@ class CompilerDaemonClient implements CompilerDaemon, CompilerDaemonClientProtoc
         }
     }
 
+    public DaemonForkOptions getForkOptions() {
+        return forkOptions;
+    }
+
     public boolean isCompatibleWith(DaemonForkOptions required) {
         return forkOptions.isCompatibleWith(required);
     }
 
+    /**
+     * The log level the compiler daemon was started with, which it keeps for as long as it runs.
+     */
+    public LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Returns false once the process of the compiler daemon has exited, for example because it crashed or was killed.
+     */
+    public boolean isAlive() {
+        return processState.isRunning();
+    }
+
     public void stop() {
         server.stop();
         workerProcess.waitForStop();
@@ -63,4 +89,22 @@ class CompilerDaemonClient implements CompilerDaemon, CompilerDaemonClientProtoc
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
+
+    /**
+     * Tracks whether the process of a compiler daemon is still running.
+     */
+    static class ProcessState implements ExecHandleListener {
+        private volatile boolean finished;
+
+        public void executionStarted(ExecHandle execHandle) {
+        }
+
+        public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+            finished = true;
+        }
+
+        boolean isRunning() {
+            return !finished;
+        }
+    }
 }
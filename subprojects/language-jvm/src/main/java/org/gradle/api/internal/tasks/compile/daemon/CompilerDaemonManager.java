@@ -16,6 +16,7 @@
 package org.gradle.api.internal.tasks.compile.daemon;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.Nullable;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.language.base.internal.compile.CompileSpec;
 
@@ -28,17 +29,31 @@ import java.io.File;
 public class CompilerDaemonManager implements CompilerDaemonFactory, Stoppable {
 
     private CompilerClientsManager clientsManager;
+    private final CompilerDaemonStarter starter;
 
     public CompilerDaemonManager(CompilerClientsManager clientsManager) {
+        this(clientsManager, null);
+    }
+
+    /**
+     * Creates a manager that shares the compiler daemons of the given clients manager with other managers, such as those of later builds.
+     * The compiler daemons are not stopped when this manager is stopped.
+     *
+     * @param starter used to start new compiler daemons for this manager. May be null, in which case the compiler daemons are owned by this manager,
+     * and started by the clients manager.
+     */
+    public CompilerDaemonManager(CompilerClientsManager clientsManager, @Nullable CompilerDaemonStarter starter) {
         this.clientsManager = clientsManager;
+        this.starter = starter;
     }
 
     public CompilerDaemon getDaemon(final File workingDir, final DaemonForkOptions forkOptions) {
         return new CompilerDaemon() {
             public <T extends CompileSpec> CompileResult execute(org.gradle.language.base.internal.compile.Compiler<T> compiler, T spec) {
-                CompilerDaemonClient client = clientsManager.reserveIdleClient(forkOptions);
+                // Shared compiler daemons may have been started by an earlier build with another log level
+                CompilerDaemonClient client = starter == null ? clientsManager.reserveIdleClient(forkOptions) : clientsManager.reserveIdleClient(forkOptions, starter.getLogLevel());
                 if (client == null) {
-                    client = clientsManager.reserveNewClient(workingDir, forkOptions);
+                    client = starter == null ? clientsManager.reserveNewClient(workingDir, forkOptions) : clientsManager.reserveNewClient(starter, workingDir, forkOptions);
                 }
                 try {
                     return client.execute(compiler, spec);
@@ -50,6 +65,8 @@ public class CompilerDaemonManager implements CompilerDaemonFactory, Stoppable {
     }
 
     public void stop() {
-        clientsManager.stop();
+        if (starter == null) {
+            clientsManager.stop();
+        }
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.tasks.compile.daemon;
 
 import org.gradle.StartParameter;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.Factory;
@@ -36,11 +37,19 @@ public class CompilerDaemonStarter {
         this.startParameter = startParameter;
     }
 
+    /**
+     * The log level of the compiler daemons started by this starter.
+     */
+    public LogLevel getLogLevel() {
+        return startParameter.getLogLevel();
+    }
+
     public CompilerDaemonClient startDaemon(File workingDir, DaemonForkOptions forkOptions) {
         LOG.debug("Starting Gradle compiler daemon with fork options {}.", forkOptions);
         Clock clock = new Clock();
         WorkerProcessBuilder builder = workerFactory.create();
-        builder.setLogLevel(startParameter.getLogLevel()); // NOTE: might make sense to respect per-compile-task log level
+        LogLevel logLevel = getLogLevel();
+        builder.setLogLevel(logLevel); // NOTE: might make sense to respect per-compile-task log level
         builder.applicationClasspath(forkOptions.getClasspath());
         builder.sharedPackages(forkOptions.getSharedPackages());
         JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
@@ -48,11 +57,13 @@ public class CompilerDaemonStarter {
         javaCommand.setMaxHeapSize(forkOptions.getMaxHeapSize());
         javaCommand.setJvmArgs(forkOptions.getJvmArgs());
         javaCommand.setWorkingDir(workingDir);
+        CompilerDaemonClient.ProcessState processState = new CompilerDaemonClient.ProcessState();
+        javaCommand.listener(processState);
         WorkerProcess process = builder.worker(new CompilerDaemonServer()).setBaseName("Gradle Compiler Daemon").build();
         process.start();
 
         CompilerDaemonServerProtocol server = process.getConnection().addOutgoing(CompilerDaemonServerProtocol.class);
-        CompilerDaemonClient client = new CompilerDaemonClient(forkOptions, process, server);
+        CompilerDaemonClient client = new CompilerDaemonClient(forkOptions, logLevel, process, processState, server);
         process.getConnection().addIncoming(CompilerDaemonClientProtocol.class, client);
         process.getConnection().connect();
 
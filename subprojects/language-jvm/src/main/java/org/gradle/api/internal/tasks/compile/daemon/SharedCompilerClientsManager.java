@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.daemon;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gradle.internal.concurrent.Stoppable;
+
+/**
+ * Holds the {@link CompilerClientsManager} shared by the builds run by a Gradle daemon, when the compiler daemons are kept alive between builds.
+ * The clients manager is created when a build first asks for it, and its limits are read at that time.
+ */
+@ThreadSafe
+public class SharedCompilerClientsManager implements Stoppable {
+    private CompilerClientsManager clientsManager;
+
+    public synchronized CompilerClientsManager get() {
+        if (clientsManager == null) {
+            clientsManager = new CompilerClientsManager(null, CompilerClientsManager.getMaxClientsSetting(), CompilerClientsManager.getMaxTotalHeapSizeMbSetting());
+        }
+        return clientsManager;
+    }
+
+    public synchronized void stop() {
+        if (clientsManager != null) {
+            clientsManager.stop();
+            clientsManager = null;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.daemon
 
+import org.gradle.api.logging.LogLevel
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
@@ -79,7 +80,10 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
     }
 
     def "clients can be released for further use"() {
-        def client = Mock(CompilerDaemonClient) { isCompatibleWith(_) >> true }
+        def client = Mock(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isAlive() >> true
+        }
         starter.startDaemon(workingDir, options) >> client
 
         when:
@@ -94,4 +98,160 @@ class CompilerClientsManagerTest extends ConcurrentSpecification {
         then:
         manager.reserveIdleClient(options) == client
     }
+
+    def "stops least recently used idle clients to stay within the maximum number of clients"() {
+        def limited = new CompilerClientsManager(starter, 2, 0)
+        def client1 = Mock(CompilerDaemonClient)
+        def client2 = Mock(CompilerDaemonClient)
+        def client3 = Mock(CompilerDaemonClient)
+        starter.startDaemon(workingDir, options) >>> [client1, client2, client3]
+
+        when:
+        limited.reserveNewClient(workingDir, options)
+        limited.reserveNewClient(workingDir, options)
+        limited.release(client1)
+        limited.release(client2)
+        def client = limited.reserveNewClient(workingDir, options)
+
+        then:
+        client == client3
+        1 * client1.stop()
+        0 * client2.stop()
+    }
+
+    def "stops idle clients to stay within the maximum total heap size"() {
+        def limited = new CompilerClientsManager(starter, 0, 1024)
+        def small = new DaemonForkOptions(null, "256m", [])
+        def large = new DaemonForkOptions(null, "768m", [])
+        def client1 = Mock(CompilerDaemonClient) { getForkOptions() >> small }
+        def client2 = Mock(CompilerDaemonClient) { getForkOptions() >> small }
+        def client3 = Mock(CompilerDaemonClient) { getForkOptions() >> large }
+        starter.startDaemon(workingDir, small) >>> [client1, client2]
+        starter.startDaemon(workingDir, large) >> client3
+
+        when:
+        limited.reserveNewClient(workingDir, small)
+        limited.reserveNewClient(workingDir, small)
+        limited.release(client2)
+        limited.release(client1)
+        def client = limited.reserveNewClient(workingDir, large)
+
+        then:
+        client == client3
+        1 * client2.stop()
+        0 * client1.stop()
+    }
+
+    def "starts a client larger than the maximum total heap size when there are no other clients"() {
+        def limited = new CompilerClientsManager(starter, 0, 512)
+        def large = new DaemonForkOptions(null, "1g", [])
+        def newClient = Stub(CompilerDaemonClient)
+        starter.startDaemon(workingDir, large) >> newClient
+
+        expect:
+        limited.reserveNewClient(workingDir, large) == newClient
+    }
+
+    def "waits for a busy client to be released when the maximum number of clients is reached"() {
+        def limited = new CompilerClientsManager(starter, 1, 0)
+        def busy = Stub(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isAlive() >> true
+        }
+        starter.startDaemon(workingDir, options) >> busy
+        limited.reserveNewClient(workingDir, options)
+        def reserved = null
+
+        when:
+        def thread = Thread.start {
+            reserved = limited.reserveNewClient(workingDir, options)
+        }
+        thread.join(200)
+
+        then:
+        thread.alive
+
+        when:
+        limited.release(busy)
+        thread.join(5000)
+
+        then:
+        !thread.alive
+        reserved == busy
+    }
+
+    def "stopped clients are not reused when released"() {
+        def client = Mock(CompilerDaemonClient) { isCompatibleWith(_) >> true }
+        starter.startDaemon(workingDir, options) >> client
+
+        when:
+        manager.reserveNewClient(workingDir, options)
+        manager.stop()
+        manager.release(client)
+
+        then:
+        manager.reserveIdleClient(options) == null
+    }
+
+    def "does not reuse idle clients whose process has exited"() {
+        def dead = Mock(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isAlive() >> false
+        }
+        def newClient = Stub(CompilerDaemonClient)
+        def limited = new CompilerClientsManager(starter, 1, 0)
+        starter.startDaemon(workingDir, options) >>> [dead, newClient]
+
+        when:
+        limited.reserveNewClient(workingDir, options)
+        limited.release(dead)
+
+        then:
+        limited.reserveIdleClient(options) == null
+
+        and:
+        limited.reserveNewClient(workingDir, options) == newClient
+        0 * dead.stop()
+    }
+
+    def "stops idle clients started with another log level"() {
+        def quiet = Mock(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isAlive() >> true
+            getLogLevel() >> LogLevel.QUIET
+        }
+        starter.startDaemon(workingDir, options) >> quiet
+
+        when:
+        manager.reserveNewClient(workingDir, options)
+        manager.release(quiet)
+        def client = manager.reserveIdleClient(options, LogLevel.INFO)
+
+        then:
+        client == null
+        1 * quiet.stop()
+
+        when:
+        manager.release(quiet)
+
+        then:
+        manager.reserveIdleClient(options, LogLevel.QUIET) == null
+    }
+
+    def "reuses idle clients started with the same log level"() {
+        def client = Mock(CompilerDaemonClient) {
+            isCompatibleWith(_) >> true
+            isAlive() >> true
+            getLogLevel() >> LogLevel.INFO
+        }
+        starter.startDaemon(workingDir, options) >> client
+
+        when:
+        manager.reserveNewClient(workingDir, options)
+        manager.release(client)
+
+        then:
+        manager.reserveIdleClient(options, LogLevel.INFO) == client
+        0 * client.stop()
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.daemon
 
+import org.gradle.api.logging.LogLevel
 import org.gradle.language.base.internal.compile.CompileSpec
 import org.gradle.language.base.internal.compile.Compiler
 import spock.lang.Specification
@@ -97,4 +98,37 @@ class CompilerDaemonManagerTest extends Specification {
         then:
         clientsManager.stop()
     }
+
+    def "shared manager starts new clients with its own starter"() {
+        def starter = Stub(CompilerDaemonStarter) {
+            getLogLevel() >> LogLevel.INFO
+        }
+        def shared = new CompilerDaemonManager(clientsManager, starter)
+
+        when:
+        shared.getDaemon(workingDir, options).execute(compiler, compileSpec)
+
+        then:
+        1 * clientsManager.reserveIdleClient(options, LogLevel.INFO) >> null
+
+        then:
+        1 * clientsManager.reserveNewClient(starter, workingDir, options) >> client
+
+        then:
+        1 * client.execute(compiler, compileSpec)
+
+        then:
+        1 * clientsManager.release(client)
+        0 * _._
+    }
+
+    def "shared manager does not stop clients"() {
+        def shared = new CompilerDaemonManager(clientsManager, Stub(CompilerDaemonStarter))
+
+        when:
+        shared.stop()
+
+        then:
+        0 * clientsManager._
+    }
 }
@@ -173,4 +173,11 @@ class DaemonForkOptionsTest extends Specification {
         settings1.isCompatibleWith(settings2)
         !settings1.isCompatibleWith(settings3)
     }
+
+    def "provides the maximum heap size in MB"() {
+        expect:
+        new DaemonForkOptions(null, "2g", []).maxHeapSizeMb == 2048
+        new DaemonForkOptions(null, "512m", []).maxHeapSizeMb == 512
+        new DaemonForkOptions("128m", null, []).maxHeapSizeMb == -1
+    }
 }
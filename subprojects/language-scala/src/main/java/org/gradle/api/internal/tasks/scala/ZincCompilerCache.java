@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.scala;
+
+import org.gradle.internal.Factory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used Zinc compilers of a compiler daemon, so that later compilations with the same Scala version and compiler classpath
+ * use a warm compiler, whose ScalaInstance ClassLoader and JIT-compiled code are kept, instead of creating a new one. A compiler is identified by
+ * the path, size and modification time of each file of its Scala and Zinc classpath, so that a replaced jar leads to a new compiler.
+ *
+ * <p>Thread-safe.</p>
+ */
+class ZincCompilerCache<T> {
+    public static final int DEFAULT_MAX_SIZE = 5;
+
+    private final Map<List<Object>, T> compilers;
+
+    ZincCompilerCache(final int maxSize) {
+        compilers = new LinkedHashMap<List<Object>, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, T> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached compiler for the given classpath, or creates one with the given factory.
+     */
+    synchronized T get(Iterable<File> scalaClasspath, Iterable<File> zincClasspath, Factory<? extends T> factory) {
+        List<Object> key = key(scalaClasspath, zincClasspath);
+        T compiler = compilers.get(key);
+        if (compiler == null) {
+            compiler = factory.create();
+            compilers.put(key, compiler);
+        }
+        return compiler;
+    }
+
+    synchronized int size() {
+        return compilers.size();
+    }
+
+    private static List<Object> key(Iterable<File> scalaClasspath, Iterable<File> zincClasspath) {
+        List<Object> key = new ArrayList<Object>();
+        addFiles(scalaClasspath, key);
+        // Separates the Scala classpath from the Zinc classpath
+        key.add(null);
+        addFiles(zincClasspath, key);
+        return key;
+    }
+
+    private static void addFiles(Iterable<File> classpath, List<Object> key) {
+        for (File file : classpath) {
+            key.add(file.getAbsolutePath());
+            key.add(file.length());
+            key.add(file.lastModified());
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.gradle.api.internal.tasks.compile.JavaCompilerArgumentsBuilder;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.internal.Factory;
 import org.gradle.internal.jvm.Jvm;
 import scala.Option;
 import xsbti.F0;
@@ -51,12 +52,15 @@ public class ZincScalaCompiler implements Compiler<ScalaJavaJointCompileSpec>, S
     // need to defer loading of Zinc/sbt/Scala classes until we are
     // running in the compiler daemon and have them on the class path
     private static class Compiler {
+        // Lives as long as the compiler daemon, which may outlive the build
+        private static final ZincCompilerCache<com.typesafe.zinc.Compiler> COMPILERS = new ZincCompilerCache<com.typesafe.zinc.Compiler>(ZincCompilerCache.DEFAULT_MAX_SIZE);
+
         static WorkResult execute(Iterable<File> scalaClasspath, Iterable<File> zincClasspath, ScalaJavaJointCompileSpec spec) {
             LOGGER.info("Compiling with Zinc Scala compiler.");
 
             xsbti.Logger logger = new SbtLoggerAdapter();
 
-            com.typesafe.zinc.Compiler compiler = createCompiler(scalaClasspath, zincClasspath, logger);
+            com.typesafe.zinc.Compiler compiler = getCompiler(scalaClasspath, zincClasspath, logger);
             List<String> scalacOptions = new ZincScalaCompilerArgumentsGenerator().generate(spec);
             List<String> javacOptions = new JavaCompilerArgumentsBuilder(spec).includeClasspath(false).build();
             Inputs inputs = Inputs.create(ImmutableList.copyOf(spec.getClasspath()), ImmutableList.copyOf(spec.getSource()), spec.getDestinationDir(),
@@ -89,6 +93,15 @@ public class ZincScalaCompiler implements Compiler<ScalaJavaJointCompileSpec>, S
             return new IncOptions(transitiveStep, recompileAllFraction, relationsDebug, apiDebug, apiDiffContextSize, apiDumpDirectory, transactional, backup);
         }
 
+        static com.typesafe.zinc.Compiler getCompiler(final Iterable<File> scalaClasspath, final Iterable<File> zincClasspath, final xsbti.Logger logger) {
+            return COMPILERS.get(scalaClasspath, zincClasspath, new Factory<com.typesafe.zinc.Compiler>() {
+                public com.typesafe.zinc.Compiler create() {
+                    LOGGER.info("Creating Zinc Scala compiler.");
+                    return createCompiler(scalaClasspath, zincClasspath, logger);
+                }
+            });
+        }
+
         static com.typesafe.zinc.Compiler createCompiler(Iterable<File> scalaClasspath, Iterable<File> zincClasspath, xsbti.Logger logger) {
             ScalaLocation scalaLocation = ScalaLocation.fromPath(Lists.newArrayList(scalaClasspath));
             SbtJars sbtJars = SbtJars.fromPath(Lists.newArrayList(zincClasspath));
@@ -96,7 +109,8 @@ public class ZincScalaCompiler implements Compiler<ScalaJavaJointCompileSpec>, S
             if (LOGGER.isDebugEnabled()) {
                 Setup.debug(setup, logger);
             }
-            return com.typesafe.zinc.Compiler.getOrCreate(setup, logger);
+            // Not getOrCreate(), whose own cache is keyed by the Setup alone and would hand out its compiler for a replaced jar
+            return com.typesafe.zinc.Compiler.create(setup, logger);
         }
     }
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.scala
+
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ZincCompilerCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cache = new ZincCompilerCache<Object>(2)
+    def scalaClasspath = [tmpDir.file("scala-library.jar").createFile(), tmpDir.file("scala-compiler.jar").createFile()]
+    def zincClasspath = [tmpDir.file("zinc.jar").createFile()]
+
+    def "reuses the compiler created for the same classpath"() {
+        def factory = Mock(Factory)
+        def compiler = new Object()
+
+        when:
+        def first = cache.get(scalaClasspath, zincClasspath, factory)
+        def second = cache.get(scalaClasspath, zincClasspath, factory)
+
+        then:
+        1 * factory.create() >> compiler
+        first == compiler
+        second == compiler
+    }
+
+    def "creates a new compiler for a different Scala or Zinc classpath"() {
+        def factory = Mock(Factory)
+        def otherScala = [tmpDir.file("other-scala-library.jar").createFile()]
+
+        when:
+        cache.get(scalaClasspath, zincClasspath, factory)
+        cache.get(otherScala, zincClasspath, factory)
+        cache.get(scalaClasspath, otherScala, factory)
+
+        then:
+        3 * factory.create() >> { new Object() }
+    }
+
+    def "creates a new compiler when a jar of the classpath changed"() {
+        def factory = Mock(Factory)
+
+        when:
+        cache.get(scalaClasspath, zincClasspath, factory)
+        zincClasspath[0].text = "changed"
+        cache.get(scalaClasspath, zincClasspath, factory)
+
+        then:
+        2 * factory.create() >> { new Object() }
+    }
+
+    def "discards the least recently used compiler when full"() {
+        def factory = Mock(Factory)
+        def classpath1 = [tmpDir.file("1.jar").createFile()]
+        def classpath2 = [tmpDir.file("2.jar").createFile()]
+        def classpath3 = [tmpDir.file("3.jar").createFile()]
+
+        when:
+        cache.get(classpath1, zincClasspath, factory)
+        cache.get(classpath2, zincClasspath, factory)
+        cache.get(classpath1, zincClasspath, factory)
+        cache.get(classpath3, zincClasspath, factory)
+        cache.get(classpath1, zincClasspath, factory)
+        cache.get(classpath2, zincClasspath, factory)
+
+        then:
+        4 * factory.create() >> { new Object() }
+        cache.size() == 2
+    }
+}
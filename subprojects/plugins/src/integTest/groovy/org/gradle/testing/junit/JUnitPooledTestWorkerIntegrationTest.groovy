@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.testing.junit
+
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.DefaultTestExecutionResult
+
+class JUnitPooledTestWorkerIntegrationTest extends AbstractIntegrationSpec {
+
+    def setup() {
+        executer.withArgument("-D${TestWorkerPool.TOGGLE_PROPERTY}=true")
+    }
+
+    def "can use the libraries of the test framework in a pooled test worker"() {
+        buildFile << """
+            apply plugin: 'java'
+            repositories { mavenCentral() }
+            dependencies { testCompile 'junit:junit:4.12' }
+        """
+
+        file("src/test/java/MatcherTest.java") << """
+            import org.junit.*;
+            import org.junit.rules.ExpectedException;
+            import static org.hamcrest.CoreMatchers.*;
+            import static org.junit.Assert.assertThat;
+
+            public class MatcherTest {
+                @Rule public ExpectedException thrown = ExpectedException.none();
+
+                @Test public void usesAssertThat() {
+                    assertThat("value", equalTo("value"));
+                }
+
+                @Test public void usesExpectedException() {
+                    thrown.expect(IllegalStateException.class);
+                    thrown.expectMessage(containsString("broken"));
+                    throw new IllegalStateException("broken");
+                }
+            }
+        """
+
+        when:
+        succeeds("test")
+
+        then:
+        def result = new DefaultTestExecutionResult(testDirectory)
+        result.assertTestClassesExecuted("MatcherTest")
+        result.testClass("MatcherTest").assertTestsExecuted("usesAssertThat", "usesExpectedException")
+    }
+}
@@ -19,9 +19,12 @@ package org.gradle.api.internal.tasks.testing.detection;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
@@ -30,6 +33,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
     protected static final String TEST_CASE = "junit/framework/TestCase";
@@ -43,11 +47,12 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
+    private ClassFileDetailsCache classFileDetailsCache;
 
     protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
         assert classFileExtractionManager != null;
         this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+        this.superClasses = new ConcurrentHashMap<File, Boolean>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
@@ -55,7 +60,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     protected abstract T createClassVisitor();
 
     protected File getSuperTestClassFile(String superClassName) {
-        prepareClasspath();
+        List<File> testClassDirectories = prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
         }
@@ -78,9 +83,9 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         }
     }
 
-    private void prepareClasspath() {
+    private synchronized List<File> prepareClasspath() {
         if (testClassDirectories != null) {
-            return;
+            return testClassDirectories;
         }
 
         testClassDirectories = new ArrayList<File>();
@@ -97,6 +102,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 }
             }
         }
+        return testClassDirectories;
     }
 
     public void setTestClassesDirectory(File testClassesDirectory) {
@@ -107,6 +113,26 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
+    public void setClassFileDetailsCache(@Nullable ClassFileDetailsCache classFileDetailsCache) {
+        this.classFileDetailsCache = classFileDetailsCache;
+    }
+
+    /**
+     * Returns the details of the given class file, using the class file details cache when one is set.
+     */
+    protected ClassFileDetails classDetails(File testClassFile) {
+        if (classFileDetailsCache == null) {
+            return ClassFileDetails.of(classVisitor(testClassFile));
+        }
+        HashValue hash = HashUtil.sha1(testClassFile);
+        ClassFileDetails details = classFileDetailsCache.get(hash);
+        if (details == null) {
+            details = ClassFileDetails.of(classVisitor(testClassFile));
+            classFileDetailsCache.put(hash, details);
+        }
+        return details;
+    }
+
     protected TestClassVisitor classVisitor(final File testClassFile) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
@@ -150,9 +176,9 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, ClassFileDetails classDetails, boolean superClass) {
+        if (isTest && !classDetails.isAbstract() && !superClass) {
+            String className = Type.getObjectType(classDetails.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the {@link ClassFileDetails} of class files by the hash of their content, so that unchanged class files are not parsed again
+ * by the next test run. Safe to use from multiple threads.
+ *
+ * <p>Only the entries that were used since the cache was loaded are written back by {@link #save()}, so the entries of deleted
+ * and changed class files do not accumulate.</p>
+ */
+public class ClassFileDetailsCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassFileDetailsCache.class);
+    private static final int CACHE_VERSION = 1;
+
+    private final File cacheFile;
+    private final Map<HashValue, ClassFileDetails> previous = new HashMap<HashValue, ClassFileDetails>();
+    private final Map<HashValue, ClassFileDetails> current = new ConcurrentHashMap<HashValue, ClassFileDetails>();
+
+    public ClassFileDetailsCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Loads the entries written by a previous run. Starts with an empty cache when the file is missing or cannot be read.
+     */
+    public void load() {
+        previous.clear();
+        current.clear();
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(cacheFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != CACHE_VERSION) {
+                    return;
+                }
+                int count = decoder.readSmallInt();
+                for (int i = 0; i < count; i++) {
+                    HashValue hash = new HashValue(decoder.readBinary());
+                    String className = decoder.readString();
+                    String superClassName = decoder.readNullableString();
+                    boolean test = decoder.readBoolean();
+                    boolean isAbstract = decoder.readBoolean();
+                    previous.put(hash, new ClassFileDetails(className, superClassName, test, isAbstract));
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read the test class detection cache {}.", cacheFile, e);
+            previous.clear();
+        }
+    }
+
+    @Nullable
+    public ClassFileDetails get(HashValue hash) {
+        ClassFileDetails details = current.get(hash);
+        if (details == null) {
+            details = previous.get(hash);
+            if (details != null) {
+                current.put(hash, details);
+            }
+        }
+        return details;
+    }
+
+    public void put(HashValue hash, ClassFileDetails details) {
+        current.put(hash, details);
+    }
+
+    public void save() {
+        try {
+            cacheFile.getParentFile().mkdirs();
+            OutputStream outputStream = new FileOutputStream(cacheFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(CACHE_VERSION);
+                encoder.writeSmallInt(current.size());
+                for (Map.Entry<HashValue, ClassFileDetails> entry : current.entrySet()) {
+                    ClassFileDetails details = entry.getValue();
+                    encoder.writeBinary(entry.getKey().asByteArray());
+                    encoder.writeString(details.getClassName());
+                    encoder.writeNullableString(details.getSuperClassName());
+                    encoder.writeBoolean(details.isTest());
+                    encoder.writeBoolean(details.isAbstract());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
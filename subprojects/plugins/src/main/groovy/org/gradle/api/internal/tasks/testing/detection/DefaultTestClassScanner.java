@@ -16,36 +16,61 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 
 import java.io.File;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
  * a detection or filename scan is performed to find test classes.
+ *
+ * <p>When an executor factory is given, the detection scan inspects the candidate class files using a pool of threads, and passes each test class
+ * to the test class processor as soon as it has been detected.</p>
  */
 public class DefaultTestClassScanner implements Runnable {
+    public final static String PARALLEL_DETECTION_TOGGLE_PROPERTY = "org.gradle.test.parallelDetection";
+
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final ExecutorFactory executorFactory;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
                                    TestClassProcessor testClassProcessor) {
+        this(candidateClassFiles, testFrameworkDetector, testClassProcessor, null);
+    }
+
+    public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
+                                   TestClassProcessor testClassProcessor, @Nullable ExecutorFactory executorFactory) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Returns true when test classes should be detected in parallel, using the class file details cache.
+     */
+    public static boolean isParallelDetectionEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(PARALLEL_DETECTION_TOGGLE_PROPERTY));
     }
 
     public void run() {
         if (testFrameworkDetector == null) {
             filenameScan();
-        } else {
+        } else if (executorFactory == null) {
             detectionScan();
+        } else {
+            parallelDetectionScan();
         }
     }
 
@@ -58,6 +83,25 @@ public class DefaultTestClassScanner implements Runnable {
         });
     }
 
+    private void parallelDetectionScan() {
+        testFrameworkDetector.startDetection(new SynchronizedTestClassProcessor(testClassProcessor));
+        final StoppableExecutor executor = executorFactory.create("Test class detection", Runtime.getRuntime().availableProcessors());
+        try {
+            candidateClassFiles.visit(new ClassFileVisitor() {
+                public void visitClassFile(FileVisitDetails fileDetails) {
+                    final File file = fileDetails.getFile();
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            testFrameworkDetector.processTestClass(file);
+                        }
+                    });
+                }
+            });
+        } finally {
+            executor.stop();
+        }
+    }
+
     private void filenameScan() {
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
@@ -79,4 +123,27 @@ public class DefaultTestClassScanner implements Runnable {
 
         public abstract void visitClassFile(FileVisitDetails fileDetails);
     }
+
+    /**
+     * Serializes the calls of the detection threads, as test class processors are not required to be thread-safe.
+     */
+    private static class SynchronizedTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor delegate;
+
+        private SynchronizedTestClassProcessor(TestClassProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        public synchronized void startProcessing(TestResultProcessor resultProcessor) {
+            delegate.startProcessing(resultProcessor);
+        }
+
+        public synchronized void processTestClass(TestClassRunInfo testClass) {
+            delegate.processTestClass(testClass);
+        }
+
+        public synchronized void stop() {
+            delegate.stop();
+        }
+    }
 }
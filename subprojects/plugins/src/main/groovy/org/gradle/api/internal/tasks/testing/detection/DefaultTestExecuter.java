@@ -21,57 +21,99 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.processors.AffectedTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
+import org.gradle.api.internal.tasks.testing.processors.WorkPullingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.BatchingTestResultProcessor;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerOptions;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
+import org.gradle.api.internal.tasks.testing.worker.WorkerHeapUsageThreshold;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.io.File;
+import java.util.Set;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final TestExecuterOptions options;
 
-    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, TestExecuterOptions options) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.options = options;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        final boolean pullTestClasses = WorkPullingTestClassProcessor.isEnabled();
+        final WorkerHeapUsageThreshold heapUsageThreshold = WorkerHeapUsageThreshold.fromSystemProperties();
+        final TestWorkerOptions workerOptions = new TestWorkerOptions();
+        workerOptions.setPullTestClasses(pullTestClasses);
+        workerOptions.setBatchTestEvents(BatchingTestResultProcessor.isEnabled());
+        workerOptions.setReportHeapUsage(heapUsageThreshold != null);
+        // A worker process that has executed some test classes is not fresh enough for forkEvery, or to be checked for its heap usage
+        final TestWorkerPool pool = testTask.getForkEvery() == 0 && heapUsageThreshold == null ? options.getWorkerPool() : null;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), workerOptions, pool);
             }
         };
         Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
-                return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
+                return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery(), heapUsageThreshold);
             }
         };
 
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-                reforkingProcessorFactory, actorFactor);
+        TestClassProcessor processor;
+        if (pullTestClasses) {
+            processor = new WorkPullingTestClassProcessor(testTask.getMaxParallelForks(), reforkingProcessorFactory, actorFactor,
+                    WorkPullingTestClassProcessor.isLongestFirst() ? options.getPreviousTestClassDurations() : null);
+        } else {
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
+                    reforkingProcessorFactory, actorFactor);
+        }
+
+        Set<String> affectedTestClasses = options.getAffectedTestClasses();
+        TestClassProcessor detectedClassProcessor = affectedTestClasses == null ? processor : new AffectedTestClassProcessor(processor, affectedTestClasses);
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
         Runnable detector;
+        ClassFileDetailsCache classFileDetailsCache = null;
         if (testTask.isScanForTestClasses()) {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            ExecutorFactory executorFactory = options.getExecutorFactory();
+            if (executorFactory != null && DefaultTestClassScanner.isParallelDetectionEnabled()) {
+                classFileDetailsCache = new ClassFileDetailsCache(new File(testTask.getTemporaryDir(), String.format("testClassDetection-%s.bin", testFrameworkDetector.getClass().getSimpleName())));
+                classFileDetailsCache.load();
+                testFrameworkDetector.setClassFileDetailsCache(classFileDetailsCache);
+                detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, detectedClassProcessor, executorFactory);
+            } else {
+                testFrameworkDetector.setClassFileDetailsCache(null);
+                detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, detectedClassProcessor);
+            }
         } else {
-            detector = new DefaultTestClassScanner(testClassFiles, null, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, null, detectedClassProcessor);
         }
         new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider(), testTask.getPath(), String.format("Gradle Test Run %s", testTask.getPath())).run();
+        if (classFileDetailsCache != null) {
+            classFileDetailsCache.save();
+        }
     }
 }
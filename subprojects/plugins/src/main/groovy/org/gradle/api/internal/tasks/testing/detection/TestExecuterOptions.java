@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
+import org.gradle.internal.concurrent.ExecutorFactory;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The optional services and state a {@link DefaultTestExecuter} uses for a test run. Everything is null by default.
+ */
+public class TestExecuterOptions {
+    private ExecutorFactory executorFactory;
+    private Map<String, Long> previousTestClassDurations;
+    private TestWorkerPool workerPool;
+    private Set<String> affectedTestClasses;
+
+    /**
+     * Used to detect the test classes in parallel, when enabled. When null, the test classes are detected sequentially.
+     */
+    @Nullable
+    public ExecutorFactory getExecutorFactory() {
+        return executorFactory;
+    }
+
+    public void setExecutorFactory(@Nullable ExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * The durations of the test classes in the previous run, used to start the longest test classes first.
+     */
+    @Nullable
+    public Map<String, Long> getPreviousTestClassDurations() {
+        return previousTestClassDurations;
+    }
+
+    public void setPreviousTestClassDurations(@Nullable Map<String, Long> previousTestClassDurations) {
+        this.previousTestClassDurations = previousTestClassDurations;
+    }
+
+    /**
+     * The pool of idle test worker processes to use. When null, new worker processes are started for each run.
+     */
+    @Nullable
+    public TestWorkerPool getWorkerPool() {
+        return workerPool;
+    }
+
+    public void setWorkerPool(@Nullable TestWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    /**
+     * The names of the test classes to execute, out of those detected. When null, all of them are executed.
+     */
+    @Nullable
+    public Set<String> getAffectedTestClasses() {
+        return affectedTestClasses;
+    }
+
+    public void setAffectedTestClasses(@Nullable Set<String> affectedTestClasses) {
+        this.affectedTestClasses = affectedTestClasses;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Selects the test classes affected by the changes made to the classes of the test runtime classpath since the last successful test run.
+ *
+ * <p>The class files of the classpath directories are compared with their state at the end of the last successful run. The affected classes are the
+ * changed classes and the classes that transitively depend on them, as found by the class dependency analysis of incremental Java compilation. The
+ * analysis is made from the current class files, so it does not matter how they were compiled.</p>
+ *
+ * <p>All test classes are affected when there is no previous state, when the results of the last successful run are missing, when no class changed,
+ * when a jar, a resource or any of the given settings changed, or when a changed class may affect any class, such as a class with a constant. A test
+ * task that executes although no class changed is out of date for another reason, so it executes all of its test classes rather than none.</p>
+ */
+public class TestImpactAnalysis {
+    public final static String TOGGLE_PROPERTY = "org.gradle.test.impactAnalysis";
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestImpactAnalysis.class);
+    private static final int STATE_VERSION = 1;
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private final File stateFile;
+    private final ClassDependenciesAnalyzer analyzer;
+    private ClasspathState currentState;
+
+    public TestImpactAnalysis(File stateFile, ClassDependenciesAnalyzer analyzer) {
+        this.stateFile = stateFile;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Returns true when only the test classes affected by changes should be executed.
+     */
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    /**
+     * Returns the names of the top-level classes affected by the changes since the last successful run.
+     *
+     * @param settings anything else that affects all test classes when it changes, such as the JVM arguments of the test process.
+     * @param previousResults the results the last successful run left behind, such as its binary results and reports.
+     * @return the affected classes, or null when all test classes are affected.
+     */
+    @Nullable
+    public Set<String> getAffectedClasses(Iterable<File> classpath, List<String> settings, Iterable<File> previousResults) {
+        currentState = ClasspathState.of(classpath, settings);
+        ClasspathState previousState = read();
+        if (previousState == null) {
+            LOGGER.info("Executing all test classes, as the state of the last successful test run is not available.");
+            return null;
+        }
+        for (File results : previousResults) {
+            if (!results.exists()) {
+                LOGGER.info("Executing all test classes, as the results of the last successful test run are not available.");
+                return null;
+            }
+        }
+        if (!previousState.settings.equals(currentState.settings) || !previousState.classFiles.keySet().equals(currentState.classFiles.keySet())) {
+            LOGGER.info("Executing all test classes, as the jars of the test runtime classpath or the test settings changed.");
+            return null;
+        }
+
+        Set<String> changedClasses = new HashSet<String>();
+        for (Map.Entry<File, Map<String, HashValue>> entry : currentState.classFiles.entrySet()) {
+            if (!collectChangedClasses(previousState.classFiles.get(entry.getKey()), entry.getValue(), changedClasses)) {
+                LOGGER.info("Executing all test classes, as resources of {} changed.", entry.getKey());
+                return null;
+            }
+        }
+        if (changedClasses.isEmpty()) {
+            LOGGER.info("Executing all test classes, as no class changed since the last successful test run.");
+            return null;
+        }
+
+        ClassFilesAnalyzer classFilesAnalyzer = new ClassFilesAnalyzer(analyzer);
+        for (File dir : currentState.classFiles.keySet()) {
+            new DirectoryFileTree(dir).visit(classFilesAnalyzer);
+        }
+        DependentsSet dependents = new ClassSetAnalysis(classFilesAnalyzer.getAnalysis()).getRelevantDependents(changedClasses);
+        if (dependents.isDependencyToAll()) {
+            LOGGER.info("Executing all test classes, as a change to one of {} may affect any class.", changedClasses);
+            return null;
+        }
+
+        Set<String> affectedClasses = new HashSet<String>();
+        for (String className : changedClasses) {
+            affectedClasses.add(topLevelClassName(className));
+        }
+        for (String className : dependents.getDependentClasses()) {
+            affectedClasses.add(topLevelClassName(className));
+        }
+        LOGGER.info("Executing the test classes affected by changes to {}.", changedClasses);
+        return affectedClasses;
+    }
+
+    /**
+     * Records the state of the classpath passed to the last call of {@link #getAffectedClasses(Iterable, List, Iterable)}, once the test run has succeeded.
+     */
+    public void saveState() {
+        if (currentState == null) {
+            return;
+        }
+        try {
+            stateFile.getParentFile().mkdirs();
+            OutputStream outputStream = new FileOutputStream(stateFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(STATE_VERSION);
+                encoder.writeSmallInt(currentState.settings.size());
+                for (String setting : currentState.settings) {
+                    encoder.writeString(setting);
+                }
+                encoder.writeSmallInt(currentState.classFiles.size());
+                for (Map.Entry<File, Map<String, HashValue>> dir : currentState.classFiles.entrySet()) {
+                    encoder.writeString(dir.getKey().getAbsolutePath());
+                    encoder.writeSmallInt(dir.getValue().size());
+                    for (Map.Entry<String, HashValue> file : dir.getValue().entrySet()) {
+                        encoder.writeString(file.getKey());
+                        encoder.writeBinary(file.getValue().asByteArray());
+                    }
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Nullable
+    private ClasspathState read() {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(stateFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != STATE_VERSION) {
+                    return null;
+                }
+                ClasspathState state = new ClasspathState();
+                int settingsCount = decoder.readSmallInt();
+                for (int i = 0; i < settingsCount; i++) {
+                    state.settings.add(decoder.readString());
+                }
+                int dirCount = decoder.readSmallInt();
+                for (int i = 0; i < dirCount; i++) {
+                    Map<String, HashValue> files = new HashMap<String, HashValue>();
+                    state.classFiles.put(new File(decoder.readString()), files);
+                    int fileCount = decoder.readSmallInt();
+                    for (int j = 0; j < fileCount; j++) {
+                        files.put(decoder.readString(), new HashValue(decoder.readBinary()));
+                    }
+                }
+                return state;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read the test impact analysis state {}.", stateFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the names of the classes whose class files were added, removed or changed.
+     *
+     * @return false when a file other than a class file was added, removed or changed.
+     */
+    private static boolean collectChangedClasses(Map<String, HashValue> previousFiles, Map<String, HashValue> currentFiles, Set<String> changedClasses) {
+        Set<String> paths = new HashSet<String>(previousFiles.keySet());
+        paths.addAll(currentFiles.keySet());
+        for (String path : paths) {
+            HashValue previousHash = previousFiles.get(path);
+            if (previousHash != null && previousHash.equals(currentFiles.get(path))) {
+                continue;
+            }
+            if (!path.endsWith(CLASS_FILE_SUFFIX)) {
+                return false;
+            }
+            changedClasses.add(path.substring(0, path.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.'));
+        }
+        return true;
+    }
+
+    private static String topLevelClassName(String className) {
+        int index = className.indexOf('$');
+        return index < 0 ? className : className.substring(0, index);
+    }
+
+    private static class ClasspathState {
+        // The settings, followed by the path, size and modification time of each jar
+        final List<String> settings = new ArrayList<String>();
+        final Map<File, Map<String, HashValue>> classFiles = new LinkedHashMap<File, Map<String, HashValue>>();
+
+        static ClasspathState of(Iterable<File> classpath, List<String> settings) {
+            ClasspathState state = new ClasspathState();
+            state.settings.addAll(settings);
+            for (File file : classpath) {
+                File absoluteFile = file.getAbsoluteFile();
+                if (absoluteFile.isDirectory()) {
+                    final Map<String, HashValue> files = new HashMap<String, HashValue>();
+                    new DirectoryFileTree(absoluteFile).visit(new EmptyFileVisitor() {
+                        @Override
+                        public void visitFile(FileVisitDetails fileDetails) {
+                            files.put(fileDetails.getPath(), HashUtil.sha1(fileDetails.getFile()));
+                        }
+                    });
+                    state.classFiles.put(absoluteFile, files);
+                } else {
+                    state.settings.add(String.format("%s:%d:%d", absoluteFile.getPath(), absoluteFile.length(), absoluteFile.lastModified()));
+                }
+            }
+            return state;
+        }
+    }
+}
@@ -17,12 +17,17 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -34,8 +39,30 @@ import java.util.List;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
+/**
+ * Renders the HTML test report.
+ *
+ * <p>When created with a build operation processor, the class pages are rendered in parallel.</p>
+ */
 public class DefaultTestReport implements TestReporter {
+    public final static String PARALLEL_TOGGLE_PROPERTY = "org.gradle.test.parallelReports";
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    private final BuildOperationProcessor buildOperationProcessor;
+
+    public DefaultTestReport() {
+        this(null);
+    }
+
+    public DefaultTestReport(@Nullable BuildOperationProcessor buildOperationProcessor) {
+        this.buildOperationProcessor = buildOperationProcessor;
+    }
+
+    /**
+     * Returns true when test reports should be generated in parallel.
+     */
+    public static boolean isParallelEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(PARALLEL_TOGGLE_PROPERTY));
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
@@ -74,6 +101,11 @@ public class DefaultTestReport implements TestReporter {
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
+                    if (buildOperationProcessor != null) {
+                        renderInParallel(model, resultsProvider, output);
+                        return;
+                    }
+
                     PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
                     ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
 
@@ -90,4 +122,45 @@ public class DefaultTestReport implements TestReporter {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    private void renderInParallel(AllTestResults model, final TestResultsProvider resultsProvider, final HtmlReportBuilder output) {
+        BuildOperationQueue<ClassPage> queue = buildOperationProcessor.newQueue(new BuildOperationWorker<ClassPage>() {
+            public String getDisplayName() {
+                return "HTML test report generator";
+            }
+
+            public void execute(ClassPage classPage) {
+                ClassTestResults classResults = classPage.classResults;
+                // The page renderers are stateful, so use a renderer per page
+                output.renderHtmlPage(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+            }
+        }, null);
+        for (PackageTestResults packageResults : model.getPackages()) {
+            for (ClassTestResults classResults : packageResults.getClasses()) {
+                queue.add(new ClassPage(classResults));
+            }
+        }
+
+        try {
+            PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
+            output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
+            for (PackageTestResults packageResults : model.getPackages()) {
+                output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
+            }
+        } finally {
+            queue.waitForCompletion();
+        }
+    }
+
+    private static class ClassPage implements BuildOperation {
+        private final ClassTestResults classResults;
+
+        private ClassPage(ClassTestResults classResults) {
+            this.classResults = classResults;
+        }
+
+        public String getDescription() {
+            return String.format("render test report page for %s", classResults.getName());
+        }
+    }
 }
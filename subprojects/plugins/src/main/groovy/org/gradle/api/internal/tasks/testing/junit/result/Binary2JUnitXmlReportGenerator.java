@@ -19,10 +19,15 @@ package org.gradle.api.internal.tasks.testing.junit.result;
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.util.Clock;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -30,44 +35,94 @@ import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Binary2JUnitXmlReportGenerator {
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final BuildOperationProcessor buildOperationProcessor;
     JUnitXmlResultWriter saxWriter;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation) {
+        this(testResultsDir, testResultsProvider, outputAssociation, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to write the XML files in parallel. May be null, in which case the files are written one after the other.
+     */
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation,
+                                          @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.buildOperationProcessor = buildOperationProcessor;
         this.saxWriter = new JUnitXmlResultWriter(getHostname(), testResultsProvider, outputAssociation);
     }
 
     public void generate() {
         Clock clock = new Clock();
-        testResultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult result) {
-                File file = new File(testResultsDir, getReportFileName(result));
-                OutputStream output = null;
-                try {
-                    output = new BufferedOutputStream(new FileOutputStream(file));
-                    saxWriter.write(result, output);
-                    output.close();
-                } catch (Exception e) {
-                    throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
-                } finally {
-                    IOUtils.closeQuietly(output);
+        if (buildOperationProcessor == null) {
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    writeReportFile(result);
+                }
+            });
+        } else {
+            final List<TestClassResult> results = new ArrayList<TestClassResult>();
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    results.add(result);
                 }
+            });
+            BuildOperationQueue<ReportFile> queue = buildOperationProcessor.newQueue(new BuildOperationWorker<ReportFile>() {
+                public String getDisplayName() {
+                    return "JUnit XML report generator";
+                }
+
+                public void execute(ReportFile reportFile) {
+                    writeReportFile(reportFile.result);
+                }
+            }, null);
+            for (TestClassResult result : results) {
+                queue.add(new ReportFile(result));
             }
-        });
+            queue.waitForCompletion();
+        }
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getTime(), testResultsDir);
     }
 
+    private void writeReportFile(TestClassResult result) {
+        File file = new File(testResultsDir, getReportFileName(result));
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(file));
+            saxWriter.write(result, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
 
+    private static class ReportFile implements BuildOperation {
+        private final TestClassResult result;
+
+        private ReportFile(TestClassResult result) {
+            this.result = result;
+        }
+
+        public String getDescription() {
+            return String.format("write XML test results for %s", result.getClassName());
+        }
+    }
+
     private static String getHostname() {
         try {
             return InetAddress.getLocalHost().getHostName();
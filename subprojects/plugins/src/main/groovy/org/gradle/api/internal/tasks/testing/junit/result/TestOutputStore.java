@@ -308,7 +308,8 @@ public class TestOutputStore {
             doRead(classId, testId, false, destination, writer);
         }
 
-        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
+        // Synchronized, as all reads share the position of the data file
+        private synchronized void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
             if (dataFile == null) {
                 return;
             }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Forwards only the test classes affected by a change to the given processor, and drops the others. When none of the test classes is affected, forwards
+ * all of them at the end, so that a test run never executes no test class at all.
+ *
+ * @see org.gradle.api.internal.tasks.testing.detection.TestImpactAnalysis
+ */
+public class AffectedTestClassProcessor implements TestClassProcessor {
+    private final TestClassProcessor processor;
+    private final Set<String> affectedClasses;
+    private final List<TestClassRunInfo> unaffectedTestClasses = new ArrayList<TestClassRunInfo>();
+    private boolean forwardedTestClass;
+
+    public AffectedTestClassProcessor(TestClassProcessor processor, Set<String> affectedClasses) {
+        this.processor = processor;
+        this.affectedClasses = affectedClasses;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        processor.startProcessing(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (affectedClasses.contains(testClass.getTestClassName())) {
+            forwardedTestClass = true;
+            processor.processTestClass(testClass);
+        } else if (!forwardedTestClass) {
+            unaffectedTestClasses.add(testClass);
+        }
+    }
+
+    public void stop() {
+        if (!forwardedTestClass) {
+            for (TestClassRunInfo testClass : unaffectedTestClasses) {
+                processor.processTestClass(testClass);
+            }
+        }
+        unaffectedTestClasses.clear();
+        processor.stop();
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
+import org.gradle.api.Nullable;
+import org.gradle.api.specs.Spec;
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
@@ -24,13 +26,22 @@ import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 public class RestartEveryNTestClassProcessor implements TestClassProcessor {
     private final Factory<TestClassProcessor> factory;
     private final long restartEvery;
+    private final Spec<? super TestClassProcessor> restartWhen;
     private long testCount;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
 
     public RestartEveryNTestClassProcessor(Factory<TestClassProcessor> factory, long restartEvery) {
+        this(factory, restartEvery, null);
+    }
+
+    /**
+     * @param restartWhen checked against the current processor after each test class, which is replaced when the spec is satisfied. May be null.
+     */
+    public RestartEveryNTestClassProcessor(Factory<TestClassProcessor> factory, long restartEvery, @Nullable Spec<? super TestClassProcessor> restartWhen) {
         this.factory = factory;
         this.restartEvery = restartEvery;
+        this.restartWhen = restartWhen;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -44,7 +55,7 @@ public class RestartEveryNTestClassProcessor implements TestClassProcessor {
         }
         processor.processTestClass(testClass);
         testCount++;
-        if (testCount == restartEvery) {
+        if (testCount == restartEvery || (restartWhen != null && restartWhen.isSatisfiedBy(processor))) {
             endBatch();
         }
     }
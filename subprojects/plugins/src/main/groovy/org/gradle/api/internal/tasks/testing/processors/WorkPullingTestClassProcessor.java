@@ -0,0 +1,211 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages a set of parallel TestClassProcessors. Rather than assigning the test classes to the processors up front, queues the test classes and
+ * gives the next one to a processor when it has finished with its current test class. The processors should block until they have finished with
+ * a test class.
+ *
+ * <p>When the durations of the test classes in a previous run are given, the test classes are held back until all of them have been received,
+ * and then handed out longest first. Test classes without a previous duration are handed out before the others.</p>
+ */
+public class WorkPullingTestClassProcessor implements TestClassProcessor {
+    public final static String TOGGLE_PROPERTY = "org.gradle.test.workPulling";
+    public final static String LONGEST_FIRST_PROPERTY = "org.gradle.test.workPulling.longestFirst";
+
+    private final int maxProcessors;
+    private final Factory<TestClassProcessor> factory;
+    private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final Queue<QueuedTestClass> queue;
+    private final List<PullingProcessor> idleProcessors = new LinkedList<PullingProcessor>();
+    private final List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private int activeProcessors;
+    private int received;
+    private boolean allTestClassesReceived;
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+
+    /**
+     * @param previousDurations the durations of the test classes in a previous run, by class name, or null to hand out the test classes in the order they are received.
+     */
+    public WorkPullingTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, @Nullable Map<String, Long> previousDurations) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        this.queue = previousDurations == null ? new LinkedList<QueuedTestClass>() : new PriorityQueue<QueuedTestClass>();
+    }
+
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    public static boolean isLongestFirst() {
+        return isEnabled() && "true".equalsIgnoreCase(System.getProperty(LONGEST_FIRST_PROPERTY));
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        lock.lock();
+        try {
+            Long duration = previousDurations == null ? null : previousDurations.get(testClass.getTestClassName());
+            queue.add(new QueuedTestClass(testClass, duration == null ? Long.MAX_VALUE : duration, received++));
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            allTestClassesReceived = true;
+            dispatch();
+            while (!queue.isEmpty()) {
+                condition.await();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private void dispatch() {
+        if (previousDurations != null && !allTestClassesReceived) {
+            return;
+        }
+        while (!queue.isEmpty()) {
+            PullingProcessor processor;
+            if (!idleProcessors.isEmpty()) {
+                processor = idleProcessors.remove(0);
+            } else if (activeProcessors < maxProcessors) {
+                processor = startProcessor();
+            } else {
+                return;
+            }
+            processor.proxy.processTestClass(queue.remove().testClass);
+        }
+    }
+
+    private PullingProcessor startProcessor() {
+        PullingProcessor processor = new PullingProcessor(factory.create());
+        Actor actor = actorFactory.createActor(processor);
+        processor.proxy = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor.proxy);
+        activeProcessors++;
+        processor.proxy.startProcessing(resultProcessor);
+        return processor;
+    }
+
+    private void finished(PullingProcessor processor, boolean successful) {
+        lock.lock();
+        try {
+            if (successful) {
+                idleProcessors.add(processor);
+            } else {
+                // Don't use a broken processor again. It is stopped, and its failure reported, at the end
+                activeProcessors--;
+            }
+            dispatch();
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells this scheduler when the target processor has finished with a test class. Called from the actor thread of the processor.
+     */
+    private class PullingProcessor implements TestClassProcessor {
+        private final TestClassProcessor processor;
+        private TestClassProcessor proxy;
+
+        private PullingProcessor(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            processor.startProcessing(resultProcessor);
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            boolean successful = false;
+            try {
+                processor.processTestClass(testClass);
+                successful = true;
+            } finally {
+                finished(this, successful);
+            }
+        }
+
+        public void stop() {
+            processor.stop();
+        }
+    }
+
+    private static class QueuedTestClass implements Comparable<QueuedTestClass> {
+        private final TestClassRunInfo testClass;
+        private final long duration;
+        private final int index;
+
+        private QueuedTestClass(TestClassRunInfo testClass, long duration, int index) {
+            this.testClass = testClass;
+            this.duration = duration;
+            this.index = index;
+        }
+
+        public int compareTo(QueuedTestClass other) {
+            if (duration != other.duration) {
+                return duration > other.duration ? -1 : 1;
+            }
+            return index - other.index;
+        }
+    }
+}
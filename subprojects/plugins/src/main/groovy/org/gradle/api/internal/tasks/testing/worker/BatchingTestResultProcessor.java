@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link TestResultProcessor} that collects test events into batches, and forwards each batch to a {@link TestEventBatchProcessor}, to reduce the
+ * number of messages sent from a test worker process. A batch is forwarded once it contains a given number of events, or once the oldest event in it
+ * has waited for the flush interval, whichever comes first. The events are forwarded in the order in which they are received.
+ *
+ * <p>Thread-safe, as tests may generate output from any thread.</p>
+ */
+public class BatchingTestResultProcessor implements TestResultProcessor, Stoppable {
+    public final static String TOGGLE_PROPERTY = "org.gradle.test.batchedEvents";
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+    private final TestEventBatchProcessor target;
+    private final int maxBatchSize;
+    private final long flushIntervalMillis;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final StoppableExecutor executor;
+    private TestEventBatch batch = new TestEventBatch();
+    private boolean stopped;
+
+    public BatchingTestResultProcessor(TestEventBatchProcessor target, ExecutorFactory executorFactory) {
+        this(target, executorFactory, DEFAULT_MAX_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public BatchingTestResultProcessor(TestEventBatchProcessor target, ExecutorFactory executorFactory, int maxBatchSize, long flushIntervalMillis) {
+        this.target = target;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.executor = executorFactory.create("Test event flusher");
+        executor.execute(new Flusher());
+    }
+
+    /**
+     * Returns true when test events should be sent from the test worker processes in batches.
+     */
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        lock.lock();
+        try {
+            batch.started(test, event);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        lock.lock();
+        try {
+            batch.completed(testId, event);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        lock.lock();
+        try {
+            batch.output(testId, event);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void failure(Object testId, Throwable result) {
+        lock.lock();
+        try {
+            batch.failure(testId, result);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void eventAdded() {
+        if (batch.size() >= maxBatchSize) {
+            flushBatch();
+        } else if (batch.size() == 1) {
+            condition.signalAll();
+        }
+    }
+
+    /**
+     * Forwards the events received so far.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushBatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Forward while holding the lock, so that batches cannot overtake each other
+        TestEventBatch events = batch;
+        batch = new TestEventBatch();
+        target.processEvents(events);
+    }
+
+    /**
+     * Forwards the events received so far and stops the flusher thread.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.stop();
+        } finally {
+            flush();
+        }
+    }
+
+    private class Flusher implements Runnable {
+        public void run() {
+            lock.lock();
+            try {
+                while (!stopped) {
+                    if (batch.isEmpty()) {
+                        condition.await();
+                    } else {
+                        // Give the batch the chance to fill up, then forward whatever it contains
+                        TestEventBatch current = batch;
+                        condition.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                        if (batch == current) {
+                            flushBatch();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -17,34 +17,72 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
 import org.gradle.process.JavaForkOptions;
-import org.gradle.process.internal.WorkerProcess;
-import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.process.internal.*;
 
 import java.io.File;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ForkingTestClassProcessor implements TestClassProcessor {
+/**
+ * Executes test classes in a forked worker process.
+ *
+ * <p>When created to pull test classes, {@link #processTestClass(TestClassRunInfo)} blocks until the worker process has finished with the given
+ * test class and asks for another one, so that the caller can decide which worker process to give the next test class to.</p>
+ *
+ * <p>When created with a {@link TestWorkerPool}, uses an idle worker process from the pool whose JVM options and classpath match, and gives the worker
+ * process back to the pool at the end. The classpath is then loaded, in its original order, in a new ClassLoader for each test run. Only the test framework
+ * jars, and the jars they use, are loaded once per worker process, in the parent of that ClassLoader.</p>
+ *
+ * <p>When created to report heap usage, {@link #processTestClass(TestClassRunInfo)} also blocks until the worker process has finished with the given
+ * test class, and {@link #getHeapUsage()} returns the heap usage the worker process reported after it.</p>
+ */
+public class ForkingTestClassProcessor implements TestClassProcessor, TestClassRequester {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
+    private final TestWorkerOptions workerOptions;
+    private final TestWorkerPool workerPool;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private boolean testClassRequested;
+    private boolean workerStopped;
+    private WorkerHeapUsage heapUsage;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private PooledTestWorkerProcess pooledWorker;
     private TestResultProcessor resultProcessor;
 
-    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+    /**
+     * @param workerOptions how the worker process and the build exchange test classes and test events. Pooled worker processes do not report their heap usage.
+     * @param workerPool the pool to take the worker process from and to give it back to. May be null, in which case a new worker process is started.
+     */
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     TestWorkerOptions workerOptions, @Nullable TestWorkerPool workerPool) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.workerOptions = workerOptions;
+        this.workerPool = workerPool;
+    }
+
+    private boolean isRequestTestClasses() {
+        return workerOptions.isRequestTestClasses();
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -57,31 +95,179 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         }
 
         remoteProcessor.processTestClass(testClass);
+        if (isRequestTestClasses()) {
+            waitForTestClassRequest();
+        }
+    }
+
+    public void requestTestClass() {
+        lock.lock();
+        try {
+            testClassRequested = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void heapUsageReported(WorkerHeapUsage heapUsage) {
+        lock.lock();
+        try {
+            this.heapUsage = heapUsage;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the heap usage the worker process reported after the last test class it finished. Returns null when the worker process has not
+     * reported any heap usage.
+     */
+    @Nullable
+    public WorkerHeapUsage getHeapUsage() {
+        lock.lock();
+        try {
+            return heapUsage;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workerStopped() {
+        lock.lock();
+        try {
+            workerStopped = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void waitForTestClassRequest() {
+        lock.lock();
+        try {
+            while (!testClassRequested && !workerStopped) {
+                condition.await();
+            }
+            if (testClassRequested) {
+                testClassRequested = false;
+                return;
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+
+        // The worker process has gone away without finishing the test class
+        remoteProcessor = null;
+        if (pooledWorker != null) {
+            PooledTestWorkerProcess worker = pooledWorker;
+            pooledWorker = null;
+            worker.stop();
+        } else {
+            workerProcess.waitForStop();
+        }
+        throw new ExecException("Test worker process stopped before it finished executing its test classes.");
     }
 
     RemoteTestClassProcessor forkProcess() {
+        if (workerPool != null) {
+            return startPooledProcess();
+        }
+
         WorkerProcessBuilder builder = workerFactory.create();
         builder.setBaseName("Gradle Test Executor");
         builder.applicationClasspath(classPath);
         builder.setLoadApplicationInSystemClassLoader(true);
-        builder.worker(new TestWorker(processorFactory));
+        builder.worker(new TestWorker(processorFactory, workerOptions));
         options.copyTo(builder.getJavaCommand());
         buildConfigAction.execute(builder);
+        if (isRequestTestClasses()) {
+            builder.getJavaCommand().listener(new ExecHandleListener() {
+                public void executionStarted(ExecHandle execHandle) {
+                }
+
+                public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                    workerStopped();
+                }
+            });
+        }
 
         workerProcess = builder.build();
         workerProcess.start();
 
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializer(new TestEventSerializer());
-        connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        if (workerOptions.isBatchTestEvents()) {
+            connection.addIncoming(TestEventBatchProcessor.class, new TestEventBatchProcessor() {
+                public void processEvents(TestEventBatch batch) {
+                    batch.dispatchTo(resultProcessor);
+                }
+            });
+        } else {
+            connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        }
+        if (isRequestTestClasses()) {
+            connection.addIncoming(TestClassRequester.class, this);
+        }
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
         return remoteProcessor;
     }
 
+    private RemoteTestClassProcessor startPooledProcess() {
+        WorkerProcessBuilder builder = workerFactory.create();
+        builder.setBaseName("Gradle Test Executor");
+        builder.worker(new ReusableTestWorker());
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+        builder.applicationClasspath(workerPool.getFrameworkClasspath(classPath, builder.getSharedPackages()));
+        builder.setLoadApplicationInSystemClassLoader(true);
+
+        Object key = workerKey(builder);
+        PooledTestWorkerProcess worker = workerPool.acquire(key);
+        if (worker == null) {
+            worker = new PooledTestWorkerProcess(key);
+            worker.start(builder);
+        }
+        pooledWorker = worker;
+        return worker.startSession(new TestWorkerSession(processorFactory, classPath, isRequestTestClasses()), resultProcessor, this, new Runnable() {
+            public void run() {
+                workerStopped();
+            }
+        });
+    }
+
+    /**
+     * Calculates the key of a worker process, from everything that is fixed when the worker process starts. The test framework jars of the application
+     * classpath are identified by their path, size and modification time, as their classes are loaded once per worker process.
+     */
+    private static Object workerKey(WorkerProcessBuilder builder) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        List<Object> key = new ArrayList<Object>();
+        key.add(javaCommand.getExecutable());
+        key.add(javaCommand.getAllJvmArgs());
+        key.add(javaCommand.getWorkingDir());
+        key.add(new HashMap<String, Object>(javaCommand.getEnvironment()));
+        key.add(new LinkedHashSet<String>(builder.getSharedPackages()));
+        key.add(builder.getLogLevel());
+        key.add(builder.getGradleUserHomeDir());
+        for (File file : builder.getApplicationClasspath()) {
+            key.add(file);
+            key.add(file.length());
+            key.add(file.lastModified());
+        }
+        return key;
+    }
+
     public void stop() {
-        if (remoteProcessor != null) {
+        if (pooledWorker != null) {
+            remoteProcessor.stop();
+            pooledWorker.waitForSessionEnd();
+            workerPool.release(pooledWorker);
+        } else if (remoteProcessor != null) {
             remoteProcessor.stop();
             workerProcess.waitForStop();
         }
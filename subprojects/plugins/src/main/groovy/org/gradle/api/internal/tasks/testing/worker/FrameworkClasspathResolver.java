@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.UncheckedIOException;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.RemappingClassAdapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Selects the jars of a test runtime classpath that have to be loaded once per pooled worker process: the jars that contain classes of the shared
+ * packages, which the test framework classes of the worker process are linked against, and every jar of the classpath that these jars use, directly
+ * or indirectly. For example, the JUnit jar and the Hamcrest jar its assertions are linked against.
+ *
+ * <p>The packages each jar contains and uses are kept for as long as the length and modification time of the jar do not change, so that each jar is
+ * read once rather than on each test run.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public class FrameworkClasspathResolver {
+    private final Map<File, JarPackages> jars = new HashMap<File, JarPackages>();
+
+    /**
+     * Returns the jars of the given classpath to load once per worker process, in their classpath order.
+     */
+    public List<File> resolve(Iterable<File> classPath, Collection<String> sharedPackages) {
+        List<File> classPathJars = new ArrayList<File>();
+        Map<String, File> packageJars = new HashMap<String, File>();
+        for (File file : classPath) {
+            if (!file.isFile()) {
+                continue;
+            }
+            classPathJars.add(file);
+            for (String packageName : getPackages(file).packages) {
+                if (!packageJars.containsKey(packageName)) {
+                    packageJars.put(packageName, file);
+                }
+            }
+        }
+
+        Set<File> selected = new HashSet<File>();
+        LinkedList<File> queue = new LinkedList<File>();
+        for (File jar : classPathJars) {
+            if (containsAnyPackage(getPackages(jar), sharedPackages)) {
+                selected.add(jar);
+                queue.add(jar);
+            }
+        }
+        while (!queue.isEmpty()) {
+            for (String packageName : getPackages(queue.removeFirst()).getUsedPackages()) {
+                File jar = packageJars.get(packageName);
+                if (jar != null && selected.add(jar)) {
+                    queue.add(jar);
+                }
+            }
+        }
+
+        List<File> result = new ArrayList<File>();
+        for (File jar : classPathJars) {
+            if (selected.contains(jar)) {
+                result.add(jar);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsAnyPackage(JarPackages jar, Collection<String> sharedPackages) {
+        for (String sharedPackage : sharedPackages) {
+            String prefix = sharedPackage.replace('.', '/');
+            for (String packageName : jar.packages) {
+                if (packageName.equals(prefix) || packageName.startsWith(prefix + '/')) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private JarPackages getPackages(File jar) {
+        long length = jar.length();
+        long lastModified = jar.lastModified();
+        synchronized (jars) {
+            JarPackages packages = jars.get(jar);
+            if (packages == null || packages.length != length || packages.lastModified != lastModified) {
+                packages = new JarPackages(jar, length, lastModified);
+                jars.put(jar, packages);
+            }
+            return packages;
+        }
+    }
+
+    private static String packageOf(String internalName) {
+        int separator = internalName.lastIndexOf('/');
+        return separator < 0 ? "" : internalName.substring(0, separator);
+    }
+
+    private static class JarPackages {
+        private final File jar;
+        private final long length;
+        private final long lastModified;
+        // The packages of the classes in the jar, in internal form
+        private final Set<String> packages = new HashSet<String>();
+        private Set<String> usedPackages;
+
+        JarPackages(File jar, long length, long lastModified) {
+            this.jar = jar;
+            this.length = length;
+            this.lastModified = lastModified;
+            try {
+                ZipFile zipFile = new ZipFile(jar);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        String name = entries.nextElement().getName();
+                        if (name.endsWith(".class")) {
+                            packages.add(packageOf(name));
+                        }
+                    }
+                } finally {
+                    zipFile.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not read classpath jar %s.", jar), e);
+            }
+        }
+
+        /**
+         * Returns the packages of the classes the classes of this jar refer to. Only read for the jars that are loaded once per worker process.
+         */
+        synchronized Set<String> getUsedPackages() {
+            if (usedPackages == null) {
+                usedPackages = readUsedPackages();
+            }
+            return usedPackages;
+        }
+
+        private Set<String> readUsedPackages() {
+            final Set<String> used = new HashSet<String>();
+            Remapper collector = new Remapper() {
+                @Override
+                public String map(String typeName) {
+                    used.add(packageOf(typeName));
+                    return typeName;
+                }
+            };
+            try {
+                ZipFile zipFile = new ZipFile(jar);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        if (!entry.getName().endsWith(".class")) {
+                            continue;
+                        }
+                        InputStream inputStream = zipFile.getInputStream(entry);
+                        try {
+                            ClassReader reader = new ClassReader(inputStream);
+                            reader.accept(new RemappingClassAdapter(new ClassVisitor(Opcodes.ASM5) {
+                            }, collector), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                        } finally {
+                            inputStream.close();
+                        }
+                    }
+                } finally {
+                    zipFile.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not read classpath jar %s.", jar), e);
+            }
+            used.removeAll(packages);
+            return used;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A test worker process running a {@link ReusableTestWorker}, as seen from the build process. Routes the events of the worker process to the test run
+ * of the current session.
+ */
+public class PooledTestWorkerProcess implements TestWorkerSessionListener, Stoppable {
+    private final Object key;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private WorkerProcess workerProcess;
+    private RemoteTestSessionProcessor remoteProcessor;
+    private boolean sessionActive;
+    private boolean processStopped;
+    private TestResultProcessor resultProcessor;
+    private TestClassRequester testClassRequester;
+    private Runnable processStoppedAction;
+
+    /**
+     * @param key the key under which the worker process is pooled. Worker processes with the same key are interchangeable.
+     */
+    public PooledTestWorkerProcess(Object key) {
+        this.key = key;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Starts the worker process. The builder must be configured to run a {@link ReusableTestWorker}.
+     */
+    public void start(WorkerProcessBuilder builder) {
+        builder.getJavaCommand().listener(new ExecHandleListener() {
+            public void executionStarted(ExecHandle execHandle) {
+            }
+
+            public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                processStopped();
+            }
+        });
+        workerProcess = builder.build();
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializer(new TestEventSerializer());
+        connection.addIncoming(TestWorkerSessionListener.class, this);
+        remoteProcessor = connection.addOutgoing(RemoteTestSessionProcessor.class);
+        connection.connect();
+    }
+
+    /**
+     * Starts a session in the worker process.
+     *
+     * @param processStoppedAction called when the worker process stops before the session has ended.
+     * @return the processor to send the test classes of the session to. Calling {@link RemoteTestClassProcessor#stop()} ends the session.
+     */
+    public RemoteTestClassProcessor startSession(TestWorkerSession session, TestResultProcessor resultProcessor, TestClassRequester testClassRequester,
+                                                 Runnable processStoppedAction) {
+        lock.lock();
+        try {
+            this.resultProcessor = resultProcessor;
+            this.testClassRequester = testClassRequester;
+            this.processStoppedAction = processStoppedAction;
+            sessionActive = true;
+        } finally {
+            lock.unlock();
+        }
+        remoteProcessor.startSession(session);
+        remoteProcessor.startProcessing();
+        return remoteProcessor;
+    }
+
+    /**
+     * Waits for the worker process to finish the current session, once it has been asked to stop.
+     *
+     * @return true when the worker process can be used for another session.
+     */
+    public boolean waitForSessionEnd() {
+        lock.lock();
+        try {
+            while (sessionActive && !processStopped) {
+                condition.await();
+            }
+            return !processStopped;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true when the worker process is running and is not executing a session.
+     */
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            return !sessionActive && !processStopped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void processEvents(TestEventBatch batch) {
+        batch.dispatchTo(currentResultProcessor());
+    }
+
+    private TestResultProcessor currentResultProcessor() {
+        lock.lock();
+        try {
+            return resultProcessor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void requestTestClass() {
+        currentTestClassRequester().requestTestClass();
+    }
+
+    public void heapUsageReported(WorkerHeapUsage heapUsage) {
+        currentTestClassRequester().heapUsageReported(heapUsage);
+    }
+
+    private TestClassRequester currentTestClassRequester() {
+        lock.lock();
+        try {
+            return testClassRequester;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sessionCompleted() {
+        lock.lock();
+        try {
+            sessionActive = false;
+            resultProcessor = null;
+            testClassRequester = null;
+            processStoppedAction = null;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void processStopped() {
+        Runnable action;
+        lock.lock();
+        try {
+            processStopped = true;
+            action = sessionActive ? processStoppedAction : null;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Stops the worker process and waits for it to exit.
+     */
+    public void stop() {
+        boolean running;
+        lock.lock();
+        try {
+            running = !processStopped;
+        } finally {
+            lock.unlock();
+        }
+        if (running) {
+            remoteProcessor.shutdown();
+        }
+        workerProcess.waitForStop();
+    }
+}
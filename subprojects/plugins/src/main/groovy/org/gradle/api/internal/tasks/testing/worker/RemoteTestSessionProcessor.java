@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * The control interface of a reusable test worker process. Each test run starts a session with {@link #startSession(TestWorkerSession)}, and ends it
+ * with {@link #stop()}, after which the worker process waits for the next session.
+ *
+ * @see ReusableTestWorker
+ */
+public interface RemoteTestSessionProcessor extends RemoteTestClassProcessor {
+    /**
+     * Does not block.
+     */
+    void startSession(TestWorkerSession session);
+
+    /**
+     * Stops the worker process. Does not block.
+     */
+    void shutdown();
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.messaging.dispatch.ContextClassLoaderProxy;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker which executes the tests of any number of sessions, one after the other, until it is shut down.
+ *
+ * <p>The whole session classpath is loaded in a new ClassLoader for each session, whose parent is the application ClassLoader of the worker process.
+ * The application ClassLoader holds only the test framework jars and the jars they use. The session ClassLoader is closed, and the system properties and the security manager
+ * are reset, at the end of each session. Any other state the tests leave behind in the test framework classes is seen by later sessions.</p>
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, RemoteTestSessionProcessor, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private CountDownLatch shutdown;
+    private WorkerProcessContext workerProcessContext;
+    private DefaultServiceRegistry testServices;
+    private TestWorkerSessionListener listener;
+    private Properties systemProperties;
+    private URLClassLoader sessionClassLoader;
+    private TestClassProcessor processor;
+    private BatchingTestResultProcessor resultProcessor;
+    private boolean requestTestClasses;
+
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        shutdown = new CountDownLatch(1);
+        this.workerProcessContext = workerProcessContext;
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializer(new TestEventSerializer());
+        listener = serverConnection.addOutgoing(TestWorkerSessionListener.class);
+        serverConnection.addIncoming(RemoteTestSessionProcessor.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                shutdown.await();
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+            testServices.close();
+        }
+    }
+
+    public void startSession(TestWorkerSession session) {
+        Thread.currentThread().setName("Test worker");
+        systemProperties = (Properties) System.getProperties().clone();
+        requestTestClasses = session.isRequestTestClasses();
+
+        TestClassProcessor targetProcessor = session.getProcessorFactory().create(testServices);
+        IdGenerator<?> idGenerator = testServices.get(IdGenerator.class);
+        targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(TimeProvider.class));
+        sessionClassLoader = createSessionClassLoader(session.getSessionClasspath());
+        ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
+                TestClassProcessor.class, targetProcessor, sessionClassLoader);
+        processor = proxy.getSource();
+        resultProcessor = new BatchingTestResultProcessor(listener, testServices.get(ExecutorFactory.class));
+    }
+
+    private URLClassLoader createSessionClassLoader(List<File> sessionClasspath) {
+        URL[] urls = new URL[sessionClasspath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                urls[i] = sessionClasspath.get(i).toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        return new URLClassLoader(urls, workerProcessContext.getApplicationClassLoader());
+    }
+
+    public void startProcessing() {
+        Thread.currentThread().setName("Test worker");
+        processor.startProcessing(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.processTestClass(testClass);
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+            resultProcessor.flush();
+            if (requestTestClasses) {
+                listener.requestTestClass();
+            }
+        }
+    }
+
+    public void stop() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.stop();
+        } finally {
+            try {
+                resultProcessor.stop();
+            } finally {
+                endSession();
+            }
+        }
+    }
+
+    private void endSession() {
+        // Clean out the state the tests may have changed, and drop the session ClassLoader
+        System.setSecurityManager(null);
+        System.setProperties(systemProperties);
+        processor = null;
+        resultProcessor = null;
+        systemProperties = null;
+        closeSessionClassLoader();
+        listener.sessionCompleted();
+    }
+
+    private void closeSessionClassLoader() {
+        // URLClassLoader releases its jar files on close() only from Java 7
+        if (sessionClassLoader instanceof Closeable) {
+            try {
+                ((Closeable) sessionClassLoader).close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close the ClassLoader of the test session.", e);
+            }
+        }
+        sessionClassLoader = null;
+    }
+
+    public void shutdown() {
+        shutdown.countDown();
+    }
+}
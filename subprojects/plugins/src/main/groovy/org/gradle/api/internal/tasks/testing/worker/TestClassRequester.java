@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * Used by a test worker process to ask for another test class, once it has finished processing the test class it was last given.
+ */
+public interface TestClassRequester {
+    /**
+     * Does not block.
+     */
+    void requestTestClass();
+
+    /**
+     * Reports the heap usage of the worker process once it has finished processing a test class. Sent before the matching {@link #requestTestClass()},
+     * through the same channel, so that it is received first. Does not block.
+     */
+    void heapUsageReported(WorkerHeapUsage heapUsage);
+}
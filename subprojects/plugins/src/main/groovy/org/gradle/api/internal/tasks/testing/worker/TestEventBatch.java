@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of test events, in the order in which they were generated.
+ */
+public class TestEventBatch {
+    static final int STARTED = 0;
+    static final int COMPLETED = 1;
+    static final int OUTPUT = 2;
+    static final int FAILURE = 3;
+
+    private final List<Event> events = new ArrayList<Event>();
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        events.add(new Event(STARTED, test, event));
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        events.add(new Event(COMPLETED, testId, event));
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        events.add(new Event(OUTPUT, testId, event));
+    }
+
+    public void failure(Object testId, Throwable result) {
+        events.add(new Event(FAILURE, testId, result));
+    }
+
+    void add(int type, Object target, Object event) {
+        events.add(new Event(type, target, event));
+    }
+
+    List<Event> getEvents() {
+        return events;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Passes the events of this batch to the given processor, in order.
+     */
+    public void dispatchTo(TestResultProcessor processor) {
+        for (Event event : events) {
+            switch (event.type) {
+                case STARTED:
+                    processor.started((TestDescriptorInternal) event.target, (TestStartEvent) event.event);
+                    break;
+                case COMPLETED:
+                    processor.completed(event.target, (TestCompleteEvent) event.event);
+                    break;
+                case OUTPUT:
+                    processor.output(event.target, (TestOutputEvent) event.event);
+                    break;
+                default:
+                    processor.failure(event.target, (Throwable) event.event);
+            }
+        }
+    }
+
+    static class Event {
+        final int type;
+        final Object target;
+        final Object event;
+
+        private Event(int type, Object target, Object event) {
+            this.type = type;
+            this.target = target;
+            this.event = event;
+        }
+    }
+}
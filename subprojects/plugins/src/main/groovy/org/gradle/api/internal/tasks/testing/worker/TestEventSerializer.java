@@ -40,6 +40,10 @@ public class TestEventSerializer implements StatefulSerializer<Object[]> {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, new ThrowableSerializer());
+        registry.register(TestEventBatch.class, new TestEventBatchSerializer());
+        registry.register(WorkerHeapUsage.class, new WorkerHeapUsageSerializer());
+        // Uses Java serialization, as the session carries the test framework's processor factory
+        registry.register(TestWorkerSession.class, new DefaultSerializer<TestWorkerSession>(getClass().getClassLoader()));
         paramSerializer = registry.build();
     }
 
@@ -67,6 +71,32 @@ public class TestEventSerializer implements StatefulSerializer<Object[]> {
         };
     }
 
+    /**
+     * Encodes all the events of a batch into a single message, and decodes them again in one go.
+     */
+    private class TestEventBatchSerializer implements Serializer<TestEventBatch> {
+        public TestEventBatch read(Decoder decoder) throws Exception {
+            TestEventBatch batch = new TestEventBatch();
+            int count = decoder.readSmallInt();
+            for (int i = 0; i < count; i++) {
+                int type = decoder.readSmallInt();
+                Object target = paramSerializer.read(decoder);
+                Object event = paramSerializer.read(decoder);
+                batch.add(type, target, event);
+            }
+            return batch;
+        }
+
+        public void write(Encoder encoder, TestEventBatch value) throws Exception {
+            encoder.writeSmallInt(value.size());
+            for (TestEventBatch.Event event : value.getEvents()) {
+                encoder.writeSmallInt(event.type);
+                paramSerializer.write(encoder, event.target);
+                paramSerializer.write(encoder, event.event);
+            }
+        }
+    }
+
     private static class NullableSerializer<T> implements Serializer<T> {
         private final Serializer<T> serializer;
 
@@ -110,6 +140,17 @@ public class TestEventSerializer implements StatefulSerializer<Object[]> {
         }
     }
 
+    private static class WorkerHeapUsageSerializer implements Serializer<WorkerHeapUsage> {
+        public WorkerHeapUsage read(Decoder decoder) throws Exception {
+            return new WorkerHeapUsage(decoder.readLong(), decoder.readLong());
+        }
+
+        public void write(Encoder encoder, WorkerHeapUsage value) throws Exception {
+            encoder.writeLong(value.getUsedAfterGc());
+            encoder.writeLong(value.getMax());
+        }
+    }
+
     private static class DefaultTestClassRunInfoSerializer implements Serializer<DefaultTestClassRunInfo> {
         public DefaultTestClassRunInfo read(Decoder decoder) throws Exception {
             return new DefaultTestClassRunInfo(decoder.readString());
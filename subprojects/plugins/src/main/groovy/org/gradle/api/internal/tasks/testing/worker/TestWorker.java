@@ -46,12 +46,16 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
     private final WorkerTestClassProcessorFactory factory;
+    private final TestWorkerOptions options;
     private CountDownLatch completed;
     private TestClassProcessor processor;
     private TestResultProcessor resultProcessor;
+    private TestClassRequester testClassRequester;
+    private BatchingTestResultProcessor batchingResultProcessor;
 
-    public TestWorker(WorkerTestClassProcessorFactory factory) {
+    public TestWorker(WorkerTestClassProcessorFactory factory, TestWorkerOptions options) {
         this.factory = factory;
+        this.options = options;
     }
 
     public void execute(final WorkerProcessContext workerProcessContext) {
@@ -90,7 +94,15 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
 
         ObjectConnection serverConnection = workerProcessContext.getServerConnection();
         serverConnection.useParameterSerializer(new TestEventSerializer());
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        if (options.isBatchTestEvents()) {
+            batchingResultProcessor = new BatchingTestResultProcessor(serverConnection.addOutgoing(TestEventBatchProcessor.class), testServices.get(ExecutorFactory.class));
+            this.resultProcessor = batchingResultProcessor;
+        } else {
+            this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        }
+        if (options.isRequestTestClasses()) {
+            this.testClassRequester = serverConnection.addOutgoing(TestClassRequester.class);
+        }
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
         serverConnection.connect();
     }
@@ -107,6 +119,15 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         } finally {
             // Clean the interrupted status
             Thread.interrupted();
+            if (batchingResultProcessor != null) {
+                batchingResultProcessor.flush();
+            }
+            if (testClassRequester != null) {
+                if (options.isReportHeapUsage()) {
+                    testClassRequester.heapUsageReported(WorkerHeapUsage.current());
+                }
+                testClassRequester.requestTestClass();
+            }
         }
     }
 
@@ -115,11 +136,17 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
         try {
             processor.stop();
         } finally {
-            completed.countDown();
+            try {
+                if (batchingResultProcessor != null) {
+                    batchingResultProcessor.stop();
+                }
+            } finally {
+                completed.countDown();
+            }
         }
     }
 
-    private static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
+    static class TestFrameworkServiceRegistry extends DefaultServiceRegistry {
         private final WorkerProcessContext workerProcessContext;
 
         public TestFrameworkServiceRegistry(WorkerProcessContext workerProcessContext) {
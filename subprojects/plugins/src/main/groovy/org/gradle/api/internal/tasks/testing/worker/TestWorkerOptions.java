@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.io.Serializable;
+
+/**
+ * How a test worker process and the build exchange test classes and test events. Everything is off by default.
+ */
+public class TestWorkerOptions implements Serializable {
+    private boolean pullTestClasses;
+    private boolean batchTestEvents;
+    private boolean reportHeapUsage;
+
+    /**
+     * Whether the worker process asks for another test class each time it has finished one, so that the build can decide which worker process
+     * to give the next test class to.
+     */
+    public boolean isPullTestClasses() {
+        return pullTestClasses;
+    }
+
+    public void setPullTestClasses(boolean pullTestClasses) {
+        this.pullTestClasses = pullTestClasses;
+    }
+
+    /**
+     * Whether the worker process sends the test events in batches, rather than one message per event.
+     */
+    public boolean isBatchTestEvents() {
+        return batchTestEvents;
+    }
+
+    public void setBatchTestEvents(boolean batchTestEvents) {
+        this.batchTestEvents = batchTestEvents;
+    }
+
+    /**
+     * Whether the worker process reports its heap usage each time it has finished a test class. Pooled worker processes do not report it.
+     */
+    public boolean isReportHeapUsage() {
+        return reportHeapUsage;
+    }
+
+    public void setReportHeapUsage(boolean reportHeapUsage) {
+        this.reportHeapUsage = reportHeapUsage;
+    }
+
+    /**
+     * Whether the worker process asks for another test class each time it has finished one, either to pull test classes or to report its heap usage.
+     */
+    public boolean isRequestTestClasses() {
+        return pullTestClasses || reportHeapUsage;
+    }
+}
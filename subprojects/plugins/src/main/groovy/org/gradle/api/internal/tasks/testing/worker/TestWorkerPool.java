@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps idle test worker processes alive between test runs, so that later test runs, in the same build or in later builds run by the same daemon,
+ * can use them instead of starting new worker processes. A worker process that stays idle for longer than the idle timeout is stopped.
+ *
+ * <p>Thread-safe.</p>
+ */
+public class TestWorkerPool implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWorkerPool.class);
+    public final static String TOGGLE_PROPERTY = "org.gradle.test.warmWorkers";
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final ExecutorFactory executorFactory;
+    private final long idleTimeoutMillis;
+    private final FrameworkClasspathResolver frameworkClasspathResolver = new FrameworkClasspathResolver();
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    // Ordered from the longest idle to the most recently released
+    private final LinkedList<IdleWorker> idleWorkers = new LinkedList<IdleWorker>();
+    private StoppableExecutor evictor;
+    private boolean stopped;
+
+    public TestWorkerPool(ExecutorFactory executorFactory) {
+        this(executorFactory, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public TestWorkerPool(ExecutorFactory executorFactory, long idleTimeoutMillis) {
+        this.executorFactory = executorFactory;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Returns true when test worker processes should be kept alive between test runs.
+     */
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY));
+    }
+
+    /**
+     * Returns the jars of the given test runtime classpath that are loaded once per worker process, for a test framework linked against the given
+     * shared packages. What each jar contains is read once and kept for later test runs.
+     */
+    public List<File> getFrameworkClasspath(Iterable<File> classPath, Collection<String> sharedPackages) {
+        return frameworkClasspathResolver.resolve(classPath, sharedPackages);
+    }
+
+    /**
+     * Takes an idle worker process with the given key out of the pool.
+     *
+     * @return the worker process, or null when the pool does not contain a worker process with this key.
+     */
+    @Nullable
+    public PooledTestWorkerProcess acquire(Object key) {
+        List<PooledTestWorkerProcess> stoppedWorkers = new ArrayList<PooledTestWorkerProcess>();
+        PooledTestWorkerProcess match = null;
+        lock.lock();
+        try {
+            // Prefer the most recently used worker process, which is the warmest one
+            Iterator<IdleWorker> iterator = idleWorkers.descendingIterator();
+            while (match == null && iterator.hasNext()) {
+                PooledTestWorkerProcess worker = iterator.next().worker;
+                if (!worker.getKey().equals(key)) {
+                    continue;
+                }
+                iterator.remove();
+                if (worker.isIdle()) {
+                    match = worker;
+                } else {
+                    stoppedWorkers.add(worker);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        stopAll(stoppedWorkers);
+        return match;
+    }
+
+    /**
+     * Puts a worker process back into the pool, once its session has ended. A worker process that cannot be used again is stopped instead.
+     */
+    public void release(PooledTestWorkerProcess worker) {
+        if (!worker.isIdle()) {
+            worker.stop();
+            return;
+        }
+        lock.lock();
+        try {
+            if (!stopped) {
+                idleWorkers.addLast(new IdleWorker(worker, System.currentTimeMillis()));
+                if (evictor == null) {
+                    evictor = executorFactory.create("Test worker pool evictor");
+                    evictor.execute(new Evictor());
+                }
+                condition.signalAll();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        worker.stop();
+    }
+
+    /**
+     * Stops all the idle worker processes.
+     */
+    public void stop() {
+        List<PooledTestWorkerProcess> workers = new ArrayList<PooledTestWorkerProcess>();
+        StoppableExecutor executor;
+        lock.lock();
+        try {
+            stopped = true;
+            for (IdleWorker idleWorker : idleWorkers) {
+                workers.add(idleWorker.worker);
+            }
+            idleWorkers.clear();
+            executor = evictor;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        CompositeStoppable.stoppable(executor).add(workers).stop();
+    }
+
+    private static void stopAll(List<PooledTestWorkerProcess> workers) {
+        try {
+            CompositeStoppable.stoppable(workers).stop();
+        } catch (Throwable e) {
+            LOGGER.debug("Could not stop test worker process.", e);
+        }
+    }
+
+    private static class IdleWorker {
+        final PooledTestWorkerProcess worker;
+        final long idleSince;
+
+        private IdleWorker(PooledTestWorkerProcess worker, long idleSince) {
+            this.worker = worker;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private class Evictor implements Runnable {
+        public void run() {
+            List<PooledTestWorkerProcess> expired = new ArrayList<PooledTestWorkerProcess>();
+            lock.lock();
+            try {
+                while (!stopped) {
+                    if (idleWorkers.isEmpty()) {
+                        condition.await();
+                        continue;
+                    }
+                    long now = System.currentTimeMillis();
+                    while (!idleWorkers.isEmpty() && idleWorkers.getFirst().idleSince + idleTimeoutMillis <= now) {
+                        expired.add(idleWorkers.removeFirst().worker);
+                    }
+                    if (!expired.isEmpty()) {
+                        lock.unlock();
+                        try {
+                            LOGGER.debug("Stopping {} idle test worker processes.", expired.size());
+                            stopAll(expired);
+                            expired.clear();
+                        } finally {
+                            lock.lock();
+                        }
+                    } else {
+                        condition.await(idleWorkers.getFirst().idleSince + idleTimeoutMillis - now, TimeUnit.MILLISECONDS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
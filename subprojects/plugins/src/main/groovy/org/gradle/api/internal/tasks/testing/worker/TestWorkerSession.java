@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The details of a test run handed to a reusable test worker process. The session classpath is the whole test runtime classpath, in its original
+ * order. It is loaded in a new ClassLoader for each session, so that a session does not see the classes of an earlier one.
+ */
+public class TestWorkerSession implements Serializable {
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final List<File> sessionClasspath;
+    private final boolean requestTestClasses;
+
+    public TestWorkerSession(WorkerTestClassProcessorFactory processorFactory, Iterable<File> sessionClasspath, boolean requestTestClasses) {
+        this.processorFactory = processorFactory;
+        this.sessionClasspath = new ArrayList<File>();
+        for (File file : sessionClasspath) {
+            this.sessionClasspath.add(file);
+        }
+        this.requestTestClasses = requestTestClasses;
+    }
+
+    public WorkerTestClassProcessorFactory getProcessorFactory() {
+        return processorFactory;
+    }
+
+    public List<File> getSessionClasspath() {
+        return sessionClasspath;
+    }
+
+    public boolean isRequestTestClasses() {
+        return requestTestClasses;
+    }
+}
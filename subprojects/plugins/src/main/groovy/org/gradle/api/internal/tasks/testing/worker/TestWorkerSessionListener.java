@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * Receives the events of a reusable test worker process. All of them are sent through the same channel, so that the end of a session cannot overtake
+ * the test events or test class requests of that session.
+ */
+public interface TestWorkerSessionListener extends TestEventBatchProcessor, TestClassRequester {
+    /**
+     * Called once all the test events of the current session have been sent.
+     */
+    void sessionCompleted();
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * The heap usage of a test worker process, as left by the most recent garbage collections.
+ */
+public class WorkerHeapUsage {
+    private final long usedAfterGc;
+    private final long max;
+
+    public WorkerHeapUsage(long usedAfterGc, long max) {
+        this.usedAfterGc = usedAfterGc;
+        this.max = max;
+    }
+
+    /**
+     * Returns the heap usage of the current process. Uses the usage of each heap memory pool after its last collection, so that garbage which has not
+     * been collected yet is not counted. Does not trigger a garbage collection.
+     */
+    public static WorkerHeapUsage current() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isValid()) {
+                continue;
+            }
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return new WorkerHeapUsage(used, Runtime.getRuntime().maxMemory());
+    }
+
+    public long getUsedAfterGc() {
+        return usedAfterGc;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the used part of the maximum heap size, between 0 and 1.
+     */
+    public double getUsedFraction() {
+        if (max <= 0 || max == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.min(1, (double) usedAfterGc / max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s MB of %s MB", usedAfterGc / (1024 * 1024), max / (1024 * 1024));
+    }
+}
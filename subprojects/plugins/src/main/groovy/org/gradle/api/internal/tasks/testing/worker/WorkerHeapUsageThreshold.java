@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.specs.Spec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Satisfied by a {@link ForkingTestClassProcessor} whose worker process reported a heap usage at or above the threshold, so that the worker process
+ * can be replaced before the tests run out of memory or spend their time collecting garbage.
+ */
+public class WorkerHeapUsageThreshold implements Spec<TestClassProcessor> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerHeapUsageThreshold.class);
+
+    /**
+     * The percentage of its maximum heap size that a test worker process may use after a garbage collection, before it is replaced.
+     */
+    public final static String THRESHOLD_PROPERTY = "org.gradle.test.maxWorkerHeapUsage";
+
+    private final double maxUsedFraction;
+
+    /**
+     * @param maxUsedFraction the used part of the maximum heap size, between 0 and 1, from which a worker process is replaced.
+     */
+    public WorkerHeapUsageThreshold(double maxUsedFraction) {
+        this.maxUsedFraction = maxUsedFraction;
+    }
+
+    /**
+     * Returns the threshold set by the {@value #THRESHOLD_PROPERTY} system property, or null when it is not set.
+     */
+    @Nullable
+    public static WorkerHeapUsageThreshold fromSystemProperties() {
+        String value = System.getProperty(THRESHOLD_PROPERTY);
+        if (value == null || value.trim().length() == 0) {
+            return null;
+        }
+        int percentage;
+        try {
+            percentage = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            percentage = -1;
+        }
+        if (percentage < 1 || percentage > 100) {
+            throw new IllegalArgumentException(String.format("Invalid value '%s' for system property '%s'. Expected a percentage between 1 and 100.", value, THRESHOLD_PROPERTY));
+        }
+        return new WorkerHeapUsageThreshold(percentage / 100d);
+    }
+
+    public double getMaxUsedFraction() {
+        return maxUsedFraction;
+    }
+
+    public boolean isSatisfiedBy(TestClassProcessor processor) {
+        if (!(processor instanceof ForkingTestClassProcessor)) {
+            return false;
+        }
+        WorkerHeapUsage heapUsage = ((ForkingTestClassProcessor) processor).getHeapUsage();
+        if (heapUsage == null || heapUsage.getUsedFraction() < maxUsedFraction) {
+            return false;
+        }
+        LOGGER.info("Replacing test worker process, as it uses {} of heap after garbage collection.", heapUsage);
+        return true;
+    }
+}
@@ -27,20 +27,28 @@ import org.gradle.api.internal.ConventionTask;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
 import org.gradle.api.internal.tasks.options.Option;
+import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisCache;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
 import org.gradle.api.internal.tasks.testing.DefaultTestTaskReports;
 import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestExecuterOptions;
+import org.gradle.api.internal.tasks.testing.detection.TestImpactAnalysis;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
 import org.gradle.api.internal.tasks.testing.junit.result.*;
 import org.gradle.api.internal.tasks.testing.logging.*;
+import org.gradle.api.internal.tasks.testing.processors.WorkPullingTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
@@ -52,10 +60,12 @@ import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.logging.ConsoleRenderer;
 import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.logging.StyledTextOutputFactory;
@@ -172,6 +182,26 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected ExecutorFactory getExecutorFactory() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected BuildOperationProcessor getBuildOperationProcessor() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected TestWorkerPool getTestWorkerPool() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected ClassAnalysisCache getClassAnalysisCache() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected ClassLoaderCache getClassLoaderCache() {
         throw new UnsupportedOperationException();
@@ -484,6 +514,20 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        Map<String, Long> previousTestClassDurations = WorkPullingTestClassProcessor.isLongestFirst() ? readTestClassDurations(binaryResultsDir) : null;
+
+        // Only the affected test classes are executed when the results of the last run are still there, so check before deleting them
+        TestImpactAnalysis impactAnalysis = null;
+        Set<String> affectedTestClasses = null;
+        if (TestImpactAnalysis.isEnabled()) {
+            impactAnalysis = new TestImpactAnalysis(new File(getTemporaryDir(), "testImpactAnalysis.bin"),
+                    new CachingClassDependenciesAnalyzer(new DefaultClassDependenciesAnalyzer(), new DefaultHasher(), getClassAnalysisCache()));
+            affectedTestClasses = impactAnalysis.getAffectedClasses(getClasspath(), getImpactAnalysisSettings(), getPreviousResults(binaryResultsDir));
+            if (getProject().getGradle().getStartParameter().isRerunTasks()) {
+                affectedTestClasses = null;
+            }
+        }
+
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -503,7 +547,12 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 getTestListenerBroadcaster().getSource(), testOutputListenerBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            TestExecuterOptions options = new TestExecuterOptions();
+            options.setExecutorFactory(getExecutorFactory());
+            options.setPreviousTestClassDurations(previousTestClassDurations);
+            options.setWorkerPool(TestWorkerPool.isEnabled() ? getTestWorkerPool() : null);
+            options.setAffectedTestClasses(affectedTestClasses);
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), options);
         }
 
         try {
@@ -521,7 +570,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(DefaultTestReport.isParallelEnabled() ? getBuildOperationProcessor() : null);
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -529,7 +578,8 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation,
+                        DefaultTestReport.isParallelEnabled() ? getBuildOperationProcessor() : null);
                 binary2JUnitXmlReportGenerator.generate();
             }
 
@@ -545,11 +595,53 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
             testFramework = null;
         }
 
-        if (testCountLogger.hadFailures()) {
+        boolean hadFailures = testCountLogger.hadFailures();
+        // A run of the tests selected by a filter says nothing about the other tests
+        if (impactAnalysis != null && !hadFailures && getFilter().getIncludePatterns().isEmpty()) {
+            impactAnalysis.saveState();
+        }
+        if (hadFailures) {
             handleTestFailures();
         }
     }
 
+    private List<String> getImpactAnalysisSettings() {
+        List<String> settings = new ArrayList<String>();
+        settings.add(getTestFramework().getClass().getName());
+        settings.add(getTestClassesDir().getAbsolutePath());
+        settings.add(getIncludes().toString());
+        settings.add(getExcludes().toString());
+        settings.addAll(getAllJvmArgs());
+        return settings;
+    }
+
+    private List<File> getPreviousResults(File binaryResultsDir) {
+        List<File> results = new ArrayList<File>();
+        results.add(binaryResultsDir);
+        if (reports.getJunitXml().isEnabled()) {
+            results.add(reports.getJunitXml().getDestination());
+        }
+        if (reports.getHtml().isEnabled()) {
+            results.add(reports.getHtml().getDestination());
+        }
+        return results;
+    }
+
+    private Map<String, Long> readTestClassDurations(File binaryResultsDir) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        try {
+            new TestResultSerializer(binaryResultsDir).read(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    durations.put(result.getClassName(), result.getDuration());
+                }
+            });
+        } catch (Exception e) {
+            getLogger().info("Could not read the durations of the previous test run from {}.", binaryResultsDir, e);
+            durations.clear();
+        }
+        return durations;
+    }
+
     /**
      * Returns the {@link org.gradle.api.tasks.testing.TestListener} broadcaster.  This broadcaster will send messages to all listeners that have been registered with the ListenerManager.
      */
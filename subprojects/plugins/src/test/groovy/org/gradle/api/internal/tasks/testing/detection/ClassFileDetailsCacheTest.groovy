@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.internal.hash.HashUtil
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassFileDetailsCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+    def hash1 = HashUtil.createHash("class1", "SHA1")
+    def hash2 = HashUtil.createHash("class2", "SHA1")
+
+    def "reads the details written by a previous run"() {
+        given:
+        def cache = new ClassFileDetailsCache(cacheFile)
+        cache.load()
+        cache.put(hash1, new ClassFileDetails("org/gradle/SomeTest", "org/gradle/AbstractTest", true, false))
+        cache.put(hash2, new ClassFileDetails("org/gradle/Other", null, false, true))
+        cache.save()
+
+        when:
+        def reloaded = new ClassFileDetailsCache(cacheFile)
+        reloaded.load()
+        def details1 = reloaded.get(hash1)
+        def details2 = reloaded.get(hash2)
+
+        then:
+        details1.className == "org/gradle/SomeTest"
+        details1.superClassName == "org/gradle/AbstractTest"
+        details1.test
+        !details1.abstract
+        details2.className == "org/gradle/Other"
+        details2.superClassName == null
+        !details2.test
+        details2.abstract
+    }
+
+    def "writes only the details used since the cache was loaded"() {
+        given:
+        def cache = new ClassFileDetailsCache(cacheFile)
+        cache.load()
+        cache.put(hash1, new ClassFileDetails("org/gradle/SomeTest", null, true, false))
+        cache.put(hash2, new ClassFileDetails("org/gradle/Removed", null, true, false))
+        cache.save()
+
+        when:
+        def second = new ClassFileDetailsCache(cacheFile)
+        second.load()
+        second.get(hash1)
+        second.save()
+        def third = new ClassFileDetailsCache(cacheFile)
+        third.load()
+
+        then:
+        third.get(hash1).className == "org/gradle/SomeTest"
+        third.get(hash2) == null
+    }
+
+    def "starts empty when the cache file cannot be read"() {
+        given:
+        cacheFile.text = "not a cache"
+        def cache = new ClassFileDetailsCache(cacheFile)
+
+        when:
+        cache.load()
+
+        then:
+        cache.get(hash1) == null
+    }
+}
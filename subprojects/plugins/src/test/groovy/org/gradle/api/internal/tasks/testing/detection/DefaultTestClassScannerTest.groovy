@@ -26,7 +26,12 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.jmock.Sequence
 import org.gradle.api.file.FileTree
 import static org.hamcrest.Matchers.*
+import static org.junit.Assert.assertThat
 import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import java.util.concurrent.CopyOnWriteArrayList
 
 @RunWith(JMock.class)
 public class DefaultTestClassScannerTest {
@@ -55,4 +60,34 @@ public class DefaultTestClassScannerTest {
         
         scanner.run()
     }
+
+    @Test
+    public void passesEachClassFileToTestClassDetectorFromThreadPoolWhenExecutorFactoryIsGiven() {
+        def classFiles = (1..20).collect { new File("class${it}.class") }
+        def detectionThreads = new CopyOnWriteArrayList<Thread>()
+        def processedClasses = []
+        // Not JMock mocks, as the detector is called from multiple threads
+        def candidates = [visit: { FileVisitor visitor ->
+            classFiles.each { file -> visitor.visitFile({ file } as FileVisitDetails) }
+            null
+        }] as FileTree
+        def targetProcessor = [processTestClass: { TestClassRunInfo testClass -> processedClasses << testClass.testClassName }] as TestClassProcessor
+        TestClassProcessor detectionProcessor
+        def parallelDetector = [
+                startDetection: { TestClassProcessor processor -> detectionProcessor = processor },
+                processTestClass: { File file ->
+                    detectionThreads << Thread.currentThread()
+                    detectionProcessor.processTestClass({ file.name } as TestClassRunInfo)
+                    true
+                }
+        ] as TestFrameworkDetector
+        def executorFactory = new DefaultExecutorFactory()
+
+        new DefaultTestClassScanner(candidates, parallelDetector, targetProcessor, executorFactory).run()
+        executorFactory.stop()
+
+        assertThat(processedClasses as Set, equalTo(classFiles*.name as Set))
+        assertThat(processedClasses.size(), equalTo(20))
+        assertThat(detectionThreads.contains(Thread.currentThread()), equalTo(false))
+    }
 }
@@ -38,7 +38,7 @@ class DefaultTestExecuterTest extends Specification {
     File testClassesDir = Mock()
     FileCollection testClasspath = Mock()
 
-    DefaultTestExecuter executer = new DefaultTestExecuter(workerFactory, actorFactory)
+    DefaultTestExecuter executer = new DefaultTestExecuter(workerFactory, actorFactory, new TestExecuterOptions())
 
     def setup() {
         _ * testTask.testFramework >> testFramework
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+class TestImpactAnalysisTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def stateFile = tmpDir.file("state.bin")
+    def classes = tmpDir.createDir("classes")
+    def testClasses = tmpDir.createDir("test-classes")
+    def jar = tmpDir.file("lib.jar") << "jar"
+    def classpath = [testClasses, classes, jar]
+    def results = [tmpDir.createDir("results")]
+    def settings = ["-Xmx64m"]
+    def dependencies = [
+            "org.Service": ["org.Repository"],
+            "org.ServiceTest": ["org.Service"],
+            "org.ServiceTest\$1": ["org.ServiceTest", "org.Service"],
+            "org.RepositoryTest": ["org.Repository"],
+            "org.OtherTest": ["org.Other"],
+    ]
+    def analyzer = Stub(ClassDependenciesAnalyzer) {
+        getClassAnalysis(_, _) >> { String className, File file -> new ClassAnalysis((dependencies[className] ?: []) as Set, file.text.contains("constant")) }
+    }
+
+    def setup() {
+        classes.file("org/Repository.class") << "repository"
+        classes.file("org/Service.class") << "service"
+        classes.file("org/Other.class") << "other"
+        classes.file("org/resource.properties") << "resource"
+        testClasses.file("org/ServiceTest.class") << "service test"
+        testClasses.file("org/ServiceTest\$1.class") << "service test inner"
+        testClasses.file("org/RepositoryTest.class") << "repository test"
+        testClasses.file("org/OtherTest.class") << "other test"
+    }
+
+    def "all classes are affected when there is no previous state"() {
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == null
+    }
+
+    def "all classes are affected when nothing changed since the last successful run"() {
+        given:
+        successfulRun()
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == null
+    }
+
+    def "all classes are affected when the results of the last successful run are missing"() {
+        given:
+        successfulRun()
+        classes.file("org/Repository.class").text = "changed"
+        results[0].deleteDir()
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == null
+    }
+
+    def "changed classes and their transitive dependents are affected"() {
+        given:
+        successfulRun()
+        classes.file("org/Repository.class").text = "changed"
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == ["org.Repository", "org.Service", "org.ServiceTest", "org.RepositoryTest"] as Set
+    }
+
+    def "a change to an inner class affects its top-level class"() {
+        given:
+        successfulRun()
+        testClasses.file("org/ServiceTest\$1.class").text = "changed"
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == ["org.ServiceTest"] as Set
+    }
+
+    def "changes are relative to the last successful run"() {
+        given:
+        successfulRun()
+        classes.file("org/Other.class").text = "changed"
+        analysis().getAffectedClasses(classpath, settings, results)
+        classes.file("org/Service.class").text = "changed"
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == ["org.Other", "org.OtherTest", "org.Service", "org.ServiceTest"] as Set
+    }
+
+    def "added and removed classes are affected"() {
+        given:
+        successfulRun()
+        testClasses.file("org/NewTest.class") << "new test"
+        testClasses.file("org/OtherTest.class").delete()
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == ["org.NewTest", "org.OtherTest"] as Set
+    }
+
+    def "all classes are affected when a change may affect any class"() {
+        given:
+        successfulRun()
+        classes.file("org/Other.class").text = "changed constant"
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == null
+    }
+
+    def "all classes are affected when a resource, a jar or a setting changed"() {
+        given:
+        successfulRun()
+        change.call(this)
+
+        expect:
+        analysis().getAffectedClasses(classpath, settings, results) == null
+
+        where:
+        change << [
+                { it.classes.file("org/resource.properties").text = "changed" },
+                { it.jar.text = "changed jar" },
+                { it.settings = ["-Xmx128m"] },
+                { it.classpath = [it.testClasses, it.classes] }
+        ]
+    }
+
+    private TestImpactAnalysis analysis() {
+        return new TestImpactAnalysis(stateFile, analyzer)
+    }
+
+    private void successfulRun() {
+        def analysis = analysis()
+        analysis.getAffectedClasses(classpath, settings, results)
+        analysis.saveState()
+    }
+}
@@ -18,6 +18,8 @@ package org.gradle.api.internal.tasks.testing.junit.report
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.AggregateTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -477,6 +479,47 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def generatesClassPagesInParallel() {
+        given:
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+        def parallelReport = new DefaultTestReport(buildOperationProcessor)
+
+        when:
+        parallelReport.generateReport(failingBuildResults(), reportDir)
+
+        then:
+        results(indexFile).assertHasTests(7)
+        def alsoPassedClassFile = results(reportDir.file('classes/org.gradle.passing.AlsoPassed.html'))
+        alsoPassedClassFile.assertHasTests(1)
+        alsoPassedClassFile.assertHasStandardOutput('this is\nstandard output')
+        alsoPassedClassFile.assertHasStandardError('this is\nstandard error')
+        def failingClassFile = results(reportDir.file('classes/org.gradle.failing.SomeIgnoredSomePassedSomeFailed.html'))
+        failingClassFile.assertHasTests(3)
+        failingClassFile.assertHasFailure('failed', 'something failed\n\nthis is the failure\nat someClass\n')
+
+        cleanup:
+        buildOperationProcessor.stop()
+    }
+
+    def rendersEveryClassPageAgainWhenGeneratingClassPagesInParallel() {
+        given:
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+        def parallelReport = new DefaultTestReport(buildOperationProcessor)
+        parallelReport.generateReport(aggregatedBuildResultsRun1(), reportDir)
+        def fooPage = reportDir.file('classes/org.gradle.aggregation.FooTest.html')
+        fooPage.text = "stale"
+
+        when:
+        parallelReport.generateReport(aggregatedBuildResultsRun2(), reportDir)
+
+        then:
+        results(fooPage).assertHasTests(1)
+        results(indexFile).assertHasFailures(1)
+
+        cleanup:
+        buildOperationProcessor.stop()
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
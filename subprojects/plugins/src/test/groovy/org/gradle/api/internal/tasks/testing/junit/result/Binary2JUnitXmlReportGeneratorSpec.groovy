@@ -18,6 +18,8 @@ package org.gradle.api.internal.tasks.testing.junit.result
 
 import org.gradle.api.Action
 import org.gradle.api.GradleException
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -54,6 +56,22 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         0 * generator.saxWriter._
     }
 
+    def "writes results in parallel"() {
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+        def results = (1..20).collect { new TestClassResult(it, "FooTest$it", 100).add(new TestMethodResult(it, "foo")) }
+        def provider = new InMemoryTestResultsProvider(results, new TestOutputStore(temp.createDir("output")).reader())
+        def parallelGenerator = new Binary2JUnitXmlReportGenerator(temp.createDir("xml"), provider, TestOutputAssociation.WITH_SUITE, buildOperationProcessor)
+
+        when:
+        parallelGenerator.generate()
+
+        then:
+        results.every { temp.file("xml/TEST-${it.className}.xml").text.contains("name=\"${it.className}\"") }
+
+        cleanup:
+        buildOperationProcessor.stop()
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         def fooTest = new TestClassResult(1, 'FooTest', 100)
                 .add(new TestMethodResult(1, "foo"))
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+class AffectedTestClassProcessorTest extends Specification {
+    def target = Mock(TestClassProcessor)
+    def processor = new AffectedTestClassProcessor(target, ["org.AffectedTest"] as Set)
+
+    def "forwards only the affected test classes"() {
+        def resultProcessor = Mock(TestResultProcessor)
+        def affected = new DefaultTestClassRunInfo("org.AffectedTest")
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(affected)
+        processor.processTestClass(new DefaultTestClassRunInfo("org.OtherTest"))
+        processor.stop()
+
+        then:
+        1 * target.startProcessing(resultProcessor)
+        1 * target.processTestClass(affected)
+        1 * target.stop()
+        0 * target._
+    }
+
+    def "forwards all test classes when none of them is affected"() {
+        def test1 = new DefaultTestClassRunInfo("org.OtherTest")
+        def test2 = new DefaultTestClassRunInfo("org.AnotherTest")
+
+        when:
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+
+        then:
+        0 * target._
+
+        when:
+        processor.stop()
+
+        then:
+        1 * target.processTestClass(test1)
+
+        then:
+        1 * target.processTestClass(test2)
+
+        then:
+        1 * target.stop()
+        0 * target._
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
+import org.gradle.api.specs.Spec;
 import org.gradle.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
@@ -153,4 +154,42 @@ public class RestartEveryNTestClassProcessorTest {
         processor.processTestClass(test2);
         processor.stop();
     }
+
+    @Test
+    public void endsProcessingOnDelegateProcessorWhenRestartSpecIsSatisfied() {
+        @SuppressWarnings("unchecked")
+        final Spec<TestClassProcessor> restartWhen = context.mock(Spec.class);
+        processor = new RestartEveryNTestClassProcessor(factory, 0, restartWhen);
+
+        context.checking(new Expectations() {{
+            one(factory).create();
+            will(returnValue(delegate));
+
+            one(delegate).startProcessing(resultProcessor);
+            one(delegate).processTestClass(test1);
+            one(restartWhen).isSatisfiedBy(delegate);
+            will(returnValue(false));
+            one(delegate).processTestClass(test2);
+            one(restartWhen).isSatisfiedBy(delegate);
+            will(returnValue(true));
+            one(delegate).stop();
+
+            TestClassProcessor delegate2 = context.mock(TestClassProcessor.class, "delegate2");
+
+            one(factory).create();
+            will(returnValue(delegate2));
+
+            one(delegate2).startProcessing(resultProcessor);
+            one(delegate2).processTestClass(test3);
+            one(restartWhen).isSatisfiedBy(delegate2);
+            will(returnValue(false));
+            one(delegate2).stop();
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+        processor.processTestClass(test2);
+        processor.processTestClass(test3);
+        processor.stop();
+    }
 }
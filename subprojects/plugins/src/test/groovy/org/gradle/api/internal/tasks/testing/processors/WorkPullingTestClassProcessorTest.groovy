@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.messaging.actor.internal.DefaultActorFactory
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+
+class WorkPullingTestClassProcessorTest extends Specification {
+    // Not Spock mocks, as the processors are called from the actor threads
+    def executorFactory = new DefaultExecutorFactory()
+    def actorFactory = new DefaultActorFactory(executorFactory)
+    def processed = new CopyOnWriteArrayList<String>()
+    def processorCount = 0
+    def release = new CountDownLatch(1)
+    def factory = {
+        def id = ++processorCount
+        [
+                startProcessing: { TestResultProcessor resultProcessor -> },
+                processTestClass: { TestClassRunInfo testClass ->
+                    if (testClass.testClassName == "slow") {
+                        release.await()
+                    }
+                    if (testClass.testClassName == "broken") {
+                        throw new RuntimeException("broken")
+                    }
+                    processed << "${testClass.testClassName}@$id".toString()
+                },
+                stop: {}
+        ] as TestClassProcessor
+    } as Factory<TestClassProcessor>
+    def conditions = new PollingConditions(timeout: 5)
+
+    def cleanup() {
+        release.countDown()
+        executorFactory.stop()
+    }
+
+    def "gives the queued test classes to the processors that are not busy"() {
+        def processor = new WorkPullingTestClassProcessor(2, factory, actorFactory, null)
+        processor.startProcessing(Stub(TestResultProcessor))
+
+        when:
+        ["slow", "a", "b", "c"].each { processor.processTestClass(testClass(it)) }
+
+        then:
+        conditions.eventually {
+            assert processed == ["a@2", "b@2", "c@2"]
+        }
+
+        when:
+        release.countDown()
+        processor.stop()
+
+        then:
+        processed == ["a@2", "b@2", "c@2", "slow@1"]
+    }
+
+    def "hands out the test classes longest first once all of them have been received"() {
+        def processor = new WorkPullingTestClassProcessor(1, factory, actorFactory, [a: 10L, b: 100L, d: 50L])
+        processor.startProcessing(Stub(TestResultProcessor))
+
+        when:
+        ["a", "b", "c", "d"].each { processor.processTestClass(testClass(it)) }
+
+        then:
+        processorCount == 0
+
+        when:
+        processor.stop()
+
+        then:
+        processed == ["c@1", "b@1", "d@1", "a@1"]
+    }
+
+    def "does not give any more test classes to a processor that has failed"() {
+        def processor = new WorkPullingTestClassProcessor(1, factory, actorFactory, null)
+        processor.startProcessing(Stub(TestResultProcessor))
+
+        when:
+        ["broken", "a", "b"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        RuntimeException e = thrown()
+        e.message == "broken"
+        processed == ["a@2", "b@2"]
+    }
+
+    private static TestClassRunInfo testClass(String name) {
+        return new DefaultTestClassRunInfo(name)
+    }
+}
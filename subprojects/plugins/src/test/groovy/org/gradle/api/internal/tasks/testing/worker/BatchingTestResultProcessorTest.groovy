@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class BatchingTestResultProcessorTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def batches = new CopyOnWriteArrayList<TestEventBatch>()
+    // Not a Spock mock, as the flusher thread forwards the batches
+    def target = { TestEventBatch batch -> batches << batch } as TestEventBatchProcessor
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "forwards a batch once it is full"() {
+        given:
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 3, 60000)
+
+        when:
+        5.times { processor.output("id", output("line $it")) }
+
+        then:
+        batches.size() == 1
+        batches[0].size() == 3
+
+        when:
+        processor.stop()
+
+        then:
+        batches.size() == 2
+        batches[1].size() == 2
+    }
+
+    def "forwards a partial batch once the flush interval has passed"() {
+        given:
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 100, 10)
+
+        when:
+        processor.output("id", output("line"))
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert batches.size() == 1
+        }
+        batches[0].size() == 1
+
+        cleanup:
+        processor.stop()
+    }
+
+    def "forwards events in the order in which they are received"() {
+        given:
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 7, 1)
+        def test = Stub(TestDescriptorInternal)
+        def received = []
+        def collector = [
+                started: { TestDescriptorInternal descriptor, TestStartEvent event -> received << "start ${event.startTime}" },
+                output: { Object id, TestOutputEvent event -> received << event.message },
+                completed: { Object id, TestCompleteEvent event -> received << "complete ${event.endTime}" }
+        ] as TestResultProcessor
+        def expected = []
+
+        when:
+        100.times {
+            processor.started(test, new TestStartEvent(it))
+            processor.output(it, output("output $it"))
+            processor.completed(it, new TestCompleteEvent(it))
+            expected << "start $it" << "output $it" << "complete $it"
+        }
+        processor.stop()
+        batches.each { it.dispatchTo(collector) }
+
+        then:
+        received == expected
+    }
+
+    def "flush forwards the events received so far"() {
+        given:
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 100, 60000)
+        processor.failure("id", new RuntimeException())
+
+        when:
+        processor.flush()
+
+        then:
+        batches.size() == 1
+
+        when:
+        processor.flush()
+
+        then:
+        batches.size() == 1
+
+        cleanup:
+        processor.stop()
+    }
+
+    private static DefaultTestOutputEvent output(String message) {
+        return new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, message)
+    }
+}
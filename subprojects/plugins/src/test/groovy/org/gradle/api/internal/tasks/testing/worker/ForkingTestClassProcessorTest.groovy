@@ -17,16 +17,27 @@
 package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.Action
+import org.gradle.api.internal.file.FileResolver
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.Factory
 import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.WorkerProcess
+import org.gradle.process.internal.WorkerProcessBuilder
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 class ForkingTestClassProcessorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
-    @Subject processor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action)])
+    @Subject processor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), new TestWorkerOptions(), null])
 
     def "starts worker process on first test"() {
         def test1 = Mock(TestClassRunInfo)
@@ -43,4 +54,111 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * remoteProcessor.processTestClass(test2)
         0 * remoteProcessor._
     }
+
+    def "waits for the worker process to ask for another test class when pulling test classes"() {
+        // Not a Spock spy, as the spy would hold the mock controller lock while the processor waits
+        def sent = new CopyOnWriteArrayList<TestClassRunInfo>()
+        def remoteProcessor = [processTestClass: { TestClassRunInfo testClass -> sent << testClass }] as RemoteTestClassProcessor
+        def pullingProcessor = new ForkingTestClassProcessor(Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), new TestWorkerOptions(pullTestClasses: true), null) {
+            @Override
+            RemoteTestClassProcessor forkProcess() {
+                return remoteProcessor
+            }
+        }
+        def test1 = Mock(TestClassRunInfo)
+        def done = new CountDownLatch(1)
+
+        when:
+        Thread.start {
+            pullingProcessor.processTestClass(test1)
+            done.countDown()
+        }
+        def finishedBeforeRequest = done.await(200, TimeUnit.MILLISECONDS)
+
+        then:
+        !finishedBeforeRequest
+        sent == [test1]
+
+        when:
+        pullingProcessor.requestTestClass()
+
+        then:
+        done.await(5, TimeUnit.SECONDS)
+    }
+
+    def "waits for the worker process to ask for another test class and keeps the heap usage it reports when reporting heap usage"() {
+        def remoteProcessor = [processTestClass: { TestClassRunInfo testClass -> }] as RemoteTestClassProcessor
+        def reportingProcessor = new ForkingTestClassProcessor(Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), new TestWorkerOptions(reportHeapUsage: true), null) {
+            @Override
+            RemoteTestClassProcessor forkProcess() {
+                return remoteProcessor
+            }
+        }
+        def heapUsage = new WorkerHeapUsage(10, 100)
+        def done = new CountDownLatch(1)
+
+        when:
+        Thread.start {
+            reportingProcessor.processTestClass(Mock(TestClassRunInfo))
+            done.countDown()
+        }
+        def finishedBeforeRequest = done.await(200, TimeUnit.MILLISECONDS)
+
+        then:
+        !finishedBeforeRequest
+        reportingProcessor.heapUsage == null
+
+        when:
+        reportingProcessor.heapUsageReported(heapUsage)
+        reportingProcessor.requestTestClass()
+
+        then:
+        done.await(5, TimeUnit.SECONDS)
+        reportingProcessor.heapUsage == heapUsage
+    }
+
+    def "loads the whole classpath in the session of a pooled worker process and only the test framework jars once per worker process"() {
+        def classesDir = tmpDir.createDir("classes")
+        def libJar = jar("lib.jar", "org/lib/Lib.class")
+        def frameworkJar = jar("junit.jar", "org/junit/Test.class")
+        def frameworkClasspath = [frameworkJar]
+        def javaCommand = Stub(JavaExecHandleBuilder) {
+            getEnvironment() >> [:]
+        }
+        def builder = new WorkerProcessBuilder(Mock(FileResolver)) {
+            @Override
+            JavaExecHandleBuilder getJavaCommand() {
+                return javaCommand
+            }
+
+            @Override
+            WorkerProcess build() {
+                throw new UnsupportedOperationException()
+            }
+        }
+        def workerPool = Mock(TestWorkerPool)
+        def worker = Mock(PooledTestWorkerProcess)
+        def workerFactory = { builder } as Factory
+        def buildConfigAction = { WorkerProcessBuilder it -> it.sharedPackages("org.junit") } as Action
+        def pooledProcessor = new ForkingTestClassProcessor(workerFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [libJar, classesDir, frameworkJar], buildConfigAction, new TestWorkerOptions(batchTestEvents: true), workerPool)
+        TestWorkerSession session = null
+
+        when:
+        pooledProcessor.forkProcess()
+
+        then:
+        1 * workerPool.getFrameworkClasspath({ it as List == [libJar, classesDir, frameworkJar] }, { it as List == ["org.junit"] }) >> frameworkClasspath
+        1 * workerPool.acquire(_) >> worker
+        1 * worker.startSession(_, _, _, _) >> { session = it[0]; Mock(RemoteTestClassProcessor) }
+        builder.applicationClasspath as List == frameworkClasspath
+        session.sessionClasspath == [libJar, classesDir, frameworkJar]
+    }
+
+    private File jar(String name, String entry) {
+        def contents = tmpDir.createDir(name + "-contents")
+        contents.file(entry).createFile()
+        def jar = tmpDir.file(name)
+        contents.zipTo(jar)
+        return jar
+    }
 }
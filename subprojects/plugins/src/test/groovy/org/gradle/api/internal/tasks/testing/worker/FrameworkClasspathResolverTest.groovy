@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.hamcrest.Matcher
+import org.junit.Assert
+import org.junit.Rule
+import spock.lang.Specification
+
+class FrameworkClasspathResolverTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def resolver = new FrameworkClasspathResolver()
+
+    def "selects the jars of the shared packages and the jars they use"() {
+        def classesDir = tmpDir.createDir("classes")
+        def libJar = jar("lib.jar", null, "org/lib/Lib.class")
+        def hamcrestJar = jar("hamcrest.jar", Matcher)
+        def junitJar = jar("junit.jar", Assert)
+
+        expect:
+        resolver.resolve([libJar, classesDir, hamcrestJar, junitJar], ["org.junit"]) == [hamcrestJar, junitJar]
+        resolver.resolve([libJar, classesDir, junitJar], ["org.junit"]) == [junitJar]
+        resolver.resolve([libJar, classesDir, hamcrestJar], ["org.junit"]) == []
+    }
+
+    def "reads a jar again when it changes"() {
+        def junitJar = jar("junit.jar", Matcher)
+
+        expect:
+        resolver.resolve([junitJar], ["org.junit"]) == []
+
+        when:
+        junitJar.delete()
+        jar("junit.jar", Assert)
+        junitJar.lastModified = junitJar.lastModified() + 2000
+
+        then:
+        resolver.resolve([junitJar], ["org.junit"]) == [junitJar]
+    }
+
+    private File jar(String name, Class<?> type, String... otherEntries) {
+        def contents = tmpDir.createDir(name + "-contents")
+        if (type != null) {
+            def classFile = type.name.replace('.', '/') + ".class"
+            contents.file(classFile).createFile().bytes = type.getResourceAsStream("/" + classFile).bytes
+        }
+        otherEntries.each { contents.file(it).createFile() }
+        def jar = tmpDir.file(name)
+        contents.zipTo(jar)
+        return jar
+    }
+}
@@ -23,13 +23,17 @@ import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
 import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor
 import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
 import org.gradle.api.internal.tasks.testing.DefaultTestSuiteDescriptor
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.api.tasks.testing.TestOutputEvent
 import org.gradle.api.tasks.testing.TestResult
 import org.gradle.internal.id.CompositeIdGenerator
 import org.gradle.internal.serialize.InputStreamBackedDecoder
 import org.gradle.internal.serialize.OutputStreamBackedEncoder
+import org.gradle.internal.service.ServiceRegistry
 import spock.lang.Specification
 
 class TestEventSerializerTest extends Specification {
@@ -193,6 +197,68 @@ class TestEventSerializerTest extends Specification {
         result[0].cause.message == "cause"
     }
 
+    def "serializes TestEventBatch"() {
+        def id = new CompositeIdGenerator.CompositeId(1L, 2L)
+        def batch = new TestEventBatch()
+        batch.started(new DefaultTestClassDescriptor(id, "some-test"), new TestStartEvent(123L, null))
+        batch.output(id, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "hi"))
+        batch.failure(id, new RuntimeException("broken"))
+        batch.completed(id, new TestCompleteEvent(456L, TestResult.ResultType.FAILURE))
+        def processor = Mock(TestResultProcessor)
+
+        when:
+        def result = serialize(batch)
+
+        then:
+        result.length == 1
+        result[0] instanceof TestEventBatch
+        result[0].size() == 4
+
+        when:
+        result[0].dispatchTo(processor)
+
+        then:
+        1 * processor.started({ it instanceof DefaultTestClassDescriptor && it.id == id && it.className == "some-test" }, { it.startTime == 123L })
+        then:
+        1 * processor.output(id, { it.destination == TestOutputEvent.Destination.StdOut && it.message == "hi" })
+        then:
+        1 * processor.failure(id, { it.class == RuntimeException && it.message == "broken" })
+        then:
+        1 * processor.completed(id, { it.endTime == 456L && it.resultType == TestResult.ResultType.FAILURE })
+        0 * processor._
+    }
+
+    def "serializes TestWorkerSession"() {
+        def session = new TestWorkerSession(new SomeProcessorFactory(), [new File("classes")], true)
+
+        when:
+        def result = serialize(session)
+
+        then:
+        result.length == 1
+        result[0] instanceof TestWorkerSession
+        result[0].processorFactory instanceof SomeProcessorFactory
+        result[0].sessionClasspath == [new File("classes")]
+        result[0].requestTestClasses
+    }
+
+    def "serializes WorkerHeapUsage"() {
+        when:
+        def result = serialize(new WorkerHeapUsage(123L, 456L))
+
+        then:
+        result.length == 1
+        result[0] instanceof WorkerHeapUsage
+        result[0].usedAfterGc == 123L
+        result[0].max == 456L
+    }
+
+    static class SomeProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            return null
+        }
+    }
+
     def Object[] serialize(Object... source) {
         def outstr = new ByteArrayOutputStream()
         serializer.newWriter(new OutputStreamBackedEncoder(outstr)).write(source)
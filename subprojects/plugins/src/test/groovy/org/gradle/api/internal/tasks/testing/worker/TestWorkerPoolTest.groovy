@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class TestWorkerPoolTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def pool = new TestWorkerPool(executorFactory)
+
+    def cleanup() {
+        pool.stop()
+        executorFactory.stop()
+    }
+
+    def "hands out an idle worker process with the same key"() {
+        def worker = new FakeWorkerProcess("key")
+
+        expect:
+        pool.acquire("key") == null
+
+        when:
+        pool.release(worker)
+
+        then:
+        pool.acquire("other") == null
+        pool.acquire("key") == worker
+        pool.acquire("key") == null
+        !worker.stopped
+    }
+
+    def "hands out the most recently released worker process first"() {
+        def worker1 = new FakeWorkerProcess("key")
+        def worker2 = new FakeWorkerProcess("key")
+
+        when:
+        pool.release(worker1)
+        pool.release(worker2)
+
+        then:
+        pool.acquire("key") == worker2
+        pool.acquire("key") == worker1
+    }
+
+    def "stops a worker process that cannot be used again instead of pooling it"() {
+        def worker = new FakeWorkerProcess("key")
+        worker.idle = false
+
+        when:
+        pool.release(worker)
+
+        then:
+        worker.stopped
+        pool.acquire("key") == null
+    }
+
+    def "does not hand out a pooled worker process that has stopped"() {
+        def worker = new FakeWorkerProcess("key")
+        pool.release(worker)
+        worker.idle = false
+
+        expect:
+        pool.acquire("key") == null
+        worker.stopped
+    }
+
+    def "stops worker processes that stay idle for longer than the idle timeout"() {
+        pool = new TestWorkerPool(executorFactory, 100)
+        def worker = new FakeWorkerProcess("key")
+
+        when:
+        pool.release(worker)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert worker.stopped
+        }
+        pool.acquire("key") == null
+    }
+
+    def "stops the idle worker processes when stopped"() {
+        def worker1 = new FakeWorkerProcess("key1")
+        def worker2 = new FakeWorkerProcess("key2")
+        def worker3 = new FakeWorkerProcess("key3")
+        pool.release(worker1)
+        pool.release(worker2)
+
+        when:
+        pool.stop()
+        pool.release(worker3)
+
+        then:
+        worker1.stopped
+        worker2.stopped
+        worker3.stopped
+    }
+
+    // Not a Spock mock, as the evictor thread stops the worker processes
+    static class FakeWorkerProcess extends PooledTestWorkerProcess {
+        volatile boolean idle = true
+        volatile boolean stopped
+
+        FakeWorkerProcess(Object key) {
+            super(key)
+        }
+
+        @Override
+        boolean isIdle() {
+            return idle
+        }
+
+        @Override
+        void stop() {
+            stopped = true
+        }
+    }
+}
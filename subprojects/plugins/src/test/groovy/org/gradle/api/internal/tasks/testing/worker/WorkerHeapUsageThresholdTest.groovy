@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class WorkerHeapUsageThresholdTest extends Specification {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+    def threshold = new WorkerHeapUsageThreshold(0.75)
+
+    def "is satisfied when the worker process reported a heap usage at or above the threshold"() {
+        def processor = Stub(ForkingTestClassProcessor) {
+            getHeapUsage() >> new WorkerHeapUsage(used, 100)
+        }
+
+        expect:
+        threshold.isSatisfiedBy(processor) == satisfied
+
+        where:
+        used | satisfied
+        0    | false
+        74   | false
+        75   | true
+        100  | true
+    }
+
+    def "is not satisfied when the worker process did not report any heap usage"() {
+        def processor = Stub(ForkingTestClassProcessor) {
+            getHeapUsage() >> null
+        }
+
+        expect:
+        !threshold.isSatisfiedBy(processor)
+        !threshold.isSatisfiedBy(Stub(TestClassProcessor))
+    }
+
+    def "is not satisfied when the heap size of the worker process is not limited"() {
+        def processor = Stub(ForkingTestClassProcessor) {
+            getHeapUsage() >> new WorkerHeapUsage(1000, Long.MAX_VALUE)
+        }
+
+        expect:
+        !threshold.isSatisfiedBy(processor)
+    }
+
+    def "reads the threshold from the system property"() {
+        when:
+        System.setProperty(WorkerHeapUsageThreshold.THRESHOLD_PROPERTY, "80")
+
+        then:
+        WorkerHeapUsageThreshold.fromSystemProperties().maxUsedFraction == 0.8d
+
+        when:
+        System.clearProperty(WorkerHeapUsageThreshold.THRESHOLD_PROPERTY)
+
+        then:
+        WorkerHeapUsageThreshold.fromSystemProperties() == null
+    }
+
+    def "fails when the system property is not a percentage"() {
+        when:
+        System.setProperty(WorkerHeapUsageThreshold.THRESHOLD_PROPERTY, value)
+        WorkerHeapUsageThreshold.fromSystemProperties()
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Invalid value '$value' for system property 'org.gradle.test.maxWorkerHeapUsage'. Expected a percentage between 1 and 100."
+
+        where:
+        value << ["0", "101", "lots"]
+    }
+
+    def "reports the heap usage of the current process"() {
+        when:
+        def heapUsage = WorkerHeapUsage.current()
+
+        then:
+        heapUsage.usedAfterGc >= 0
+        heapUsage.max == Runtime.runtime.maxMemory()
+        heapUsage.usedFraction >= 0 && heapUsage.usedFraction <= 1
+    }
+}